@@ -1,33 +1,390 @@
 package com.github.xemiru.mcbomberman;
 
 import com.github.xemiru.mcbomberman.framework.Game;
+import com.github.xemiru.mcbomberman.framework.GameClock;
+import com.github.xemiru.mcbomberman.game.ArenaCatalog;
+import com.github.xemiru.mcbomberman.game.ArenaGenerator;
+import com.github.xemiru.mcbomberman.game.ArenaLayout;
+import com.github.xemiru.mcbomberman.game.ArenaPool;
+import com.github.xemiru.mcbomberman.game.BombermanModule;
 import com.github.xemiru.mcbomberman.game.CountdownState;
+import com.github.xemiru.mcbomberman.game.Leaderboard;
+import com.github.xemiru.mcbomberman.game.MatchSnapshot;
+import com.github.xemiru.mcbomberman.game.Palette;
+import com.github.xemiru.mcbomberman.game.ReplayReader;
+import com.github.xemiru.mcbomberman.game.ReplayState;
+import com.github.xemiru.mcbomberman.game.ResumeState;
+import com.github.xemiru.mcbomberman.game.SnapshotStore;
+import com.github.xemiru.mcbomberman.game.StatsStore;
+import com.github.xemiru.mcbomberman.util.Pair;
 import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerChatEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
 public class Main extends JavaPlugin implements Listener {
 
+    /**
+     * The size of large-lobby arenas, in tiles, and how many participants they seat.
+     */
+    public static final int LARGE_ARENA_SIZE = 41;
+    public static final int LARGE_ARENA_SPAWNS = 64;
+
+    /**
+     * How many teams a team game is split into.
+     */
+    public static final int TEAM_COUNT = 4;
+
+    /**
+     * How many players the leaderboard command lists.
+     */
+    public static final int LEADERBOARD_SIZE = 10;
+
+    private ArenaPool arenas;
+    private ArenaPool largeArenas;
+    private ArenaCatalog catalog;
+    private StatsStore stats;
+    private SnapshotStore snapshots;
+    private final Map<Game, BombermanModule> games = new HashMap<>();
+
     @Override
     public void onEnable() {
         Bukkit.getPluginManager().registerEvents(this, this);
+
+        var generator = new ArenaGenerator(19, 19, 0.5, ArenaGenerator.SolidPattern.PILLARS, 8);
+        Supplier<Pair<ArenaLayout, Palette>> layouts = () -> new Pair<>(generator.generate(ThreadLocalRandom.current().nextLong()), null);
+
+        // prefer hand-made arenas when a catalog is present
+        var catalogFile = new File(this.getDataFolder(), "arenas.bmc");
+        if (catalogFile.isFile()) {
+            try {
+                this.catalog = ArenaCatalog.open(catalogFile.toPath());
+                var fitting = IntStream.range(0, catalog.size())
+                        .filter(i -> catalog.getWidth(i) <= 19 && catalog.getHeight(i) <= 19 && this.isReadable(i))
+                        .toArray();
+
+                if (fitting.length > 0) {
+                    layouts = () -> {
+                        var index = fitting[ThreadLocalRandom.current().nextInt(fitting.length)];
+                        return new Pair<>(catalog.read(index), catalog.readPalette(index));
+                    };
+                }
+            } catch (IOException | RuntimeException e) {
+                this.getLogger().warning("Couldn't open arena catalog: " + e.getMessage());
+            }
+        }
+
+        this.arenas = new ArenaPool(
+                this,
+                new Location(Bukkit.getWorlds().get(0), 0, 192, 0),
+                19,
+                19,
+                new Palette(Material.BEDROCK, Material.POLISHED_ANDESITE, Material.OAK_WOOD),
+                layouts,
+                ArenaPool.DEFAULT_BLOCKS_PER_TICK);
+        this.arenas.prewarm(2);
+
+        // large lobbies get their own pool, well away from the regular one
+        var largeGenerator = new ArenaGenerator(LARGE_ARENA_SIZE, LARGE_ARENA_SIZE, 0.5, ArenaGenerator.SolidPattern.PILLARS, LARGE_ARENA_SPAWNS);
+        this.largeArenas = new ArenaPool(
+                this,
+                new Location(Bukkit.getWorlds().get(0), -8192, 192, -8192),
+                LARGE_ARENA_SIZE,
+                LARGE_ARENA_SIZE,
+                new Palette(Material.BEDROCK, Material.POLISHED_ANDESITE, Material.OAK_WOOD),
+                () -> new Pair<>(largeGenerator.generate(ThreadLocalRandom.current().nextLong()), null),
+                ArenaPool.DEFAULT_BLOCKS_PER_TICK);
+        this.largeArenas.prewarm(1);
+
+        try {
+            this.stats = StatsStore.open(this.getDataFolder().toPath().resolve("stats"), this.getLogger());
+        } catch (IOException | RuntimeException e) {
+            this.getLogger().warning("Couldn't open stats store, so match results won't be saved: " + e.getMessage());
+        }
+
+        // pick up matches interrupted by a reload or restart once the server has finished starting
+        this.snapshots = new SnapshotStore(this.getDataFolder().toPath().resolve("snapshots"), this.getLogger());
+        var interrupted = this.snapshots.loadAll();
+        if (!interrupted.isEmpty()) Bukkit.getScheduler().runTask(this, () -> interrupted.forEach(this::resume));
+    }
+
+    /**
+     * Resumes an interrupted match with whichever of its players are online. Matches that can't be resumed are
+     * discarded, and their arenas rebuilt.
+     */
+    private void resume(MatchSnapshot snapshot) {
+        var pool = snapshot.getWidth() > 19 || snapshot.getHeight() > 19 ? this.largeArenas : this.arenas;
+        var online = IntStream.range(0, snapshot.getParticipants())
+                .filter(slot -> snapshot.getId(slot) != null && snapshot.isAlive(slot))
+                .mapToObj(slot -> Bukkit.getPlayer(snapshot.getId(slot)))
+                .filter(p -> p != null)
+                .count();
+
+        if (!snapshot.getState().equals("PlayState") || online == 0) {
+            this.snapshots.discard(snapshot.getName());
+            pool.prewarm(snapshot.getArenaIndex() + 1);
+            return;
+        }
+
+        var game = new Game(this);
+        var bomberman = new BombermanModule(pool);
+        bomberman.setReplayDirectory(this.getReplayDirectory());
+        bomberman.setStatsStore(this.stats);
+        bomberman.setSnapshotStore(this.snapshots);
+        bomberman.setVirtualPieces(snapshot.isVirtualPieces());
+        if (snapshot.isRealtime()) game.getClock().setMode(GameClock.Mode.WALL);
+
+        game.addModule(bomberman, false);
+        game.setState(new ResumeState(snapshot));
+        for (int slot = 0; slot < snapshot.getParticipants(); slot++) {
+            var player = snapshot.getId(slot) == null ? null : Bukkit.getPlayer(snapshot.getId(slot));
+            if (player != null) game.addPlayer(player);
+        }
+
+        this.track(game, bomberman);
+        game.start();
+    }
+
+    private void track(Game game, BombermanModule bomberman) {
+        this.games.keySet().removeIf(it -> !it.isRunning());
+        this.games.put(game, bomberman);
+    }
+
+    /**
+     * @return if a catalog layout and its palette can be read, logging why if they can't
+     */
+    private boolean isReadable(int index) {
+        try {
+            this.catalog.read(index);
+            this.catalog.readPalette(index);
+            return true;
+        } catch (RuntimeException e) {
+            this.getLogger().warning("Skipping arena layout " + index + " of the catalog: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        // players leaving the server leave their game too, forfeiting any match they're in
+        for (var game : this.games.keySet()) if (game.isRunning()) game.removePlayer(e.getPlayer());
     }
 
     @Override
     public void onDisable() {
+        // snapshot running matches before stopping them, so they can be resumed
+        this.games.forEach((game, bomberman) -> {
+            if (!game.isRunning()) return;
+
+            try {
+                bomberman.suspend();
+                game.stop();
+            } catch (RuntimeException e) {
+                this.getLogger().warning("Couldn't stop a game cleanly: " + e);
+            }
+        });
+
+        this.games.clear();
+        if (this.snapshots != null) this.snapshots.close();
+
+        BombermanModule.shutdownBots();
+        BombermanModule.shutdownReplays();
+        if (this.arenas != null) this.arenas.destroyAll();
+        if (this.largeArenas != null) this.largeArenas.destroyAll();
+        if (this.stats != null) {
+            try {
+                this.stats.close();
+            } catch (IOException e) {
+                this.getLogger().warning("Couldn't close stats store: " + e.getMessage());
+            }
+        }
+
+        if (this.catalog != null) {
+            try {
+                this.catalog.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * @return the pool that games lease their arenas from
+     */
+    public ArenaPool getArenaPool() {
+        return this.arenas;
     }
 
     @EventHandler
     public void onChat(PlayerChatEvent e) {
-        if(!e.getMessage().equalsIgnoreCase("start game")) return;
+        // "start [large] [teams] [light] [realtime] game [with <n> bots]"
+        var words = Arrays.asList(e.getMessage().toLowerCase().split("\\s+"));
+        var bots = 0;
+        if (words.size() > 3 && words.get(words.size() - 3).equals("with") && words.get(words.size() - 1).equals("bots")) {
+            try {
+                bots = Integer.parseInt(words.get(words.size() - 2));
+            } catch (NumberFormatException ex) {
+                return;
+            }
+
+            if (bots < 0) return;
+            words = words.subList(0, words.size() - 3);
+        }
+
+        if (words.size() < 2 || !words.get(0).equals("start") || !words.get(words.size() - 1).equals("game")) return;
+
+        var flags = words.subList(1, words.size() - 1);
+        if (!List.of("large", "teams", "light", "realtime").containsAll(flags)) return;
 
         var game = new Game(this);
+        var bomberman = new BombermanModule(flags.contains("large") ? this.largeArenas : this.arenas);
+        if (flags.contains("teams")) bomberman.setTeams(TEAM_COUNT);
+        bomberman.setReplayDirectory(this.getReplayDirectory());
+        bomberman.setStatsStore(this.stats);
+        bomberman.setSnapshotStore(this.snapshots);
+
+        // a light game keeps bombs and powerups out of the world as entities
+        bomberman.setVirtualPieces(flags.contains("light"));
+        bomberman.setBotCount(bots);
+
+        // a realtime game keeps its pace even when the server lags
+        if (flags.contains("realtime")) game.getClock().setMode(GameClock.Mode.WALL);
+
+        game.addModule(bomberman, false);
         game.setState(new CountdownState());
         Bukkit.getOnlinePlayers().forEach(game::addPlayer);
 
+        this.track(game, bomberman);
+        game.start();
+    }
+
+    /**
+     * @return the directory matches are recorded into
+     */
+    public Path getReplayDirectory() {
+        return this.getDataFolder().toPath().resolve("replays");
+    }
+
+    @EventHandler
+    public void onReplay(PlayerChatEvent e) {
+        // "replay <name>"
+        var words = e.getMessage().split("\\s+");
+        if (words.length != 2 || !words[0].equalsIgnoreCase("replay")) return;
+
+        var name = words[1].endsWith(".bmr") ? words[1] : words[1] + ".bmr";
+        var path = this.getReplayDirectory().resolve(name).normalize();
+        if (!path.startsWith(this.getReplayDirectory().normalize()) || !Files.isRegularFile(path)) {
+            e.getPlayer().sendMessage("No replay named " + words[1] + ".");
+            return;
+        }
+
+        ReplayReader reader;
+        try {
+            reader = ReplayReader.open(path);
+        } catch (IOException | RuntimeException ex) {
+            e.getPlayer().sendMessage("Couldn't open replay " + words[1] + ": " + ex.getMessage());
+            return;
+        }
+
+        var game = new Game(this);
+        var bomberman = new BombermanModule(reader.getWidth() > 19 || reader.getHeight() > 19 ? this.largeArenas : this.arenas);
+
+        // replays show pieces as markers
+        bomberman.setVirtualPieces(true);
+
+        game.addModule(bomberman, false);
+        game.setState(new ReplayState(reader));
+        game.addPlayer(e.getPlayer());
         game.start();
     }
 
+    @EventHandler
+    public void onStats(PlayerChatEvent e) {
+        // "stats" or "stats export"
+        var message = e.getMessage().toLowerCase();
+        if (!message.equals("stats") && !message.equals("stats export")) return;
+        if (this.stats == null) {
+            e.getPlayer().sendMessage("Stats aren't available.");
+            return;
+        }
+
+        if (message.equals("stats")) {
+            var mine = this.stats.get(e.getPlayer().getUniqueId());
+            if (mine == null) e.getPlayer().sendMessage("You haven't finished a match yet.");
+            else e.getPlayer().sendMessage(String.format("%d matches, %d wins, %d eliminations, %d deaths, %d bombs, %d powerups",
+                    mine.getMatches(), mine.getWins(), mine.getEliminations(), mine.getDeaths(), mine.getBombs(), mine.getPowerups()));
+            return;
+        }
+
+        // the export is written off the server thread; Bukkit's player methods aren't safe to call from there
+        var player = e.getPlayer();
+        var path = this.getDataFolder().toPath().resolve("stats").resolve("export-" + System.currentTimeMillis() + ".ndjson");
+        this.stats.export(path).whenComplete((count, ex) -> Bukkit.getScheduler().runTask(this, () -> {
+            if (ex != null) player.sendMessage("Couldn't export stats: " + ex.getMessage());
+            else player.sendMessage("Exported stats of " + count + " players to " + path.getFileName() + ".");
+        }));
+    }
+
+    @EventHandler
+    public void onLeaderboard(PlayerChatEvent e) {
+        // "top <wins|kd|streak>"
+        var words = e.getMessage().toLowerCase().split("\\s+");
+        if (words.length != 2 || !words[0].equals("top") || this.stats == null) return;
+
+        var board = switch (words[1]) {
+            case "wins" -> Leaderboard.Board.WINS;
+            case "kd" -> Leaderboard.Board.KD;
+            case "streak" -> Leaderboard.Board.STREAK;
+            default -> null;
+        };
+
+        if (board == null) return;
+
+        var leaderboard = this.stats.getLeaderboard(board);
+        var player = e.getPlayer();
+        player.sendMessage(ChatColor.GOLD + board.getTitle());
+
+        var rank = 0;
+        for (var entry : leaderboard.top(LEADERBOARD_SIZE)) {
+            player.sendMessage(String.format("%d. %s %s", ++rank, this.stats.get(entry.id).getName(), formatScore(board, entry.score)));
+        }
+
+        var mine = leaderboard.getRank(player.getUniqueId());
+        if (mine > LEADERBOARD_SIZE) {
+            player.sendMessage(String.format("%sYou: %d. %s", ChatColor.GRAY, mine,
+                    formatScore(board, leaderboard.getScore(player.getUniqueId()))));
+        }
+    }
+
+    private static String formatScore(Leaderboard.Board board, int score) {
+        return board == Leaderboard.Board.KD ? String.format("%.2f", score / 1000.0) : Integer.toString(score);
+    }
+
+    @EventHandler
+    public void onArenaStats(PlayerChatEvent e) {
+        if (!e.getMessage().equalsIgnoreCase("arena stats")) return;
+
+        for (var pool : List.of(this.arenas, this.largeArenas)) {
+            e.getPlayer().sendMessage(String.format("Arena pool (%s): %d arenas, %d ready, %d hits, %d misses",
+                    pool == this.arenas ? "regular" : "large",
+                    pool.getSize(), pool.getReadyCount(), pool.getHits(), pool.getMisses()));
+        }
+    }
+
 }
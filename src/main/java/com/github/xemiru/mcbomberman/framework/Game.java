@@ -103,6 +103,9 @@ public class Game {
                                     if (s.getGame() != e.getGame()) return;
                             }
 
+                            // rate limited input never reaches a handler
+                            if (!Game.this.inputs.admit(event)) return;
+
                             Game.this.withGameExceptionHandler(() -> {
                                 try {
                                     eventMethod.invoke(item, event);
@@ -149,6 +152,9 @@ public class Game {
 
     private Consumer<Exception> exHandler = defaultHandler;
     private final Set<UUID> players = new HashSet<>();
+    private final GameMessenger messenger = new GameMessenger(this);
+    private final GameClock clock = new GameClock();
+    private final InputLimiter inputs = new InputLimiter(this);
     private int runnerTask = -1;
     private JavaPlugin plugin;
 
@@ -160,6 +166,34 @@ public class Game {
         this.plugin = plugin;
     }
 
+    /**
+     * Returns the {@link JavaPlugin} that owns this {@link Game}.
+     */
+    public JavaPlugin getPlugin() {
+        return this.plugin;
+    }
+
+    /**
+     * Returns the clock this {@link Game}'s timers are measured on.
+     */
+    public GameClock getClock() {
+        return this.clock;
+    }
+
+    /**
+     * Returns the channel for sending chat messages and titles to the players of this {@link Game}.
+     */
+    public GameMessenger getMessenger() {
+        return this.messenger;
+    }
+
+    /**
+     * Returns the rate limits on input from the players of this {@link Game}.
+     */
+    public InputLimiter getInputLimiter() {
+        return this.inputs;
+    }
+
     /**
      * Returns the number of players currently associated with this {@link Game}.
      */
@@ -250,6 +284,7 @@ public class Game {
         }
 
         players.remove(player.getUniqueId());
+        this.inputs.forget(uid);
     }
 
     /**
@@ -319,6 +354,7 @@ public class Game {
                 this.enableState(this.state);
                 activeGames.add(this);
                 this.runnerTask = Bukkit.getScheduler().scheduleSyncRepeatingTask(this.plugin, () -> {
+                    this.clock.advance();
                     this.modules.values().forEach(mod -> {
                         if (!mod.enabled) return;
                         withGameExceptionHandler(() -> withModuleCallback(mod.module::tick));
@@ -329,6 +365,7 @@ public class Game {
                     }
 
                     if (this.changingState) this.changeRunningState();
+                    this.messenger.flush();
                 }, 0, 1);
             } catch (Exception e) {
                 exHandler.accept(e);
@@ -350,7 +387,9 @@ public class Game {
             try {
                 // TODO more graceful exit?
                 this.disableState(true, true, true);
+                this.messenger.flush();
             } finally {
+                this.inputs.reset();
                 this.state = null;
                 activeGames.remove(this);
             }
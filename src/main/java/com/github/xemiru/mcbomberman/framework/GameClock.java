@@ -0,0 +1,66 @@
+package com.github.xemiru.mcbomberman.framework;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * The clock a {@link Game} measures its timers on, in ticks.
+ * <p/>
+ * By default the clock advances by one each server tick, so timers stretch when the server lags. In
+ * {@link Mode#WALL} mode it instead follows {@link System#nanoTime()}, advancing by however many 50ms ticks have
+ * passed; after a slow server tick the clock jumps ahead, and anything scheduled on it catches up in the same tick.
+ */
+public class GameClock {
+
+    public enum Mode {
+        /**
+         * The clock advances by one each server tick.
+         */
+        TICKS,
+        /**
+         * The clock follows wall-clock time, at 20 ticks per second.
+         */
+        WALL
+    }
+
+    /**
+     * The length of a tick at full speed, in nanoseconds.
+     */
+    public static final long NANOS_PER_TICK = 50_000_000L;
+
+    private Mode mode = Mode.TICKS;
+    private int now = 0;
+    private int base = 0;
+    private long origin;
+
+    /**
+     * @return the current time, in ticks
+     */
+    public int now() {
+        return this.now;
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Sets how this clock advances. The current time is kept.
+     */
+    public void setMode(@Nonnull Mode mode) {
+        this.mode = Objects.requireNonNull(mode);
+        this.base = this.now;
+        this.origin = System.nanoTime();
+    }
+
+    /**
+     * Advances this clock. Called by the owning {@link Game} at the start of every server tick.
+     */
+    void advance() {
+        this.now = switch (this.mode) {
+            case TICKS -> this.now + 1;
+            case WALL -> Math.max(this.now, this.base + (int) ((System.nanoTime() - this.origin) / NANOS_PER_TICK));
+        };
+    }
+
+}
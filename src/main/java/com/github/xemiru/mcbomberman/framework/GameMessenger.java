@@ -0,0 +1,88 @@
+package com.github.xemiru.mcbomberman.framework;
+
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The outbound chat and title channel of a {@link Game}.
+ * <p/>
+ * Messages only reach the players associated with the game, participants and spectators alike. Nothing is sent when a
+ * message is queued; instead, every message queued during a tick is sent together when the game flushes its messenger
+ * at the end of the tick. Chat lines from the same tick are merged into a single message, and since a title replaces
+ * whichever title is showing, only the last title queued in a tick is sent.
+ */
+public class GameMessenger {
+
+    private final Game game;
+    private final List<String> lines = new ArrayList<>();
+
+    private String title, subtitle;
+    private int fadeIn, stay, fadeOut;
+
+    GameMessenger(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Queues a chat message.
+     *
+     * @param message the message
+     */
+    public void send(@Nonnull String message) {
+        Objects.requireNonNull(message);
+        this.lines.add(message);
+    }
+
+    /**
+     * Queues a chat message, formatted once for every recipient.
+     *
+     * @param format the format string, as used by {@link String#format(String, Object...)}
+     * @param args the format arguments
+     */
+    public void sendf(@Nonnull String format, Object... args) {
+        this.send(String.format(format, args));
+    }
+
+    /**
+     * Queues a title, replacing any title queued earlier in the same tick.
+     *
+     * @param title the title, or an empty string
+     * @param subtitle the subtitle, or an empty string
+     * @param fadeIn ticks to fade in over
+     * @param stay ticks to stay for
+     * @param fadeOut ticks to fade out over
+     */
+    public void title(@Nonnull String title, @Nonnull String subtitle, int fadeIn, int stay, int fadeOut) {
+        this.title = Objects.requireNonNull(title);
+        this.subtitle = Objects.requireNonNull(subtitle);
+        this.fadeIn = fadeIn;
+        this.stay = stay;
+        this.fadeOut = fadeOut;
+    }
+
+    /**
+     * Sends everything queued since the last flush. Called by the owning {@link Game} at the end of every tick.
+     */
+    public void flush() {
+        if (this.lines.isEmpty() && this.title == null) return;
+
+        var chat = this.lines.isEmpty() ? null : String.join("\n", this.lines);
+        var title = this.title;
+        var subtitle = this.subtitle;
+        this.game.forEachPlayer(p -> this.deliver(p, chat, title, subtitle));
+
+        this.lines.clear();
+        this.title = null;
+        this.subtitle = null;
+    }
+
+    private void deliver(Player player, String chat, String title, String subtitle) {
+        if (chat != null) player.sendMessage(chat);
+        if (title != null) player.sendTitle(title, subtitle, this.fadeIn, this.stay, this.fadeOut);
+    }
+
+}
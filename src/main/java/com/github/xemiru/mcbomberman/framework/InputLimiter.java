@@ -0,0 +1,155 @@
+package com.github.xemiru.mcbomberman.framework;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.player.PlayerEvent;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Rate limits the input players of a {@link Game} can send it.
+ * <p/>
+ * Each limited event type gives every player a token bucket, holding up to a set number of tokens and refilled at a set
+ * rate on the game's {@link GameClock}. Before a game hands a player's event to its states and modules, the event
+ * takes a token from that player's bucket; if none are left, the event is rejected and no handler of the game sees it.
+ * Rejected events are cancelled when they can be, so a rejected click has no effect on the world either. An event is
+ * only charged once, however many handlers the game has for it.
+ * <p/>
+ * Limits apply to an event's exact type, and only to players associated with the game.
+ */
+public class InputLimiter {
+
+    private static class Limit {
+        private final int capacity;
+        private final double refill;
+        private final Map<UUID, Bucket> buckets = new HashMap<>();
+        private long rejected = 0;
+
+        private Limit(int capacity, double refill) {
+            this.capacity = capacity;
+            this.refill = refill;
+        }
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private int filledAt;
+    }
+
+    private final Game game;
+    private final Map<Class<? extends Event>, Limit> limits = new HashMap<>();
+    private final Map<UUID, Long> rejectedBy = new HashMap<>();
+
+    private Event lastEvent;
+    private boolean lastAdmitted;
+
+    InputLimiter(Game game) {
+        this.game = game;
+    }
+
+    /**
+     * Limits how often each player may send an event.
+     *
+     * @param type the exact type of the event
+     * @param capacity the most events a player can send in a burst
+     * @param refill how many events a player regains per tick
+     */
+    public void setLimit(@Nonnull Class<? extends PlayerEvent> type, int capacity, double refill) {
+        Objects.requireNonNull(type);
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1.");
+        if (refill <= 0) throw new IllegalArgumentException("Refill rate must be positive.");
+
+        this.limits.put(type, new Limit(capacity, refill));
+    }
+
+    /**
+     * Stops limiting an event.
+     *
+     * @param type the exact type of the event
+     */
+    public void removeLimit(@Nonnull Class<? extends PlayerEvent> type) {
+        this.limits.remove(Objects.requireNonNull(type));
+    }
+
+    /**
+     * @return how many events of a type were rejected since the limit was set
+     */
+    public long getRejected(@Nonnull Class<? extends PlayerEvent> type) {
+        var limit = this.limits.get(Objects.requireNonNull(type));
+        return limit == null ? 0 : limit.rejected;
+    }
+
+    /**
+     * @return how many of a player's events were rejected while they were in the game
+     */
+    public long getRejected(@Nonnull Player player) {
+        return this.rejectedBy.getOrDefault(player.getUniqueId(), 0L);
+    }
+
+    /**
+     * Checks whether an event may be handed to the game's handlers, taking a token if it is limited. Called by the
+     * owning {@link Game} before every handler; repeated calls for the same event return the first answer.
+     */
+    boolean admit(Event event) {
+        if (event == this.lastEvent) return this.lastAdmitted;
+
+        this.lastEvent = event;
+        this.lastAdmitted = this.charge(event);
+        return this.lastAdmitted;
+    }
+
+    private boolean charge(Event event) {
+        if (this.limits.isEmpty() || !(event instanceof PlayerEvent e)) return true;
+
+        var limit = this.limits.get(event.getClass());
+        if (limit == null) return true;
+
+        var uid = e.getPlayer().getUniqueId();
+        if (!this.game.containsPlayer(uid)) return true;
+
+        var now = this.game.getClock().now();
+        var bucket = limit.buckets.get(uid);
+        if (bucket == null) {
+            bucket = new Bucket();
+            bucket.tokens = limit.capacity;
+            bucket.filledAt = now;
+            limit.buckets.put(uid, bucket);
+        } else if (now > bucket.filledAt) {
+            bucket.tokens = Math.min(limit.capacity, bucket.tokens + (now - bucket.filledAt) * limit.refill);
+            bucket.filledAt = now;
+        }
+
+        if (bucket.tokens >= 1) {
+            bucket.tokens--;
+            return true;
+        }
+
+        limit.rejected++;
+        this.rejectedBy.merge(uid, 1L, Long::sum);
+        if (event instanceof Cancellable c) c.setCancelled(true);
+        return false;
+    }
+
+    /**
+     * Forgets a player's buckets and rejection count. Called by the owning {@link Game} when the player leaves it.
+     */
+    void forget(UUID player) {
+        for (var limit : this.limits.values()) limit.buckets.remove(player);
+        this.rejectedBy.remove(player);
+    }
+
+    /**
+     * Refills every bucket and forgets every player's rejection count. Called by the owning {@link Game} when it stops.
+     */
+    void reset() {
+        for (var limit : this.limits.values()) limit.buckets.clear();
+        this.rejectedBy.clear();
+        this.lastEvent = null;
+    }
+
+}
@@ -0,0 +1,303 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Material;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only file of {@link ArenaLayout}s, each optionally with its own {@link Palette}, accessed through a memory
+ * mapping.
+ * <p/>
+ * <h1>Format</h1>
+ * All values are big-endian. A catalog begins with the magic number {@code BMAC}, a version byte and the number of
+ * layouts, followed by an index of (long offset, int length) pairs locating each layout record within the file.
+ * <p/>
+ * A layout record holds, in order:
+ * <ul>
+ *     <li>the magic number {@code BMAL} and a version byte;</li>
+ *     <li>the layout's seed, as a long;</li>
+ *     <li>its width and height, as shorts;</li>
+ *     <li>a palette: a byte holding the number of materials (0 or 3), then each material's name as a short length
+ *     followed by UTF-8 bytes, in the order floor, wall, soft wall;</li>
+ *     <li>a short holding the number of spawns, then each spawn's tile index (y * width + x) as an int;</li>
+ *     <li>the tiles, row by row, packed four to a byte starting from the low bits, as 0 (empty), 1 (soft) or 2
+ *     (solid);</li>
+ *     <li>a CRC32 of every preceding byte of the record, as an int.</li>
+ * </ul>
+ * Records are read straight out of the mapping, so any layout can be read without parsing or copying the rest of the
+ * file.
+ */
+public class ArenaCatalog implements Closeable {
+
+    private static final int CATALOG_MAGIC = 0x424D4143; // BMAC
+    private static final int LAYOUT_MAGIC = 0x424D414C; // BMAL
+    private static final byte VERSION = 1;
+
+    private static final int CATALOG_HEADER = 4 + 1 + 4;
+    private static final int INDEX_ENTRY = 8 + 4;
+
+    // offset of the width within a record
+    private static final int LAYOUT_DIMENSIONS = 4 + 1 + 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    private ArenaCatalog(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.capacity() < CATALOG_HEADER || buffer.getInt(0) != CATALOG_MAGIC)
+            throw new IllegalArgumentException("File is not an arena catalog.");
+        if (buffer.get(4) != VERSION)
+            throw new IllegalArgumentException("Unsupported arena catalog version " + buffer.get(4) + ".");
+
+        this.size = buffer.getInt(5);
+        if (this.size < 0 || CATALOG_HEADER + (long) this.size * INDEX_ENTRY > buffer.capacity())
+            throw new IllegalArgumentException("Arena catalog index is truncated.");
+    }
+
+    /**
+     * Opens a catalog file.
+     *
+     * @param path the path of the catalog
+     * @return the catalog
+     * @throws IOException if the file couldn't be opened or mapped
+     */
+    public static ArenaCatalog open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ArenaCatalog(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a catalog file holding the given layouts, none with a palette of their own, replacing any existing file.
+     *
+     * @param path the path to write to
+     * @param layouts the layouts to store
+     * @throws IOException if the file couldn't be written
+     */
+    public static void write(Path path, List<ArenaLayout> layouts) throws IOException {
+        write(path, layouts, Collections.nCopies(layouts.size(), null));
+    }
+
+    /**
+     * Writes a catalog file holding the given layouts, replacing any existing file.
+     *
+     * @param path the path to write to
+     * @param layouts the layouts to store
+     * @param palettes the palette of each layout, by index, or null where a layout has none
+     * @throws IOException if the file couldn't be written
+     */
+    public static void write(Path path, List<ArenaLayout> layouts, List<Palette> palettes) throws IOException {
+        if (palettes.size() != layouts.size())
+            throw new IllegalArgumentException("Expected a palette, or null, for each of the " + layouts.size() + " layouts.");
+
+        var records = new ByteBuffer[layouts.size()];
+        for (int i = 0; i < records.length; i++) records[i] = encode(layouts.get(i), palettes.get(i));
+
+        var header = ByteBuffer.allocate(CATALOG_HEADER + records.length * INDEX_ENTRY);
+        header.putInt(CATALOG_MAGIC).put(VERSION).putInt(records.length);
+
+        long offset = header.capacity();
+        for (var record : records) {
+            header.putLong(offset).putInt(record.remaining());
+            offset += record.remaining();
+        }
+
+        header.flip();
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            for (var record : records) while (record.hasRemaining()) channel.write(record);
+        }
+    }
+
+    /**
+     * @return the number of layouts in this catalog
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the width of a layout without reading the rest of it.
+     */
+    public int getWidth(int index) {
+        return this.buffer.getShort((int) this.offset(index) + LAYOUT_DIMENSIONS);
+    }
+
+    /**
+     * Returns the height of a layout without reading the rest of it.
+     */
+    public int getHeight(int index) {
+        return this.buffer.getShort((int) this.offset(index) + LAYOUT_DIMENSIONS + 2);
+    }
+
+    /**
+     * Reads a layout from this catalog. This method may be called from any thread.
+     *
+     * @param index the index of the layout
+     * @return the layout
+     * @throws IllegalStateException if the layout's record is corrupt
+     */
+    public ArenaLayout read(int index) {
+        return decode(this.record(index));
+    }
+
+    /**
+     * Reads the palette a layout should be built from. This method may be called from any thread.
+     *
+     * @param index the index of the layout
+     * @return the layout's palette, or null if it has none of its own
+     * @throws IllegalStateException if the layout's record is corrupt
+     */
+    public Palette readPalette(int index) {
+        var record = this.record(index).position(LAYOUT_DIMENSIONS + 4);
+        var materials = new Material[record.get()];
+        for (int i = 0; i < materials.length; i++) {
+            var name = new byte[record.getShort()];
+            record.get(name);
+            try {
+                materials[i] = Material.valueOf(new String(name, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Arena layout " + index + " names an unknown material.", e);
+            }
+        }
+
+        return materials.length == 3 ? new Palette(materials[0], materials[1], materials[2]) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private long offset(int index) {
+        if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException(index);
+        return this.buffer.getLong(CATALOG_HEADER + index * INDEX_ENTRY);
+    }
+
+    /**
+     * @return a layout's record, with its checksum verified
+     */
+    private ByteBuffer record(int index) {
+        var offset = (int) this.offset(index);
+        var length = this.buffer.getInt(CATALOG_HEADER + index * INDEX_ENTRY + 8);
+        if (length < 4 || offset < 0 || (long) offset + length > this.buffer.capacity())
+            throw new IllegalStateException("Arena layout " + index + " lies outside the catalog.");
+
+        var record = this.buffer.slice(offset, length);
+        var crc = new CRC32();
+        crc.update(record.slice(0, length - 4));
+        if ((int) crc.getValue() != record.getInt(length - 4))
+            throw new IllegalStateException("Arena layout " + index + " is corrupt (checksum mismatch).");
+
+        return record;
+    }
+
+    static ByteBuffer encode(ArenaLayout layout, Palette palette) {
+        var width = layout.getWidth();
+        var height = layout.getHeight();
+
+        byte[][] names = new byte[0][];
+        if (palette != null) {
+            names = new byte[][]{
+                    palette.getFloorTile().name().getBytes(StandardCharsets.UTF_8),
+                    palette.getWallTile().name().getBytes(StandardCharsets.UTF_8),
+                    palette.getSoftWallTile().name().getBytes(StandardCharsets.UTF_8)
+            };
+        }
+
+        var paletteSize = 1;
+        for (var name : names) paletteSize += 2 + name.length;
+
+        var tileBytes = (width * height + 3) / 4;
+        var spawns = layout.getSpawnCount();
+        var buf = ByteBuffer.allocate(LAYOUT_DIMENSIONS + 4 + paletteSize + 2 + spawns * 4 + tileBytes + 4);
+
+        buf.putInt(LAYOUT_MAGIC).put(VERSION).putLong(layout.getSeed());
+        buf.putShort((short) width).putShort((short) height);
+
+        buf.put((byte) names.length);
+        for (var name : names) buf.putShort((short) name.length).put(name);
+
+        buf.putShort((short) spawns);
+        for (int i = 0; i < spawns; i++) buf.putInt(layout.getSpawnTile(i));
+
+        var packed = 0;
+        for (int i = 0; i < width * height; i++) {
+            var bits = switch (layout.getSpace(i % width, i / width)) {
+                case EMPTY -> 0;
+                case SOFT -> 1;
+                case SOLID -> 2;
+            };
+
+            packed |= bits << ((i % 4) * 2);
+            if (i % 4 == 3) {
+                buf.put((byte) packed);
+                packed = 0;
+            }
+        }
+
+        if ((width * height) % 4 != 0) buf.put((byte) packed);
+
+        var crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+
+        return buf.flip();
+    }
+
+    static ArenaLayout decode(ByteBuffer record) {
+        if (record.getInt() != LAYOUT_MAGIC) throw new IllegalStateException("Record is not an arena layout.");
+        if (record.get() != VERSION) throw new IllegalStateException("Unsupported arena layout version.");
+
+        var seed = record.getLong();
+        var width = (int) record.getShort();
+        var height = (int) record.getShort();
+        if (width < 1 || height < 1) throw new IllegalStateException("Arena layout has invalid dimensions " + width + "x" + height + ".");
+
+        // the palette is read separately, by readPalette
+        var materials = record.get();
+        for (int i = 0; i < materials; i++) record.position(record.position() + 2 + record.getShort(record.position()));
+
+        var spawnCount = (int) record.getShort();
+        if (spawnCount < 0 || record.remaining() < spawnCount * 4 + (width * height + 3) / 4 + 4)
+            throw new IllegalStateException("Arena layout is shorter than its dimensions and spawns require.");
+
+        var spawns = new int[spawnCount];
+        for (int i = 0; i < spawns.length; i++) {
+            spawns[i] = record.getInt();
+            if (spawns[i] < 0 || spawns[i] >= width * height)
+                throw new IllegalStateException("Arena layout has spawn " + i + " outside of it, at tile " + spawns[i] + ".");
+        }
+
+        var tiles = new Space[width * height];
+        var packed = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            if (i % 4 == 0) packed = record.get();
+            tiles[i] = switch ((packed >> ((i % 4) * 2)) & 0b11) {
+                case 1 -> Space.SOFT;
+                case 2 -> Space.SOLID;
+                default -> Space.EMPTY;
+            };
+        }
+
+        return new ArenaLayout(seed, width, height, tiles, spawns);
+    }
+
+}
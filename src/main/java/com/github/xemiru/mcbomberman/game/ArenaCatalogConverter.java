@@ -0,0 +1,89 @@
+package com.github.xemiru.mcbomberman.game;
+
+import com.github.xemiru.mcbomberman.util.Pair;
+import org.bukkit.Material;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts arenas written in the text format into an {@link ArenaCatalog}.
+ * <p/>
+ * Each arena in a text file starts with a line holding its width and height, optionally followed by the names of its
+ * floor, wall and soft wall materials. The next {@code height} lines hold its rows, written with the characters
+ * described by {@link Space}; short rows are padded with empty spaces. Arenas are separated by blank
+ * lines.
+ * <p/>
+ * Usage: {@code ArenaCatalogConverter <output catalog> <input file>...}
+ */
+public class ArenaCatalogConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ArenaCatalogConverter <output catalog> <input file>...");
+            System.exit(1);
+        }
+
+        var layouts = new ArrayList<ArenaLayout>();
+        var palettes = new ArrayList<Palette>();
+        for (int i = 1; i < args.length; i++) {
+            for (var arena : parse(Files.readAllLines(Path.of(args[i])))) {
+                layouts.add(arena.a);
+                palettes.add(arena.b);
+            }
+        }
+
+        ArenaCatalog.write(Path.of(args[0]), layouts, palettes);
+        System.out.printf("Wrote %d arenas to %s%n", layouts.size(), args[0]);
+    }
+
+    /**
+     * Parses every arena in a text file.
+     *
+     * @param lines the lines of the file
+     * @return the arenas, each paired with its palette, or null if it names none
+     */
+    public static List<Pair<ArenaLayout, Palette>> parse(List<String> lines) {
+        var layouts = new ArrayList<Pair<ArenaLayout, Palette>>();
+        var i = 0;
+        while (i < lines.size()) {
+            if (lines.get(i).isBlank()) {
+                i++;
+                continue;
+            }
+
+            var header = lines.get(i).trim().split("\\s+");
+            if (header.length != 2 && header.length != 5)
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected \"width height [floor wall soft]\".");
+
+            var width = Integer.parseInt(header[0]);
+            var height = Integer.parseInt(header[1]);
+            if (i + height >= lines.size())
+                throw new IllegalArgumentException("Line " + (i + 1) + ": arena has fewer than " + height + " rows.");
+
+            var init = new StringBuilder(width * height);
+            for (int y = 1; y <= height; y++) {
+                var row = lines.get(i + y);
+                if (row.length() > width)
+                    throw new IllegalArgumentException("Line " + (i + y + 1) + ": row is wider than " + width + ".");
+
+                init.append(row);
+                init.append(" ".repeat(width - row.length()));
+            }
+
+            var layout = ArenaLayout.parse(width, height, init.toString());
+            Palette palette = null;
+            if (header.length == 5)
+                palette = new Palette(Material.valueOf(header[2]), Material.valueOf(header[3]), Material.valueOf(header[4]));
+
+            layouts.add(new Pair<>(layout, palette));
+            i += height + 1;
+        }
+
+        return layouts;
+    }
+
+}
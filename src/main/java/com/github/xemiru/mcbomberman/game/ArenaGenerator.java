@@ -0,0 +1,244 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates {@link ArenaLayout}s from a seed.
+ * <p/>
+ * Spawn points are spread evenly along the edge of the arena, and every spawn is checked to ensure a player standing on
+ * it can walk out of the blast of a bomb placed at their feet. Soft walls around spawns that fail the check are cleared
+ * until it passes.
+ * <p/>
+ * Generated layouts are cached by seed, so a match can be reproduced by generating with the same seed again.
+ */
+public class ArenaGenerator {
+
+    public enum SolidPattern {
+        /**
+         * No solid walls.
+         */
+        NONE,
+        /**
+         * A solid wall on every other tile of every other row.
+         */
+        PILLARS,
+        /**
+         * Like {@link #PILLARS}, with every other pillar removed.
+         */
+        SPARSE_PILLARS
+    }
+
+    /**
+     * The power of a player's first bomb.
+     */
+    public static final int FIRST_BOMB_POWER = 1;
+
+    /**
+     * The farthest, in tiles, a player at the slowest speed is expected to walk before their first bomb detonates.
+     */
+    public static final int ESCAPE_DISTANCE = 4;
+
+    private static final int CACHE_SIZE = 64;
+
+    private final int width, height;
+    private final double softDensity;
+    private final SolidPattern pattern;
+    private final int players;
+
+    private final Map<Long, ArenaLayout> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ArenaLayout> eldest) {
+            return this.size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * @param width the width of generated layouts, in tiles
+     * @param height the height of generated layouts, in tiles
+     * @param softDensity the chance of a free tile holding a soft wall, from 0 to 1
+     * @param pattern the arrangement of solid walls
+     * @param players the number of spawn points to place
+     * @throws IllegalArgumentException if the solid walls leave a spawn with no way out of its first blast
+     */
+    public ArenaGenerator(int width, int height, double softDensity, SolidPattern pattern, int players) {
+        if (width < 3 || height < 3) throw new IllegalArgumentException("Arenas must be at least 3x3.");
+        if (players < 1 || players > perimeter(width, height) / 2)
+            throw new IllegalArgumentException("Arena edge is too short to fairly place " + players + " spawns.");
+
+        this.width = width;
+        this.height = height;
+        this.softDensity = softDensity;
+        this.pattern = pattern;
+        this.players = players;
+
+        // clearing every soft wall in reach leaves only the solid walls, so a spawn that can't escape an arena with no
+        // soft walls at all can't escape any arena this generator builds
+        var tiles = new Space[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) tiles[y * width + x] = this.isSolid(x, y) ? Space.SOLID : Space.EMPTY;
+        }
+
+        var queue = new int[tiles.length];
+        var dist = new int[tiles.length];
+        var seen = new int[tiles.length];
+        var stamp = 0;
+        for (var spawn : this.placeSpawns(tiles)) {
+            if (!this.canEscape(tiles, spawn, queue, dist, seen, ++stamp))
+                throw new IllegalArgumentException("Pattern leaves the spawn at tile " + spawn + " no escape.");
+        }
+    }
+
+    /**
+     * Generates a layout, or returns the cached layout if this seed was recently generated.
+     *
+     * @param seed the seed
+     * @return the layout
+     */
+    public synchronized ArenaLayout generate(long seed) {
+        return this.cache.computeIfAbsent(seed, this::build);
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getPlayers() {
+        return this.players;
+    }
+
+    private ArenaLayout build(long seed) {
+        var random = new SplittableRandom(seed);
+        var tiles = new Space[this.width * this.height];
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                if (this.isSolid(x, y)) tiles[y * this.width + x] = Space.SOLID;
+                else tiles[y * this.width + x] = random.nextDouble() < this.softDensity ? Space.SOFT : Space.EMPTY;
+            }
+        }
+
+        var spawns = this.placeSpawns(tiles);
+        var queue = new int[tiles.length];
+        var dist = new int[tiles.length];
+        var seen = new int[tiles.length];
+        var stamp = 0;
+        for (var spawn : spawns) {
+            // widen the pocket around the spawn until the player can escape
+            var escaped = false;
+            for (int radius = 1; radius <= ESCAPE_DISTANCE && !escaped; radius++) {
+                this.clearSoft(tiles, spawn, radius);
+                escaped = this.canEscape(tiles, spawn, queue, dist, seen, ++stamp);
+            }
+
+            if (!escaped) throw new IllegalStateException("Spawn at tile " + spawn + " has no escape in layout " + seed + ".");
+        }
+
+        return new ArenaLayout(seed, this.width, this.height, tiles, spawns);
+    }
+
+    private boolean isSolid(int x, int y) {
+        return switch (this.pattern) {
+            case NONE -> false;
+            case PILLARS -> x % 2 == 1 && y % 2 == 1;
+            case SPARSE_PILLARS -> x % 2 == 1 && y % 2 == 1 && ((x / 2) + (y / 2)) % 2 == 0;
+        };
+    }
+
+    private static int perimeter(int width, int height) {
+        return 2 * (width - 1) + 2 * (height - 1);
+    }
+
+    private int perimeterTile(int p) {
+        var top = this.width - 1;
+        var right = top + this.height - 1;
+        var bottom = right + this.width - 1;
+
+        if (p < top) return p;
+        if (p < right) return (p - top) * this.width + this.width - 1;
+        if (p < bottom) return (this.height - 1) * this.width + (this.width - 1 - (p - right));
+        return (this.height - 1 - (p - bottom)) * this.width;
+    }
+
+    private int[] placeSpawns(Space[] tiles) {
+        var perimeter = perimeter(this.width, this.height);
+        var spawns = new int[this.players];
+        var taken = new boolean[perimeter];
+
+        for (int i = 0; i < this.players; i++) {
+            // skip forward past solid walls and other spawns
+            var p = (int) ((long) i * perimeter / this.players);
+            while (taken[p] || tiles[this.perimeterTile(p)] == Space.SOLID) p = (p + 1) % perimeter;
+
+            taken[p] = true;
+            spawns[i] = this.perimeterTile(p);
+        }
+
+        return spawns;
+    }
+
+    private void clearSoft(Space[] tiles, int tile, int radius) {
+        var tx = tile % this.width;
+        var ty = tile / this.width;
+        for (int y = Math.max(0, ty - radius); y <= Math.min(this.height - 1, ty + radius); y++) {
+            var span = radius - Math.abs(y - ty);
+            for (int x = Math.max(0, tx - span); x <= Math.min(this.width - 1, tx + span); x++) {
+                if (tiles[y * this.width + x] == Space.SOFT) tiles[y * this.width + x] = Space.EMPTY;
+            }
+        }
+    }
+
+    private boolean canEscape(Space[] tiles, int spawn, int[] queue, int[] dist, int[] seen, int stamp) {
+        var sx = spawn % this.width;
+        var sy = spawn / this.width;
+
+        // breadth-first over empty tiles, within walking distance
+        var head = 0;
+        var tail = 0;
+        queue[tail++] = spawn;
+        dist[spawn] = 0;
+        seen[spawn] = stamp;
+
+        while (head < tail) {
+            var tile = queue[head++];
+            var x = tile % this.width;
+            var y = tile / this.width;
+            if (!this.inBlast(tiles, sx, sy, x, y)) return true;
+            if (dist[tile] >= ESCAPE_DISTANCE) continue;
+
+            for (int d = 0; d < 4; d++) {
+                var nx = x + (d == 0 ? 1 : d == 1 ? -1 : 0);
+                var ny = y + (d == 2 ? 1 : d == 3 ? -1 : 0);
+                if (nx < 0 || ny < 0 || nx >= this.width || ny >= this.height) continue;
+
+                var next = ny * this.width + nx;
+                if (tiles[next] != Space.EMPTY || seen[next] == stamp) continue;
+                seen[next] = stamp;
+                dist[next] = dist[tile] + 1;
+                queue[tail++] = next;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean inBlast(Space[] tiles, int bx, int by, int x, int y) {
+        if (x != bx && y != by) return false;
+        var distance = Math.abs(x - bx) + Math.abs(y - by);
+        if (distance > FIRST_BOMB_POWER) return false;
+
+        // the blast stops at the first wall along its arm
+        var dx = Integer.signum(x - bx);
+        var dy = Integer.signum(y - by);
+        for (int i = 1; i < distance; i++) {
+            if (tiles[(by + dy * i) * this.width + bx + dx * i] != Space.EMPTY) return false;
+        }
+
+        return true;
+    }
+
+}
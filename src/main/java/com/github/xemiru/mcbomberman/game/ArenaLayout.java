@@ -0,0 +1,99 @@
+package com.github.xemiru.mcbomberman.game;
+
+/**
+ * An immutable arena layout: the initial space of every tile, and the tiles players spawn on.
+ * <p/>
+ * Layouts are either parsed from initialization strings, produced by an {@link ArenaGenerator}, in which case they
+ * carry the seed they were generated from, or read from an {@link ArenaCatalog}. Layouts say nothing of the materials
+ * they're built from; that is left to whoever renders them.
+ */
+public class ArenaLayout {
+
+    private final long seed;
+    private final int width, height;
+    private final Space[] tiles;
+    private final int[] spawns;
+
+    ArenaLayout(long seed, int width, int height, Space[] tiles, int[] spawns) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+        this.spawns = spawns;
+    }
+
+    /**
+     * Parses a layout from an initialization string, with a spawn point in each corner.
+     * <p/>
+     * The two tiles next to each corner are cleared so that players can escape their first bomb.
+     *
+     * @param width the width of the layout, in tiles
+     * @param height the height of the layout, in tiles
+     * @param init the initialization string, read row by row; see {@link Space} for the characters used
+     * @return the layout
+     */
+    public static ArenaLayout parse(int width, int height, String init) {
+        if (init.length() < width * height)
+            throw new IllegalArgumentException("Initialization string does not have enough characters for the grid size.");
+
+        var tiles = new Space[width * height];
+        for (int i = 0; i < tiles.length; i++) tiles[i] = Space.getSpace(init.charAt(i));
+
+        var spawns = new int[]{
+                0,
+                width - 1,
+                (height - 1) * width,
+                (height - 1) * width + width - 1
+        };
+
+        // ensure spawn locations are free
+        for (var spawn : spawns) {
+            var x = spawn % width;
+            var y = spawn / width;
+            var dx = x == 0 ? 1 : -1;
+            var dy = y == 0 ? 1 : -1;
+
+            tiles[spawn] = Space.EMPTY;
+            tiles[y * width + x + dx] = Space.EMPTY;
+            tiles[(y + dy) * width + x] = Space.EMPTY;
+        }
+
+        return new ArenaLayout(0, width, height, tiles, spawns);
+    }
+
+    /**
+     * @return the seed this layout was generated from, or 0 if it was parsed
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public Space getSpace(int x, int y) {
+        return this.tiles[y * this.width + x];
+    }
+
+    public int getSpawnCount() {
+        return this.spawns.length;
+    }
+
+    public int getSpawnX(int spawn) {
+        return this.spawns[spawn] % this.width;
+    }
+
+    public int getSpawnY(int spawn) {
+        return this.spawns[spawn] / this.width;
+    }
+
+    int getSpawnTile(int spawn) {
+        return this.spawns[spawn];
+    }
+
+}
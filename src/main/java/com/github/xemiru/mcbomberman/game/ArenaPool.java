@@ -0,0 +1,356 @@
+package com.github.xemiru.mcbomberman.game;
+
+import com.github.xemiru.mcbomberman.util.Pair;
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A pool of arenas, each occupying its own region of a world.
+ * <p/>
+ * Idle arenas are rendered in the background, one at a time, so that a {@link BombermanModule} leasing an arena at the
+ * start of a match usually receives one that is already complete. Released arenas are given a new layout and rendered
+ * again before they are handed out to another game.
+ * <p/>
+ * Regions are laid out on a square grid of chunk-aligned cells that are large enough to never share a chunk with a
+ * neighbouring arena. Each arena's chunks are loaded over several ticks before it is first rendered, and plugin chunk
+ * tickets keep them loaded for as long as the arena belongs to the pool, leased or not.
+ */
+public class ArenaPool {
+
+    /**
+     * The gap, in blocks, kept between the footprints of neighbouring arenas.
+     */
+    public static final int REGION_GAP = 16;
+
+    /**
+     * A reasonable number of blocks to write per tick while building arenas in the background.
+     */
+    public static final int DEFAULT_BLOCKS_PER_TICK = 4096;
+
+    /**
+     * An arena slot within an {@link ArenaPool}.
+     */
+    public class Arena {
+
+        private final int index;
+        private final Location origin;
+        private ChunkResidency chunks;
+        private BombermanGrid grid;
+        private GridRenderTask render;
+        private boolean leased = false;
+        private final List<Runnable> pending = new ArrayList<>();
+        private MatchHud hud;
+
+        private Arena(int index, Location origin) {
+            this.index = index;
+            this.origin = origin;
+        }
+
+        /**
+         * @return the index of this arena's region within its pool
+         */
+        public int getIndex() {
+            return this.index;
+        }
+
+        /**
+         * @return the grid currently occupying this arena's region
+         */
+        public BombermanGrid getGrid() {
+            return this.grid;
+        }
+
+        /**
+         * @return if this arena's grid has been fully rendered
+         */
+        public boolean isReady() {
+            return this.render != null && this.render.isDone();
+        }
+
+        /**
+         * @return the fraction of this arena's grid that has been rendered, from 0 to 1
+         */
+        public double getProgress() {
+            return this.render == null ? 0 : this.render.getProgress();
+        }
+
+        /**
+         * Runs a callback once this arena has been fully rendered, or immediately if it already has been.
+         *
+         * @param callback the callback
+         */
+        public void whenReady(Runnable callback) {
+            if (this.isReady()) callback.run();
+            else this.pending.add(callback);
+        }
+
+        /**
+         * @return the sidebar for matches played in this arena, kept for every lease
+         */
+        public MatchHud getHud() {
+            if (this.hud == null) this.hud = new MatchHud();
+            return this.hud;
+        }
+
+        /**
+         * Returns this arena to its pool.
+         */
+        public void release() {
+            ArenaPool.this.release(this);
+        }
+
+    }
+
+    private final Plugin plugin;
+    private final Location origin;
+    private final int width, height;
+    private final Palette palette;
+    private final Supplier<Pair<ArenaLayout, Palette>> layouts;
+    private final int budget;
+    private final int spacing;
+
+    private final List<Arena> arenas = new ArrayList<>();
+    private final Deque<Arena> buildQueue = new ArrayDeque<>();
+    private Arena building = null;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param plugin the plugin to schedule rendering under
+     * @param origin the northwest corner of the first arena's region
+     * @param width the maximum width of each arena, in tiles
+     * @param height the maximum height of each arena, in tiles
+     * @param palette the materials to build arenas from
+     * @param layouts a supplier of fresh layouts no larger than the given width and height, each paired with its own
+     *                palette to build it from instead of the given one, or null
+     * @param budget the maximum number of blocks written per tick while building arenas
+     */
+    public ArenaPool(
+            Plugin plugin,
+            Location origin,
+            int width, int height,
+            Palette palette,
+            Supplier<Pair<ArenaLayout, Palette>> layouts,
+            int budget
+    ) {
+        this.plugin = plugin;
+        this.origin = origin.clone();
+        this.width = width;
+        this.height = height;
+        this.palette = palette;
+        this.layouts = layouts;
+        this.budget = budget;
+
+        var footprint = Math.max(width, height) * 2 + 2 + REGION_GAP;
+        this.spacing = (footprint + 15) & ~15;
+    }
+
+    /**
+     * Adds idle arenas to this pool until it holds at least {@code count} arenas, and begins rendering them.
+     *
+     * @param count the number of arenas to prepare
+     */
+    public void prewarm(int count) {
+        while (this.arenas.size() < count) this.queueBuild(this.createArena());
+    }
+
+    /**
+     * Leases an arena from this pool.
+     * <p/>
+     * A completed idle arena is preferred; failing that, the idle arena closest to completion is taken and prioritized,
+     * and a new arena is created if none are idle. Callers should wait on {@link Arena#whenReady(Runnable)} before
+     * using the arena.
+     *
+     * @return the leased arena
+     */
+    public Arena lease() {
+        Arena best = null;
+        for (var arena : this.arenas) {
+            if (arena.leased) continue;
+            if (arena.isReady()) {
+                best = arena;
+                break;
+            }
+
+            if (best == null || arena.getProgress() > best.getProgress()) best = arena;
+        }
+
+        if (best != null && best.isReady()) {
+            this.hits++;
+        } else {
+            this.misses++;
+            if (best == null) {
+                best = this.createArena();
+                this.queueBuild(best);
+            }
+
+            this.prioritize(best);
+        }
+
+        best.leased = true;
+        return best;
+    }
+
+    /**
+     * Leases a particular arena from this pool, such as the one a match was played in before it was interrupted. If
+     * the arena is already leased, another is leased instead.
+     *
+     * @param index the index of the arena
+     * @return the leased arena
+     */
+    public Arena lease(int index) {
+        if (index < 0) throw new IllegalArgumentException("Arena index can't be negative.");
+
+        this.prewarm(index + 1);
+        var arena = this.arenas.get(index);
+        if (arena.leased) return this.lease();
+
+        if (arena.isReady()) {
+            this.hits++;
+        } else {
+            this.misses++;
+            this.prioritize(arena);
+        }
+
+        arena.leased = true;
+        return arena;
+    }
+
+    /**
+     * Returns an arena to this pool. The arena is given a new layout and rendered again in the background.
+     *
+     * @param arena the arena to release
+     */
+    public void release(Arena arena) {
+        if (!arena.leased) return;
+        arena.leased = false;
+        arena.pending.clear();
+        if (arena.hud != null) arena.hud.reset();
+
+        // a game may end before its arena was even finished
+        if (this.building == arena) {
+            if (arena.render != null) arena.render.cancel();
+            this.building = null;
+        }
+
+        this.queueBuild(arena);
+    }
+
+    /**
+     * Synchronously clears every arena in this pool from the world.
+     */
+    public void destroyAll() {
+        if (this.building != null && this.building.render != null) this.building.render.cancel();
+        this.building = null;
+        this.buildQueue.clear();
+
+        this.arenas.forEach(arena -> {
+            if (arena.hud != null) arena.hud.reset();
+            if (arena.grid != null) arena.grid.destroy();
+            if (arena.chunks != null) arena.chunks.release();
+            arena.grid = null;
+            arena.render = null;
+            arena.chunks = null;
+        });
+    }
+
+    /**
+     * @return the number of leases that received an already-completed arena
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of leases that had to wait for an arena to be built
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * @return the number of arenas in this pool
+     */
+    public int getSize() {
+        return this.arenas.size();
+    }
+
+    /**
+     * @return the number of arenas in this pool that are complete and not leased
+     */
+    public int getReadyCount() {
+        return (int) this.arenas.stream().filter(it -> !it.leased && it.isReady()).count();
+    }
+
+    private Arena createArena() {
+        var index = this.arenas.size();
+        var columns = Math.max(1, (int) Math.ceil(Math.sqrt(index + 1)));
+
+        // fill regions in square shells so the pool stays compact as it grows
+        var shell = columns - 1;
+        var offset = index - (shell * shell);
+        int cx, cz;
+        if (offset <= shell) {
+            cx = shell;
+            cz = offset;
+        } else {
+            cx = offset - shell - 1;
+            cz = shell;
+        }
+
+        var arena = new Arena(index, this.origin.clone().add(cx * this.spacing, 0, cz * this.spacing));
+        this.arenas.add(arena);
+        return arena;
+    }
+
+    private void queueBuild(Arena arena) {
+        var next = this.layouts.get();
+        var layout = next.a;
+        if (layout.getWidth() > this.width || layout.getHeight() > this.height)
+            throw new IllegalStateException("Layout is larger than the pool's arena regions.");
+
+        arena.grid = new BombermanGrid(layout, arena.origin.clone(), next.b != null ? next.b : this.palette);
+        arena.grid.setRegion(this.width, this.height);
+        arena.render = null;
+
+        if (!this.buildQueue.contains(arena)) this.buildQueue.add(arena);
+        if (this.building == null) this.buildNext();
+    }
+
+    private void prioritize(Arena arena) {
+        if (this.building == arena) return;
+        if (this.buildQueue.remove(arena)) this.buildQueue.addFirst(arena);
+    }
+
+    private void buildNext() {
+        var arena = this.buildQueue.poll();
+        this.building = arena;
+        if (arena == null) return;
+
+        var grid = arena.grid;
+        if (arena.chunks == null)
+            arena.chunks = new ChunkResidency(this.plugin, arena.origin.getWorld(), grid.getChunks());
+
+        // render only once the region is loaded, so block writes never trigger chunk loads
+        arena.chunks.acquire(ChunkResidency.DEFAULT_CHUNKS_PER_TICK, () -> {
+            if (this.building != arena || arena.grid != grid) return;
+
+            // a match cut short by a crash may have left pieces behind
+            grid.removeStrayPieces();
+            arena.render = grid.renderProgressively(this.plugin, this.budget, null, () -> {
+                this.building = null;
+                arena.pending.forEach(Runnable::run);
+                arena.pending.clear();
+                this.buildNext();
+            });
+        });
+    }
+
+}
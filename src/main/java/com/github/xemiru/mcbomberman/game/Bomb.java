@@ -0,0 +1,36 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.UUID;
+
+/**
+ * A bomb placed in a {@link MatchCore}.
+ */
+class Bomb {
+    public UUID entity;
+
+    /**
+     * The {@link PlayerSlots} slot of the participant who placed this bomb.
+     */
+    public int owner;
+    public int power, x, y;
+
+    /**
+     * The tick this bomb's own fuse runs out on, not counting chain reactions.
+     */
+    public int detonateAt;
+
+    /**
+     * If this bomb counts against its owner's bombs until it goes off or is removed.
+     */
+    boolean armed;
+
+    /**
+     * If this bomb is waiting in a {@link FuseWheel}.
+     */
+    boolean scheduled;
+
+    /**
+     * The tick whose {@link FuseWheel} slot this bomb is filed under while scheduled.
+     */
+    int dueAt;
+}
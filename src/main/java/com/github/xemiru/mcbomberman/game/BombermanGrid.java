@@ -1,182 +1,250 @@
 package com.github.xemiru.mcbomberman.game;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TNTPrimed;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.util.Vector;
+
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * An arena built in a world, showing a match played by its {@link MatchCore}.
+ * <p/>
+ * The grid owns the core and listens to it: walls are rewritten as they break, bombs and powerups are shown as entities
+ * or client-side blocks, and blasts are shown as effects. It also tracks which tile each body stands on.
+ */
+public class BombermanGrid {
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
+    /**
+     * The number of block layers an arena occupies: the floor, and two layers of tiles above it.
+     */
+    static final int LAYERS = 3;
 
-public class BombermanGrid {
+    private final MatchCore core;
+    private Location nwCorner;
+    private Location nwSpaceCorner;
+    private final int spaceX, spaceY, spaceZ;
+    private final Location scratch;
+
+    private int width, height;
+    private int regionWidth, regionHeight;
+    private Material floorTile, wallTile, softWallTile;
 
-    public enum Space {
-        /**
-         * Regular bombs can't pass through this space type.
-         * <p/>
-         * Represented as # in initialization strings.
-         */
-        SOLID('#'),
-        /**
-         * Fire will break this space type and occupy it.
-         * <p/>
-         * Represented as # in initialization strings.
-         */
-        SOFT('X'),
-        /**
-         * Nothing is in this space.
-         * <p/>
-         * Represented as the space character (' ') in initialization strings.
-         */
-        EMPTY(' ');
-
-        public final char rep;
-
-        Space(char rep) {
-            this.rep = rep;
+    private ArenaLayout layout;
+    private final TileOccupancy occupancy;
+    private final EffectBatcher effects;
+    private final Item[] items;
+    private final PieceDisplay pieces;
+    private boolean virtualPieces = false;
+    private ReplayRecorder recorder;
+
+    private final MatchCore.Events world = new MatchCore.Events() {
+        @Override
+        public void spaceChanged(int tile, Space space) {
+            renderSpace(tile % width, tile / width, space);
+            if (recorder != null) recorder.tile(tile, space);
         }
 
-        public static Space getSpace(char rep) {
-            for (var space : Space.values()) {
-                if (space.rep == rep) return space;
+        @Override
+        public void powerupChanged(int tile, Powerup powerup) {
+            if (recorder != null) recorder.powerup(tile, powerup);
+            if (virtualPieces) {
+                pieces.mark(tile);
+                return;
             }
 
-            throw new IllegalArgumentException("Unknown space representation \"" + rep + "\"");
+            if (items[tile] != null) items[tile].remove();
+            items[tile] = powerup == null ? null : dropItem(tile, powerup);
         }
-    }
 
-    public class Bomb {
-        int power, timer;
-    }
+        @Override
+        public void bombPlaced(Bomb bomb) {
+            if (virtualPieces) pieces.mark(bomb.y * width + bomb.x);
+        }
 
-    private Space[][] grid;
-    private Location nwCorner;
-    private Location nwSpaceCorner;
+        @Override
+        public void bombDetonated(Bomb bomb) {
+            effects.detonation(bomb.x, bomb.y);
+            if (virtualPieces) pieces.mark(bomb.y * width + bomb.x);
+        }
 
-    private int width, height;
-    private Material floorTile, wallTile, softWallTile;
+        @Override
+        public void bombRemoved(Bomb bomb) {
+            if (virtualPieces) pieces.mark(bomb.y * width + bomb.x);
+        }
 
-    public BombermanGrid(int width, int height, Location nwCorner, Material floorTile, Material wallTile, Material softWallTile, String init) {
-        if (init.length() < width * height)
-            throw new IllegalArgumentException("Initialization string does not have enough characters for the grid size.");
+        @Override
+        public void tileBlasted(int tile, Bomb cause) {
+            effects.blast(tile % width, tile / width);
+        }
+    };
 
-        this.width = width;
-        this.height = height;
-        this.softWallTile = softWallTile;
-        this.floorTile = floorTile;
-        this.wallTile = wallTile;
+    public BombermanGrid(int width, int height, Location nwCorner, Palette palette, String init) {
+        this(ArenaLayout.parse(width, height, init), nwCorner, palette);
+    }
+
+    public BombermanGrid(ArenaLayout layout, Location nwCorner, Palette palette) {
+        this.layout = layout;
+        this.width = layout.getWidth();
+        this.height = layout.getHeight();
+        this.regionWidth = this.width;
+        this.regionHeight = this.height;
+        this.softWallTile = palette.getSoftWallTile();
+        this.floorTile = palette.getFloorTile();
+        this.wallTile = palette.getWallTile();
 
         this.nwCorner = nwCorner;
         this.nwSpaceCorner = nwCorner.clone();
         nwSpaceCorner.add(1, 1, 1);
-
-        this.grid = new Space[height][width];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                var index = (y * height) + x;
-                this.grid[y][x] = Space.getSpace(init.charAt(index));
-            }
-        }
+        this.spaceX = nwSpaceCorner.getBlockX();
+        this.spaceY = nwSpaceCorner.getBlockY();
+        this.spaceZ = nwSpaceCorner.getBlockZ();
+        this.scratch = nwCorner.clone();
+
+        // arenas are built ahead of their matches; the module seeds the core's drops once a match starts in it
+        this.core = new MatchCore(layout, 0);
+        this.core.addListener(this.world);
+
+        this.occupancy = new TileOccupancy(this);
+        this.effects = new EffectBatcher(this);
+        this.items = new Item[width * height];
+        this.pieces = new PieceDisplay(this);
     }
 
     public void render() {
-        // clear space
-        this.destroy();
-
-        // nwcorner is the nw floor tile
-        var world = nwCorner.getWorld();
-        var nwx = nwCorner.getBlockX();
-        var nwy = nwCorner.getBlockY();
-        var nwz = nwCorner.getBlockZ();
-
-        // draw the walls
-        for (int y = 0; y < 3; y++) {
-            // corners
-            world.setType(nwx, nwy + y, nwz, wallTile);
-            world.setType(nwx + 1 + (width * 2), nwy + y, nwz, wallTile);
-            world.setType(nwx, nwy + y, nwz + 1 + (height * 2), wallTile);
-            world.setType(nwx + 1 + (width * 2), nwy + y, nwz + 1 + (height * 2), wallTile);
-
-            for (int i = 0; i < width * 2; i++) {
-                // east wall
-                world.setType(
-                        nwx + 1 + i,
-                        nwy + y,
-                        nwz,
-                        wallTile);
-
-                // west wall
-                world.setType(
-                        nwx + 1 + i,
-                        nwy + y,
-                        nwz + 1 + (height * 2),
-                        wallTile);
-            }
+        new GridRenderTask(this, false).runToCompletion();
+    }
 
-            for (int i = 0; i < height * 2; i++) {
-                // south wall
-                world.setType(
-                        nwx,
-                        nwy + y,
-                        nwz + 1 + i,
-                        wallTile);
-
-                // north wall
-                world.setType(
-                        nwx + 1 + (width * 2),
-                        nwy + y,
-                        nwz + 1 + i,
-                        wallTile);
-            }
+    /**
+     * Renders this grid over several ticks, writing at most {@code budget} blocks per tick.
+     *
+     * @param plugin the plugin to schedule rendering under
+     * @param budget the maximum number of blocks to write per tick
+     * @param progress a callback receiving the fraction of blocks written after each tick, or null
+     * @param done a callback to run once the arena is complete, or null
+     * @return the running task
+     */
+    public GridRenderTask renderProgressively(Plugin plugin, int budget, DoubleConsumer progress, Runnable done) {
+        var task = new GridRenderTask(this, false);
+        if (done != null) task.whenDone(done);
+        return task.start(plugin, budget, progress);
+    }
 
-        }
+    /**
+     * Clears this grid's blocks over several ticks, writing at most {@code budget} blocks per tick.
+     *
+     * @param plugin the plugin to schedule clearing under
+     * @param budget the maximum number of blocks to write per tick
+     * @param progress a callback receiving the fraction of blocks cleared after each tick, or null
+     * @param done a callback to run once the arena is cleared, or null
+     * @return the running task
+     */
+    public GridRenderTask destroyProgressively(Plugin plugin, int budget, DoubleConsumer progress, Runnable done) {
+        var task = new GridRenderTask(this, true);
+        if (done != null) task.whenDone(done);
+        return task.start(plugin, budget, progress);
+    }
 
-        // draw the floor
-        for (int z = 0; z < height * 2; z++)
-            for (int x = 0; x < width * 2; x++)
-                world.setType(nwx + 1 + x, nwy, nwz + 1 + z, floorTile);
+    /**
+     * Sets the size of the region this grid stands in, which may be larger than the grid itself. Rendering or clearing
+     * the grid covers the whole region, writing air around the grid, so whatever an earlier, larger grid left in the
+     * region is cleared away.
+     *
+     * @param width the width of the region, in tiles
+     * @param height the height of the region, in tiles
+     */
+    public void setRegion(int width, int height) {
+        if (width < this.width || height < this.height)
+            throw new IllegalArgumentException("Region must be at least as large as the grid.");
+
+        this.regionWidth = width;
+        this.regionHeight = height;
+    }
 
-        // draw the grid objects
-        for (int z = 0; z < height; z++)
-            for (int x = 0; x < width; x++)
-                setSpace(x, z, grid[z][x]);
+    /**
+     * Returns the chunks covered by this grid's region, packed with {@link ChunkResidency#pack(int, int)}.
+     */
+    public long[] getChunks() {
+        var minX = nwCorner.getBlockX() >> 4;
+        var minZ = nwCorner.getBlockZ() >> 4;
+        var maxX = (nwCorner.getBlockX() + getRegionWidth() - 1) >> 4;
+        var maxZ = (nwCorner.getBlockZ() + getRegionDepth() - 1) >> 4;
+
+        var chunks = new long[(maxX - minX + 1) * (maxZ - minZ + 1)];
+        var i = 0;
+        for (int z = minZ; z <= maxZ; z++)
+            for (int x = minX; x <= maxX; x++)
+                chunks[i++] = ChunkResidency.pack(x, z);
+
+        return chunks;
+    }
 
-        // ensure spawn locations are free
-        setSpace(1, 0, Space.EMPTY);
-        setSpace(0, 0, Space.EMPTY);
-        setSpace(0, 1, Space.EMPTY);
+    Location getNorthwestCorner() {
+        return this.nwCorner;
+    }
 
-        setSpace(width - 2, 0, Space.EMPTY);
-        setSpace(width - 1, 0, Space.EMPTY);
-        setSpace(width - 1, 1, Space.EMPTY);
+    int getFootprintWidth() {
+        return this.width * 2 + 2;
+    }
 
-        setSpace(0, height - 2, Space.EMPTY);
-        setSpace(0, height - 1, Space.EMPTY);
-        setSpace(1, height - 1, Space.EMPTY);
+    int getFootprintDepth() {
+        return this.height * 2 + 2;
+    }
 
-        setSpace(width - 2, height - 1, Space.EMPTY);
-        setSpace(width - 1, height - 1, Space.EMPTY);
-        setSpace(width - 1, height - 2, Space.EMPTY);
+    int getRegionWidth() {
+        return this.regionWidth * 2 + 2;
     }
 
-    private Space getSpace(int x, int y) {
-        if (x < 0 || x >= this.width) return Space.SOLID;
-        if (y < 0 || y >= this.height) return Space.SOLID;
+    int getRegionDepth() {
+        return this.regionHeight * 2 + 2;
+    }
+
+    /**
+     * Returns the material of a block in this grid's region, relative to the northwest corner of the arena's floor.
+     */
+    Material getBlockMaterial(int x, int y, int z) {
+        if (x >= getFootprintWidth() || z >= getFootprintDepth()) return Material.AIR;
+
+        // outer walls
+        if (x == 0 || z == 0 || x == getFootprintWidth() - 1 || z == getFootprintDepth() - 1) return wallTile;
+        if (y == 0) return floorTile;
 
-        return this.grid[y][x];
+        return switch (this.core.getSpace((x - 1) / 2, (z - 1) / 2)) {
+            case SOFT -> softWallTile;
+            case SOLID -> y == 1 ? wallTile : Material.BARRIER;
+            case EMPTY -> Material.AIR;
+        };
     }
 
-    private void setSpace(int x, int y, Space space) {
+    Material getFloorTile() {
+        return this.floorTile;
+    }
+
+    /**
+     * @return the core playing out the match in this arena
+     */
+    MatchCore getCore() {
+        return this.core;
+    }
+
+    Space getSpace(int x, int y) {
+        return this.core.getSpace(x, y);
+    }
+
+    private void renderSpace(int x, int y, Space space) {
         if (x < 0 || x >= this.width) throw new IndexOutOfBoundsException();
         if (y < 0 || y >= this.height) throw new IndexOutOfBoundsException();
 
-        var tileNw = getTileNwCorner(x, y);
-        var world = tileNw.getWorld();
-        var nwx = tileNw.getBlockX();
-        var nwy = tileNw.getBlockY();
-        var nwz = tileNw.getBlockZ();
+        var world = this.nwCorner.getWorld();
+        var nwx = getTileBlockX(x);
+        var nwy = this.spaceY;
+        var nwz = getTileBlockZ(y);
 
         var material = switch (space) {
             case SOFT -> softWallTile;
@@ -199,16 +267,37 @@ public class BombermanGrid {
             world.setType(nwx, nwy + 1, nwz + 1, Material.BARRIER);
             world.setType(nwx + 1, nwy + 1, nwz + 1, Material.BARRIER);
         }
-
-        this.grid[y][x] = space;
     }
 
     public Location getTileNwCorner(int x, int y) {
-        return this.nwSpaceCorner.clone().add(x * 2, 0, y * 2);
+        return new Location(this.nwCorner.getWorld(), getTileBlockX(x), this.spaceY, getTileBlockZ(y));
     }
 
     public Location getTileCenter(int x, int y) {
-        return this.getTileNwCorner(x, y).add(1, 0, 1);
+        return new Location(this.nwCorner.getWorld(), getTileCenterX(x), getTileCenterY(), getTileCenterZ(y));
+    }
+
+    /**
+     * @return the layout this grid was built from
+     */
+    public ArenaLayout getLayout() {
+        return this.layout;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getSpawnCount() {
+        return this.layout.getSpawnCount();
+    }
+
+    public Location getSpawnPoint(int spawn) {
+        return getTileCenter(this.layout.getSpawnX(spawn), this.layout.getSpawnY(spawn));
     }
 
     public Location getNorthwestCornerSpawn() {
@@ -227,117 +316,234 @@ public class BombermanGrid {
         return getTileCenter(width - 1, height - 1);
     }
 
-    public int[] getTilePositionOfBlock(Location loc) {
-        return this.getTilePositionOfBlock(loc.getBlockX(), loc.getBlockZ());
+    /**
+     * Returns the x coordinate of the tile containing a block's x coordinate. The result may lie outside the grid.
+     */
+    public int getTileXOfBlock(int blockX) {
+        return Math.floorDiv(blockX - this.spaceX, 2);
     }
 
-    public int[] getTilePositionOfBlock(int x, int z) {
-        var bx = x - this.nwSpaceCorner.getBlockX();
-        var bz = z - this.nwSpaceCorner.getBlockZ();
-        return new int[]{bx / 2, bz / 2};
+    /**
+     * Returns the y coordinate of the tile containing a block's z coordinate. The result may lie outside the grid.
+     */
+    public int getTileYOfBlock(int blockZ) {
+        return Math.floorDiv(blockZ - this.spaceZ, 2);
     }
 
-    public Set<UUID> bomb(int x, int y, int power) {
-        bombTile(x, y);
-        int minX = x;
-        int maxX = x;
-        int minY = y;
-        int maxY = y;
+    /**
+     * Returns the x coordinate of a tile's northwest block.
+     */
+    public int getTileBlockX(int x) {
+        return this.spaceX + (x * 2);
+    }
 
-        maxX += bombSpread(x, y, power, 0);
-        minX -= bombSpread(x, y, power, 1);
-        maxY += bombSpread(x, y, power, 2);
-        minY -= bombSpread(x, y, power, 3);
+    /**
+     * Returns the z coordinate of a tile's northwest block.
+     */
+    public int getTileBlockZ(int y) {
+        return this.spaceZ + (y * 2);
+    }
 
-        // find entities in the blast zone
-        Set<UUID> ents = new HashSet<>();
-        ents.addAll(getEntitiesInTiles(minX, y, maxX, y));
-        ents.addAll(getEntitiesInTiles(x, minY, x, maxY));
+    /**
+     * @return the bomb on a tile, or null
+     */
+    Bomb getBomb(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return null;
+        return this.core.getBomb(y * this.width + x);
+    }
 
-        return ents;
+    /**
+     * @return if this grid's bombs and powerups are kept without entities, and shown with {@link PieceDisplay}
+     */
+    public boolean isVirtualPieces() {
+        return this.virtualPieces;
     }
 
-    private Set<UUID> getEntitiesInTiles(int xmin, int ymin, int xmax, int ymax) {
-        var nw = getTileNwCorner(xmin, ymin);
-        var se = getTileNwCorner(xmax, ymax).add(2, 0, 2);
+    /**
+     * Sets whether bombs and powerups on this grid are kept without entities. Should be set before any are placed.
+     */
+    public void setVirtualPieces(boolean virtualPieces) {
+        this.virtualPieces = virtualPieces;
+    }
 
-        Set<UUID> entities = new HashSet<>();
-        nw.getWorld().getEntities().forEach(e -> {
-            var loc = e.getLocation();
-            var x = loc.getX();
-            var z = loc.getZ();
+    PieceDisplay getPieces() {
+        return this.pieces;
+    }
 
-            if (x >= nw.getX() && x <= se.getX() && z >= nw.getZ() && z <= se.getZ()) entities.add(e.getUniqueId());
-        });
+    /**
+     * @return the marker block shown for the piece on a tile, or null if it holds no piece
+     */
+    Material getPieceMarker(int tile) {
+        if (this.core.getBomb(tile) != null) return Material.TNT;
 
-        return entities;
+        var powerup = this.core.getPowerup(tile);
+        return powerup == null ? null : getMarker(powerup);
     }
 
-    private int bombSpread(int x, int y, int power, int direction) {
-        for (int i = 1; i <= power; i++) {
-            var cnt = switch (direction) {
-                case 0 -> bombTile(x + i, y);
-                case 1 -> bombTile(x - i, y);
-                case 2 -> bombTile(x, y + i);
-                default -> bombTile(x, y - i);
-            };
+    /**
+     * @return the item dropped for a powerup
+     */
+    private static Material getItem(Powerup powerup) {
+        return switch (powerup) {
+            case SPEED -> Material.LEATHER_BOOTS;
+            case POWER -> Material.FLINT_AND_STEEL;
+            case BOMBS -> Material.TNT;
+        };
+    }
 
-            if (!cnt) return i;
-        }
+    /**
+     * @return the floor block shown under a powerup when it isn't dropped as an item
+     */
+    private static Material getMarker(Powerup powerup) {
+        return switch (powerup) {
+            case SPEED -> Material.LIGHT_BLUE_CONCRETE;
+            case POWER -> Material.RED_CONCRETE;
+            case BOMBS -> Material.BLACK_CONCRETE;
+        };
+    }
 
-        return power;
+    /**
+     * @return the tile a tracked entity stood on when last sampled, or -1
+     */
+    int getTileOf(Entity entity) {
+        return this.occupancy.getTile(entity);
     }
 
-    private boolean bombTile(int x, int y) {
-        var loc = getTileCenter(x, y);
-        var expLoc = loc.clone().add(0, 1, 0);
-        loc.getWorld().createExplosion(expLoc, 0f, false, false);
+    /**
+     * @return the powerup lying on a tile, or null
+     */
+    Powerup getPowerup(int tile) {
+        return this.core.getPowerup(tile);
+    }
 
-        switch (getSpace(x, y)) {
-            case SOLID -> {
-                return false;
-            }
-            case SOFT -> {
-                setSpace(x, y, Space.EMPTY);
-                float rand = ThreadLocalRandom.current().nextFloat();
-                Material dropped = null;
-                if (rand >= 0.0 && rand < 0.25) {
-                    dropped = Material.LEATHER_BOOTS;
-                } else if (rand >= 0.25 && rand < 0.50) {
-                    dropped = Material.FLINT_AND_STEEL;
-                } else if (rand >= 0.50 && rand < 0.75) {
-                    dropped = Material.TNT;
-                }
-
-                if (dropped != null) {
-                    var plg = Bukkit.getPluginManager().getPlugin("bomberman");
-                    final Material finalDropped = dropped;
-                    Bukkit.getScheduler().scheduleSyncDelayedTask(plg, () -> {
-                        loc.getWorld().dropItemNaturally(loc, new ItemStack(finalDropped, 1));
-                    }, 10);
-                }
-
-                return false;
-            }
-            default -> {
-                return true;
+    /**
+     * Removes bombs and dropped items left in this grid's footprint by a match that ended without cleaning up, such as
+     * one cut short by a crash. The footprint's chunks should be loaded.
+     */
+    void removeStrayPieces() {
+        var world = this.nwCorner.getWorld();
+        var minX = this.nwCorner.getBlockX();
+        var minZ = this.nwCorner.getBlockZ();
+        for (var chunk : getChunks()) {
+            for (var ent : world.getChunkAt(ChunkResidency.unpackX(chunk), ChunkResidency.unpackZ(chunk)).getEntities()) {
+                if (!(ent instanceof TNTPrimed || ent instanceof Item)) continue;
+
+                var loc = ent.getLocation(this.scratch);
+                if (loc.getX() < minX || loc.getZ() < minZ || loc.getX() >= minX + getRegionWidth() || loc.getZ() >= minZ + getRegionDepth())
+                    continue;
+
+                ent.remove();
             }
         }
     }
 
-    public void destroy() {
-        var world = nwCorner.getWorld();
-        var nwx = nwCorner.getBlockX();
-        var nwy = nwCorner.getBlockY();
-        var nwz = nwCorner.getBlockZ();
-
-        for (int y = 0; y < 3; y++) {
-            for (int z = 0; z < height * 2 + 2; z++) {
-                for (int x = 0; x < width * 2 + 2; x++) {
-                    world.setType(nwx + x, nwy + y, nwz + z, Material.AIR);
-                }
-            }
+    /**
+     * Drops the item for a powerup at the center of a tile. The item stays put and can't be picked up; the core hands
+     * out powerups to whoever stands on their tile.
+     */
+    private Item dropItem(int tile, Powerup powerup) {
+        var loc = getTileCenter(tile % this.width, tile / this.width);
+        var item = loc.getWorld().dropItem(loc, new ItemStack(getItem(powerup), 1));
+        item.setVelocity(new Vector(0, 0, 0));
+        item.setPickupDelay(Short.MAX_VALUE);
+        return item;
+    }
+
+    /**
+     * Sets the recorder told about changes to walls and powerups on this grid, or null.
+     */
+    void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return a number that changes whenever walls, bombs or powerups on this grid change
+     */
+    int getVersion() {
+        return this.core.getVersion();
+    }
+
+    /**
+     * Returns a snapshot of this grid, reusing the last one if nothing has changed since.
+     *
+     * @param tick the current time on the game clock
+     */
+    GridSnapshot snapshot(int tick) {
+        return this.core.snapshot(tick);
+    }
+
+    /**
+     * @return the batcher collecting this grid's effects
+     */
+    public EffectBatcher getEffects() {
+        return this.effects;
+    }
+
+    /**
+     * @return the field of upcoming blasts over this grid
+     */
+    public DangerField getDanger() {
+        return this.core.getDanger();
+    }
+
+    /**
+     * Collects the players in this grid's world who are within a distance of its footprint.
+     */
+    void collectViewers(double distance, List<Player> out) {
+        var minX = this.nwCorner.getBlockX() - distance;
+        var minZ = this.nwCorner.getBlockZ() - distance;
+        var maxX = this.nwCorner.getBlockX() + getFootprintWidth() + distance;
+        var maxZ = this.nwCorner.getBlockZ() + getFootprintDepth() + distance;
+
+        for (var player : this.nwCorner.getWorld().getPlayers()) {
+            var loc = player.getLocation(this.scratch);
+            if (loc.getX() >= minX && loc.getX() <= maxX && loc.getZ() >= minZ && loc.getZ() <= maxZ) out.add(player);
         }
     }
 
+    double getTileCenterX(int x) {
+        return getTileBlockX(x) + 1;
+    }
+
+    double getTileCenterY() {
+        return this.spaceY;
+    }
+
+    double getTileCenterZ(int y) {
+        return getTileBlockZ(y) + 1;
+    }
+
+    /**
+     * Starts tracking which tile an entity stands on, so that it can be caught in blasts.
+     */
+    public void track(Entity entity) {
+        this.occupancy.track(entity);
+    }
+
+    public void untrack(Entity entity) {
+        this.occupancy.untrack(entity);
+    }
+
+    /**
+     * Samples the tile positions of every tracked entity. Should be called once per tick.
+     */
+    public void updateOccupancy() {
+        this.occupancy.update();
+    }
+
+    /**
+     * Returns the index (y * width + x) of the tile containing a world position, or -1 if it is outside the grid.
+     */
+    int getTileIndexAt(double x, double z) {
+        var tx = (int) Math.floor((x - this.spaceX) / 2);
+        var ty = (int) Math.floor((z - this.spaceZ) / 2);
+        if (tx < 0 || ty < 0 || tx >= this.width || ty >= this.height) return -1;
+
+        return ty * this.width + tx;
+    }
+
+    public void destroy() {
+        new GridRenderTask(this, true).runToCompletion();
+    }
+
 }
@@ -1,10 +1,13 @@
 package com.github.xemiru.mcbomberman.game;
 
 import com.github.xemiru.mcbomberman.framework.Game;
+import com.github.xemiru.mcbomberman.framework.GameClock;
+import com.github.xemiru.mcbomberman.framework.event.PlayerQuitGameEvent;
 import com.github.xemiru.mcbomberman.framework.module.GameModule;
 import org.bukkit.*;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
-import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.TNTPrimed;
 import org.bukkit.event.Event;
@@ -15,33 +18,125 @@ import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
-import org.bukkit.potion.PotionEffect;
-import org.bukkit.potion.PotionEffectType;
 import org.bukkit.util.Vector;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
-import java.util.UUID;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class BombermanModule implements GameModule {
 
-    public static final int BOMB_FUSE_TICKS = 20 * 3;
+    public static final int BOMB_FUSE_TICKS = MatchCore.BOMB_FUSE_TICKS;
+    public static final int BOMB_COOLDOWN_TICKS = MatchCore.BOMB_COOLDOWN_TICKS;
+
+    /**
+     * How often, in ticks, the sidebar's lines are rebuilt.
+     */
+    public static final int HUD_REFRESH_TICKS = 5;
+
+    /**
+     * How many interactions a player can send in a burst, and how many they regain per tick. Bukkit sends one for each
+     * hand per click, so this allows for roughly eight clicks a second.
+     */
+    public static final int INTERACT_BURST = 8;
+    public static final double INTERACT_REFILL = 0.8;
+
+    /**
+     * The most teams a match can be split into.
+     */
+    public static final int MAX_TEAMS = 8;
+    private static final ChatColor[] TEAM_COLORS = {
+            ChatColor.RED, ChatColor.BLUE, ChatColor.GREEN, ChatColor.YELLOW,
+            ChatColor.AQUA, ChatColor.LIGHT_PURPLE, ChatColor.GOLD, ChatColor.WHITE
+    };
+    private static final String[] TEAM_NAMES = {"Red", "Blue", "Green", "Yellow", "Aqua", "Pink", "Gold", "White"};
+
+    /**
+     * The most time this module's tick should take on average, with 64 participants in a large arena. Matches that go
+     * over are logged with a warning when they end.
+     */
+    public static final long TICK_COST_TARGET_NANOS = 2_500_000L;
+
+    /**
+     * How often a running match is snapshotted, in ticks.
+     */
+    public static final int SNAPSHOT_TICKS = 20 * 5;
+
+    private final ArenaPool pool;
 
     private Game game;
+    private int ticks = 0;
+    private int matchStart = -1;
+    private int hudAt = 0;
     private boolean allowActions = false;
-    private Map<UUID, BombermanPlayer> players = new HashMap<>();
-    private Map<UUID, Bomb> bombs = new HashMap<>();
+    private boolean frozen = false;
+    private final PlayerSlots players = new PlayerSlots();
+    private ArenaPool.Arena arena;
     private BombermanGrid grid;
+    private MatchCore core;
+    private EffectBatcher.Quality effectQuality = EffectBatcher.Quality.HIGH;
+    private boolean virtualPieces = false;
+    private final BotController bots = new BotController(this);
+    private int botCount = 0;
+    private int teams = 0;
+    private Path replayDirectory;
+    private ReplayRecorder recorder;
+    private StatsStore stats;
+    private boolean resultsRecorded = false;
+    private SnapshotStore snapshots;
+    private String snapshotName;
+    private int snapshotAt = 0;
+
+    // the cost of this module's ticks over the current match
+    private long costTotal = 0, costWorst = 0;
+    private int costTicks = 0;
+
+    private final MatchCore.Events events = new MatchCore.Events() {
+        @Override
+        public void bombPlaced(Bomb bomb) {
+            if (recorder != null) recorder.bomb(bomb, grid.getWidth());
+            spawnBomb(bomb, bomb.owner < players.size() ? players.bodies[bomb.owner] : null);
+        }
+
+        @Override
+        public void bombDetonated(Bomb bomb) {
+            if (recorder != null) recorder.detonate(bomb, grid.getWidth());
+            removeBomb(bomb);
+        }
+
+        @Override
+        public void bombRemoved(Bomb bomb) {
+            if (recorder != null) recorder.remove(bomb, grid.getWidth());
+            removeBomb(bomb);
+        }
+
+        @Override
+        public void powerupTaken(int slot, Powerup powerup) {
+            if (recorder != null) recorder.pickup(slot, powerup);
+        }
+
+        @Override
+        public void eliminated(int slot, Bomb bomb) {
+            printf("%s was eliminated by %s's bomb", players.getName(slot), players.getName(bomb.owner));
+            if (recorder != null) recorder.eliminate(slot, bomb.owner);
+
+            var body = players.bodies[slot];
+            grid.untrack(body);
+            if (body instanceof Player p) p.setGameMode(GameMode.SPECTATOR);
+            else body.remove();
+        }
+    };
 
-    private class Bomb {
-        public UUID owner;
-        public int power, x, y, fuse;
+    /**
+     * @param pool the pool to lease arenas from
+     */
+    public BombermanModule(ArenaPool pool) {
+        this.pool = pool;
     }
 
     @Override
     public void register(Game game, boolean persistent) {
         this.game = game;
+        game.getInputLimiter().setLimit(PlayerInteractEvent.class, INTERACT_BURST, INTERACT_REFILL);
     }
 
     @Override
@@ -60,111 +155,653 @@ public class BombermanModule implements GameModule {
 
     @Override
     public void reset() {
+        if (this.snapshots != null && this.snapshotName != null) this.snapshots.discard(this.snapshotName);
+        this.snapshotName = null;
+        this.stopRecording();
+        this.reportTickCost();
+        this.bots.clear();
+        for (int slot = 0; slot < this.players.size(); slot++) {
+            if (this.players.isBot(slot)) this.players.bodies[slot].remove();
+        }
+
         this.players.clear();
         this.clearBombs();
 
         this.allowActions = false;
-        if (this.grid != null) grid.destroy();
-        this.grid = null;
+        this.frozen = false;
+        this.matchStart = -1;
+        this.resultsRecorded = false;
+        this.releaseArena();
         System.out.println("bomb mod reset");
     }
 
     @Override
     public void tick() {
-        // disable jumping for each living player
-        this.game.forEachPlayer(p -> {
-            getPlayer(p).ifPresent(bp -> {
-                p.addPotionEffect(new PotionEffect(PotionEffectType.JUMP, 20 * 30, -10, true));
-                if (bp.bombCd > 0)
-                    bp.bombCd--;
-            });
-        });
+        var started = System.nanoTime();
+
+        // every timer is measured on the game clock, which may skip ahead after a slow tick
+        this.ticks = this.game.getClock().now();
+        if (this.grid != null) {
+            this.grid.updateOccupancy();
+            for (int slot = 0; slot < players.size(); slot++) {
+                // players who went offline without leaving the game can't be reached by any blast
+                var p = players.players[slot];
+                if (players.alive[slot] && p != null && !p.isOnline()) forfeit(slot);
+                if (players.alive[slot]) core.move(slot, grid.getTileOf(players.bodies[slot]));
+            }
+        }
 
-        // tick down bombs
-        bombs.keySet().removeIf(uid -> {
-            var bomb = bombs.get(uid);
-            bomb.fuse--;
-
-            if (bomb.fuse <= 0) {
-                var ent = Bukkit.getServer().getEntity(uid);
-                if (ent != null) ent.remove();
-
-                var owner = Bukkit.getPlayer(bomb.owner);
-                var affected = grid.bomb(bomb.x, bomb.y, bomb.power);
-                if (owner != null)
-                    getPlayer(owner).ifPresent(bp -> {
-                        bp.placedBombs--;
-                        bp.applyToPlayer(owner);
-                    });
-
-                for (var auid : affected) {
-                    var aent = Bukkit.getEntity(auid);
-                    if (aent instanceof Item) aent.remove();
-                    if (aent instanceof Player p) {
-                        getPlayer(p).ifPresent(bp -> {
-                            var oName = owner == null ? "<???>" : owner.getName();
-                            printf("%s was eliminated by %s's bomb", p.getName(), oName);
-                            players.remove(p.getUniqueId());
-                            p.setGameMode(GameMode.SPECTATOR);
-                        });
-                    }
-                }
+        if (this.recorder != null) this.recorder.begin(this.ticks);
+
+        // powerups are taken and bombs go off in the core, which reports back through this module's events
+        if (grid != null) {
+            bots.tick(grid, players, ticks, frozen, allowActions);
+            core.tick(ticks);
+        }
+
+        // push this tick's stat changes to each living player in one go
+        for (int slot = 0; slot < players.size(); slot++) {
+            var p = players.players[slot];
+            if (players.alive[slot] && p != null && p.isOnline()) players.syncs[slot].apply(p, players, slot, frozen, ticks);
+        }
 
-                return true;
+        if (arena != null) {
+            if (ticks >= hudAt) {
+                updateHud(arena.getHud());
+                hudAt = ticks + HUD_REFRESH_TICKS;
             }
 
-            return false;
-        });
+            arena.getHud().flush();
+        }
+
+        if (grid != null) {
+            if (grid.isVirtualPieces()) grid.getPieces().flush();
+            grid.getEffects().flush();
+            grid.getDanger().publish();
+            if (recorder != null) recorder.end();
+        }
+
+        if (ticks >= snapshotAt) saveSnapshot();
+
+        if (players.size() > 0) {
+            var cost = System.nanoTime() - started;
+            costTotal += cost;
+            costWorst = Math.max(costWorst, cost);
+            costTicks++;
+        }
+    }
+
+    private void reportTickCost() {
+        if (this.costTicks == 0) return;
+
+        var average = this.costTotal / this.costTicks;
+        var report = String.format("Match of %d participants: average tick %.3fms, worst %.3fms, target %.3fms",
+                this.players.size(), average / 1e6, this.costWorst / 1e6, TICK_COST_TARGET_NANOS / 1e6);
+
+        var logger = this.game.getPlugin().getLogger();
+        if (average > TICK_COST_TARGET_NANOS) logger.warning(report);
+        else logger.info(report);
+
+        this.costTotal = 0;
+        this.costWorst = 0;
+        this.costTicks = 0;
     }
 
     public void clearBombs() {
-        bombs.keySet().forEach(bombUid -> {
-            var ent = Bukkit.getEntity(bombUid);
-            if (ent != null) ent.remove();
-        });
+        if (this.core != null) this.core.clearBombs();
     }
 
     public void registerPlayer(Player player) {
-        var bp = new BombermanPlayer();
-        players.put(player.getUniqueId(), bp);
+        var slot = players.register(player);
         player.getInventory().setHeldItemSlot(0);
-        bp.applyToPlayer(player);
+        players.syncs[slot].apply(player, players, slot, this.frozen, this.ticks);
+        if (this.grid != null) this.grid.track(player);
+        if (this.arena != null) this.arena.getHud().show(player);
+    }
+
+    /**
+     * Adds a bot to the current match, standing at the center of the tile holding a location.
+     *
+     * @return the bot's slot
+     */
+    public int registerBot(Location spawn) {
+        if (this.grid == null) throw new IllegalStateException("Bots can only join once an arena is leased.");
+
+        var x = grid.getTileXOfBlock(spawn.getBlockX());
+        var y = grid.getTileYOfBlock(spawn.getBlockZ());
+        var name = "Bot " + (this.bots.size() + 1);
+        var body = spawn.getWorld().spawn(grid.getTileCenter(x, y), ArmorStand.class, stand -> {
+            stand.setCustomName(name);
+            stand.setCustomNameVisible(true);
+            stand.setGravity(false);
+            stand.setInvulnerable(true);
+            stand.setPersistent(false);
+        });
+
+        var slot = players.registerBot(body, name);
+        this.grid.track(body);
+        this.bots.add(slot, this.grid, x, y);
+        return slot;
+    }
+
+    /**
+     * @return how many bots join each match alongside the players
+     */
+    public int getBotCount() {
+        return this.botCount;
+    }
+
+    /**
+     * Sets how many bots join each match alongside the players, space permitting.
+     */
+    public void setBotCount(int botCount) {
+        if (botCount < 0) throw new IllegalArgumentException("Bot count cannot be negative.");
+        this.botCount = botCount;
+    }
+
+    public int getTeams() {
+        return this.teams;
+    }
+
+    /**
+     * Sets how many teams participants are split into, or 0 for everyone to play alone. Teammates still catch each
+     * other in their blasts, but aren't credited for it.
+     */
+    public void setTeams(int teams) {
+        if (teams == 1 || teams < 0 || teams > MAX_TEAMS)
+            throw new IllegalArgumentException("Matches need 0 or 2 to " + MAX_TEAMS + " teams.");
+
+        this.teams = teams;
+    }
+
+    /**
+     * Splits the registered participants into teams, giving each team a run of neighbouring spawns. Should be called
+     * once every participant of a match has been registered.
+     */
+    public void assignTeams() {
+        this.players.assignTeams(this.teams);
+    }
+
+    /**
+     * @return the name of a team, in its color
+     */
+    public static String getTeamName(int team) {
+        return TEAM_COLORS[team] + TEAM_NAMES[team];
+    }
+
+    /**
+     * Stops the worker threads bots plan on. Should be called when the plugin is disabled.
+     */
+    public static void shutdownBots() {
+        BotController.shutdown();
+    }
+
+    /**
+     * Finishes writing every replay still being written, then stops the thread writing them. Should be called when the
+     * plugin is disabled.
+     */
+    public static void shutdownReplays() {
+        ReplayRecorder.shutdown();
+    }
+
+    private void updateHud(MatchHud hud) {
+        hud.setTitle(ChatColor.GOLD + "Bomberman");
+
+        if (matchStart < 0) {
+            hud.setLine(0, "Starting...");
+        } else {
+            var seconds = (ticks - matchStart) / 20;
+            hud.setLine(0, String.format("Time %d:%02d", seconds / 60, seconds % 60));
+        }
+
+        hud.setLine(1, "Alive " + players.getLivingCount() + "/" + players.size());
+        hud.setLine(2, "");
+
+        // one line per team, then one per participant
+        var line = 3;
+        for (int team = 0; team < teams; team++) {
+            hud.setLine(line++, String.format("%s%s %s%d/%d",
+                    TEAM_COLORS[team], TEAM_NAMES[team], ChatColor.GRAY, players.getLivingCount(team), players.getTeamSize(team)));
+        }
+
+        if (teams > 0) hud.setLine(line++, " ");
+
+        // leave the last line to note any participants that don't fit
+        var room = MatchHud.MAX_LINES - line;
+        var shown = Math.min(players.size(), room - (players.size() > room ? 1 : 0));
+        for (int slot = 0; slot < shown; slot++) {
+            var team = players.team[slot];
+            hud.setLine(line++, String.format("%s%s %sS%d P%d B%d K%d",
+                    !players.alive[slot] ? ChatColor.DARK_GRAY : team >= 0 ? TEAM_COLORS[team] : ChatColor.WHITE,
+                    players.getName(slot),
+                    ChatColor.GRAY,
+                    players.speed[slot],
+                    players.power[slot],
+                    players.bombs[slot],
+                    players.eliminations[slot]));
+        }
+
+        if (shown < players.size()) hud.setLine(line++, "...and " + (players.size() - shown) + " more");
+        hud.clearFrom(line);
     }
 
     public boolean isAllowingActions() {
         return this.allowActions;
     }
 
+    /**
+     * Sets whether participants may place bombs. The match timer starts, and the match's drops are seeded, the first
+     * time actions are allowed.
+     */
     public void setAllowActions(boolean flag) {
         this.allowActions = flag;
+        if (flag && this.matchStart < 0) {
+            this.matchStart = this.ticks;
+            this.seedDrops();
+            this.startRecording();
+        }
+    }
+
+    /**
+     * Sets the directory matches are recorded into as replays, or null to not record them.
+     */
+    public void setReplayDirectory(Path directory) {
+        this.replayDirectory = directory;
+    }
+
+    /**
+     * @return the file the current match is being recorded to, or null
+     */
+    public Path getReplayPath() {
+        return this.recorder == null ? null : this.recorder.getPath();
     }
 
-    public Optional<BombermanPlayer> getPlayer(Player player) {
-        return Optional.ofNullable(this.players.get(player.getUniqueId()));
+    /**
+     * Sets the store match results are recorded into, or null to not record them.
+     */
+    public void setStatsStore(StatsStore stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Records the current match's results for every player taking part, once per match. Participants who are still
+     * alive win, or in a team game, everyone on a team with someone still alive. Bots aren't recorded.
+     */
+    public void recordResults() {
+        if (this.stats == null || this.resultsRecorded || this.matchStart < 0) return;
+        this.resultsRecorded = true;
+
+        var ended = System.currentTimeMillis();
+        for (int slot = 0; slot < this.players.size(); slot++) {
+            var player = this.players.getPlayer(slot);
+            if (player == null) continue;
+
+            this.stats.record(player.getUniqueId(), StatsStore.Stats.ofMatch(this.players.getName(slot), this.players, slot, ended));
+        }
+    }
+
+    /**
+     * Sets the store running matches are snapshotted into, or null to not snapshot them.
+     */
+    public void setSnapshotStore(SnapshotStore snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Snapshots the current match, if one is running, and hands the snapshot to the store. Called every
+     * {@link #SNAPSHOT_TICKS} ticks.
+     */
+    public void saveSnapshot() {
+        this.snapshotAt = this.ticks + SNAPSHOT_TICKS;
+        if (this.snapshots == null || this.matchStart < 0 || this.grid == null || this.players.size() == 0) return;
+
+        if (this.snapshotName == null)
+            this.snapshotName = String.format("%d-%d", System.currentTimeMillis(), this.arena.getIndex());
+        this.snapshots.save(this.snapshotName, this.snapshot());
+    }
+
+    /**
+     * Saves a last snapshot of the current match and detaches the snapshot store, so that the snapshot outlives the
+     * match. Called when the plugin is disabled, before games are stopped.
+     */
+    public void suspend() {
+        this.saveSnapshot();
+        this.snapshots = null;
+    }
+
+    /**
+     * @return the state of the current match
+     */
+    MatchSnapshot snapshot() {
+        var snapshot = new MatchSnapshot();
+        var state = this.game.getState();
+        snapshot.state = state == null ? "" : state.getClass().getSimpleName();
+        snapshot.virtualPieces = this.grid.isVirtualPieces();
+        snapshot.realtime = this.game.getClock().getMode() == GameClock.Mode.WALL;
+        snapshot.teams = this.teams;
+        snapshot.arenaIndex = this.arena.getIndex();
+        snapshot.width = this.grid.getWidth();
+        snapshot.height = this.grid.getHeight();
+        snapshot.elapsed = this.ticks - this.matchStart;
+        snapshot.seed = this.core.getSeed();
+        snapshot.rolls = this.core.getRolls();
+
+        snapshot.tiles = new byte[snapshot.width * snapshot.height];
+        for (int t = 0; t < snapshot.tiles.length; t++)
+            snapshot.tiles[t] = (byte) ReplayRecorder.code(this.grid.getSpace(t % snapshot.width, t / snapshot.width));
+
+        var count = 0;
+        for (int t = 0; t < snapshot.tiles.length; t++) if (this.core.getPowerup(t) != null) count++;
+        snapshot.powerupTiles = new int[count];
+        snapshot.powerups = new Powerup[count];
+        count = 0;
+        for (int t = 0; t < snapshot.tiles.length; t++) {
+            var powerup = this.core.getPowerup(t);
+            if (powerup == null) continue;
+            snapshot.powerupTiles[count] = t;
+            snapshot.powerups[count++] = powerup;
+        }
+
+        var bombs = this.core.getDanger().getBombs();
+        count = 0;
+        for (var bomb : bombs) if (bomb != null) count++;
+        snapshot.bombTiles = new int[count];
+        snapshot.bombOwners = new int[count];
+        snapshot.bombPowers = new int[count];
+        snapshot.bombFuses = new int[count];
+        count = 0;
+        for (int t = 0; t < bombs.length; t++) {
+            var bomb = bombs[t];
+            if (bomb == null) continue;
+            snapshot.bombTiles[count] = t;
+            snapshot.bombOwners[count] = bomb.owner;
+            snapshot.bombPowers[count] = bomb.power;
+            snapshot.bombFuses[count++] = Math.max(0, bomb.detonateAt - this.ticks);
+        }
+
+        var size = this.players.size();
+        snapshot.allocate(size);
+        for (int slot = 0; slot < size; slot++) {
+            var player = this.players.players[slot];
+            snapshot.ids[slot] = player == null ? null : player.getUniqueId();
+            snapshot.names[slot] = this.players.names[slot];
+            snapshot.alive[slot] = this.players.alive[slot];
+            snapshot.positions[slot] = this.players.alive[slot] ? this.grid.getTileOf(this.players.bodies[slot]) : -1;
+        }
+
+        System.arraycopy(this.players.team, 0, snapshot.team, 0, size);
+        System.arraycopy(this.players.speed, 0, snapshot.speed, 0, size);
+        System.arraycopy(this.players.power, 0, snapshot.power, 0, size);
+        System.arraycopy(this.players.bombs, 0, snapshot.bombs, 0, size);
+        System.arraycopy(this.players.eliminations, 0, snapshot.eliminations, 0, size);
+        System.arraycopy(this.players.totalBombs, 0, snapshot.totalBombs, 0, size);
+        System.arraycopy(this.players.totalPowerups, 0, snapshot.totalPowerups, 0, size);
+        return snapshot;
+    }
+
+    /**
+     * Puts a snapshotted match back into the current arena, which should be ready. Players who are offline or not in
+     * this module's game are left out, along with bots that had been eliminated and the bombs of anyone left out.
+     *
+     * @return false, changing nothing, if the snapshot's arena doesn't fit in the current one
+     */
+    boolean restore(MatchSnapshot snapshot) {
+        // the match carries on under the same snapshot, which is discarded along with the match
+        this.snapshotName = snapshot.name;
+        if (this.grid.getWidth() < snapshot.width || this.grid.getHeight() < snapshot.height) return false;
+
+        // tiles beyond the snapshot's arena are walled off
+        for (int y = 0; y < this.grid.getHeight(); y++) {
+            for (int x = 0; x < this.grid.getWidth(); x++) {
+                var inside = x < snapshot.width && y < snapshot.height;
+                var space = inside ? ReplayRecorder.space(snapshot.tiles[y * snapshot.width + x]) : Space.SOLID;
+                this.core.restoreSpace(y * this.grid.getWidth() + x, space);
+            }
+        }
+
+        for (int i = 0; i < snapshot.powerupTiles.length; i++)
+            this.core.restorePowerup(this.toGrid(snapshot, snapshot.powerupTiles[i]), snapshot.powerups[i]);
+
+        var center = this.grid.getTileCenter(this.grid.getWidth() / 2, this.grid.getHeight() / 2).add(0, 8, 0);
+        var slots = new int[snapshot.getParticipants()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = -1;
+            var tile = snapshot.positions[i] < 0 ? -1 : this.toGrid(snapshot, snapshot.positions[i]);
+            var at = tile < 0 ? center : this.grid.getTileCenter(tile % this.grid.getWidth(), tile / this.grid.getWidth());
+
+            var id = snapshot.ids[i];
+            if (id == null) {
+                if (!snapshot.alive[i] || tile < 0) continue;
+                slots[i] = this.registerBot(at);
+                this.players.names[slots[i]] = snapshot.names[i];
+                this.players.bodies[slots[i]].setCustomName(snapshot.names[i]);
+            } else {
+                var player = Bukkit.getPlayer(id);
+                if (player == null || !this.game.containsPlayer(player)) continue;
+
+                player.teleport(at);
+                this.registerPlayer(player);
+                slots[i] = this.players.getSlot(player);
+                if (!snapshot.alive[i] || tile < 0) {
+                    this.players.eliminate(slots[i]);
+                    this.grid.untrack(player);
+                    player.setGameMode(GameMode.SPECTATOR);
+                }
+            }
+
+            var slot = slots[i];
+            this.players.team[slot] = snapshot.team[i];
+            this.players.speed[slot] = snapshot.speed[i];
+            this.players.power[slot] = snapshot.power[i];
+            this.players.bombs[slot] = snapshot.bombs[i];
+            this.players.eliminations[slot] = snapshot.eliminations[i];
+            this.players.totalBombs[slot] = snapshot.totalBombs[i];
+            this.players.totalPowerups[slot] = snapshot.totalPowerups[i];
+        }
+
+        for (int i = 0; i < snapshot.bombTiles.length; i++) {
+            var owner = snapshot.bombOwners[i] < slots.length ? slots[snapshot.bombOwners[i]] : -1;
+            if (owner < 0) continue;
+
+            var tile = this.toGrid(snapshot, snapshot.bombTiles[i]);
+            var bomb = new Bomb();
+            bomb.x = tile % this.grid.getWidth();
+            bomb.y = tile / this.grid.getWidth();
+            bomb.owner = owner;
+            bomb.power = snapshot.bombPowers[i];
+            bomb.detonateAt = this.ticks + snapshot.bombFuses[i];
+            this.core.restoreBomb(bomb, true);
+        }
+
+        this.core.seed(snapshot.seed, snapshot.rolls);
+        this.matchStart = this.ticks - snapshot.elapsed;
+        this.teams = snapshot.teams;
+        return true;
+    }
+
+    /**
+     * @return the current grid's index of a tile of a snapshot's arena
+     */
+    private int toGrid(MatchSnapshot snapshot, int tile) {
+        return (tile / snapshot.width) * this.grid.getWidth() + tile % snapshot.width;
+    }
+
+    /**
+     * Seeds the drops of the match starting in the current arena, logging the seed so the match can be reproduced.
+     */
+    private void seedDrops() {
+        if (this.core == null) return;
+
+        var seed = ThreadLocalRandom.current().nextLong();
+        this.core.seed(seed, 0);
+        this.game.getPlugin().getLogger().info(String.format("Match in arena %d seeded with %d",
+                this.arena.getIndex(), seed));
+    }
+
+    /**
+     * Takes a participant that left out of the match.
+     */
+    private void forfeit(int slot) {
+        if (!this.players.alive[slot]) return;
+
+        this.players.forfeit(slot);
+        this.printf("%s left the match", this.players.getName(slot));
+        if (this.recorder != null) this.recorder.eliminate(slot, slot);
+
+        var body = this.players.bodies[slot];
+        if (this.grid != null) this.grid.untrack(body);
+        if (body instanceof Player p) {
+            if (this.arena != null) this.arena.getHud().hide(p);
+        } else {
+            body.remove();
+        }
+    }
+
+    private void startRecording() {
+        if (this.replayDirectory == null || this.grid == null || this.players.size() == 0) return;
+
+        var name = String.format("%d-%d.bmr", System.currentTimeMillis(), this.arena.getIndex());
+        var names = new String[this.players.size()];
+        for (int slot = 0; slot < names.length; slot++) names[slot] = this.players.getName(slot);
+
+        this.recorder = ReplayRecorder.start(this.replayDirectory.resolve(name), this.core, names, this.ticks,
+                this.game.getPlugin().getLogger());
+        this.grid.setRecorder(this.recorder);
+    }
+
+    private void stopRecording() {
+        if (this.recorder == null) return;
+
+        this.recorder.close();
+        if (this.grid != null) this.grid.setRecorder(null);
+        this.recorder = null;
+    }
+
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /**
+     * Sets whether living players are held in place, such as during a countdown.
+     */
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    /**
+     * @return the participants of the current match
+     */
+    public PlayerSlots getPlayers() {
+        return this.players;
+    }
+
+    /**
+     * @return if a player is taking part in the current match and hasn't been eliminated
+     */
+    public boolean isAlive(Player player) {
+        return this.players.getLivingSlot(player) >= 0;
     }
 
     public int getLivingPlayers() {
-        return this.players.size();
-    }
-
-    public BombermanGrid resetArena(
-            int width, int height,
-            Location nwCorner,
-            Material floorTile,
-            Material wallTile,
-            Material softWallTile,
-            String init
-    ) {
-        if (this.grid != null) this.grid.destroy();
-        this.grid = new BombermanGrid(width, height, nwCorner, floorTile, wallTile, softWallTile, init);
-        this.grid.render();
-        return this.grid;
+        return this.players.getLivingCount();
+    }
+
+    /**
+     * @return if the current match is over; see {@link Participants#isDecided()}
+     */
+    public boolean isDecided() {
+        return this.players.size() > 0 && this.players.isDecided();
+    }
+
+    /**
+     * Replaces the current arena with one leased from this module's {@link ArenaPool}.
+     *
+     * @param ready a callback to run once the arena is complete, or null
+     * @return the leased arena
+     */
+    public ArenaPool.Arena leaseArena(Runnable ready) {
+        return this.leaseArena(-1, ready);
+    }
+
+    /**
+     * Replaces the current arena with a particular one leased from this module's {@link ArenaPool}, or another if it
+     * is taken.
+     *
+     * @param index the index of the arena, or -1 for any
+     * @param ready a callback to run once the arena is complete, or null
+     * @return the leased arena
+     */
+    public ArenaPool.Arena leaseArena(int index, Runnable ready) {
+        this.releaseArena();
+        var arena = index < 0 ? this.pool.lease() : this.pool.lease(index);
+        this.arena = arena;
+        this.grid = arena.getGrid();
+        this.core = this.grid.getCore();
+        this.core.setParticipants(this.players);
+        this.core.addListener(this.events);
+        this.grid.getEffects().setQuality(this.effectQuality);
+        this.grid.setVirtualPieces(this.virtualPieces);
+        if (ready != null) arena.whenReady(ready);
+
+        return arena;
+    }
+
+    /**
+     * Sets the quality of effects shown in this module's arenas.
+     */
+    public void setEffectQuality(EffectBatcher.Quality quality) {
+        this.effectQuality = quality;
+        if (this.grid != null) this.grid.getEffects().setQuality(quality);
+    }
+
+    /**
+     * Sets whether bombs and powerups in this module's arenas are kept without entities. Bombs are then shown as
+     * client-side blocks, and powerups are picked up by walking onto their tile. Applies from the next leased arena.
+     */
+    public void setVirtualPieces(boolean virtualPieces) {
+        this.virtualPieces = virtualPieces;
+    }
+
+    /**
+     * @return if the current arena exists and has been fully built
+     */
+    public boolean isArenaReady() {
+        return this.arena != null && this.arena.isReady();
+    }
+
+    /**
+     * @return the fraction of the current arena that has been built, from 0 to 1
+     */
+    public double getArenaProgress() {
+        return this.arena == null ? 0 : this.arena.getProgress();
+    }
+
+    private void releaseArena() {
+        if (this.core != null) this.core.removeListener(this.events);
+        if (this.arena != null) this.arena.release();
+        this.arena = null;
+        this.grid = null;
+        this.core = null;
+    }
+
+    /**
+     * @return the game clock's time as of this module's last tick; bomb and danger ticks are measured on this clock
+     */
+    public int getTicks() {
+        return this.ticks;
     }
 
     public BombermanGrid getArena() {
         return this.grid;
     }
 
+    // players leaving mid-match forfeit it, so the rest can still finish it
+    @EventHandler
+    public void onQuit(PlayerQuitGameEvent e) {
+        var slot = this.players.getSlot(e.getPlayer());
+        if (slot >= 0) this.forfeit(slot);
+    }
+
     // shouldnt swap from first slot
     @EventHandler
     public void onHotbarSwap(PlayerItemHeldEvent e) {
@@ -179,19 +816,10 @@ public class BombermanModule implements GameModule {
         e.setCancelled(true);
     }
 
-    // powerups
+    // powerups are taken by standing on their tile, never picked up as items
     @EventHandler
     public void onPickupItem(EntityPickupItemEvent e) {
-        if (e.getEntity() instanceof Player p) {
-            if (!game.containsPlayer(p)) return;
-            e.setCancelled(true);
-            getPlayer(p).ifPresent(bp -> {
-                bp.addPowerup(e.getItem());
-                bp.applyToPlayer(p);
-
-                e.getItem().remove();
-            });
-        }
+        if (e.getEntity() instanceof Player p && game.containsPlayer(p)) e.setCancelled(true);
     }
 
     @EventHandler
@@ -202,33 +830,49 @@ public class BombermanModule implements GameModule {
         e.setUseItemInHand(Event.Result.DENY);
         e.setCancelled(true);
 
-        // bomb placement
-        if (e.getAction() == Action.RIGHT_CLICK_BLOCK) {
-            if (!this.isAllowingActions()) return;
-            getPlayer(e.getPlayer()).ifPresent(bp -> {
-                if (bp.placedBombs >= bp.bombs) return; // can't place any more bombs
-                if (bp.bombCd > 0) return; // wait for cooldown
-
-                var bloc = e.getClickedBlock().getRelative(e.getBlockFace()).getLocation();
-                var loc = grid.getTilePositionOfBlock(bloc);
-                var bomb = new Bomb();
-                bomb.x = loc[0];
-                bomb.y = loc[1];
-                bomb.owner = e.getPlayer().getUniqueId();
-                bomb.power = bp.power;
-                bomb.fuse = BOMB_FUSE_TICKS;
-
-                TNTPrimed ent = (TNTPrimed) bloc.getWorld().spawnEntity(grid.getTileCenter(bomb.x, bomb.y), EntityType.PRIMED_TNT, false);
-                bloc.getWorld().playSound(ent, Sound.BLOCK_GRASS_PLACE, 1f, 1f);
-                ent.setSource(e.getPlayer());
-                ent.setFuseTicks(Integer.MAX_VALUE);
-                ent.setVelocity(new Vector(0, 0.5, 0));
-                bombs.put(ent.getUniqueId(), bomb);
-                bp.placedBombs++;
-                bp.applyToPlayer(e.getPlayer());
-                bp.bombCd = 10;
-            });
-        }
+        // bomb placement; clicks before the match starts stop here
+        if (e.getAction() != Action.RIGHT_CLICK_BLOCK || !this.isAllowingActions()) return;
+        var slot = players.getLivingSlot(e.getPlayer());
+        if (slot < 0) return;
+
+        var block = e.getClickedBlock().getRelative(e.getBlockFace());
+        placeBomb(slot, grid.getTileXOfBlock(block.getX()), grid.getTileYOfBlock(block.getZ()));
+    }
+
+    /**
+     * Places a bomb for a participant, if they're allowed to.
+     *
+     * @param slot the participant's slot
+     * @param x the tile x to place at
+     * @param y the tile y to place at
+     * @return if a bomb was placed
+     */
+    boolean placeBomb(int slot, int x, int y) {
+        if (!this.isAllowingActions() || this.core == null) return false;
+
+        var bomb = this.core.placeBomb(slot, x, y);
+        if (bomb == null) return false;
+
+        grid.getEffects().placement(bomb.x, bomb.y);
+        return true;
+    }
+
+    private void spawnBomb(Bomb bomb, Entity source) {
+        if (grid.isVirtualPieces()) return;
+
+        var center = grid.getTileCenter(bomb.x, bomb.y);
+        TNTPrimed ent = (TNTPrimed) center.getWorld().spawnEntity(center, EntityType.PRIMED_TNT, false);
+        ent.setSource(source);
+        ent.setFuseTicks(Integer.MAX_VALUE);
+        ent.setVelocity(new Vector(0, 0.5, 0));
+        bomb.entity = ent.getUniqueId();
+    }
+
+    private void removeBomb(Bomb bomb) {
+        if (bomb.entity == null) return;
+
+        var ent = Bukkit.getEntity(bomb.entity);
+        if (ent != null) ent.remove();
     }
 
     // no placing blocks
@@ -238,12 +882,12 @@ public class BombermanModule implements GameModule {
         e.setCancelled(true);
     }
 
-    public static void print(String message) {
-        Bukkit.getServer().broadcastMessage(message);
+    public void print(String message) {
+        this.game.getMessenger().send(message);
     }
 
-    public static void printf(String format, Object... args) {
-        print(String.format(format, args));
+    public void printf(String format, Object... args) {
+        this.game.getMessenger().sendf(format, args);
     }
 
 }
@@ -0,0 +1,232 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * Drives the bots of a match.
+ * <p/>
+ * Bots decide where to go on a shared pool of worker threads, each planning against an immutable
+ * {@link GridSnapshot}; the server thread only hands out work and, on later ticks, picks up whichever plans have
+ * finished without waiting on the rest. A bot keeps following its plan until the grid's version changes or the plan
+ * runs out, so a quiet grid costs no planning at all, and every bot planning on the same version shares one snapshot.
+ * <p/>
+ * Bodies are moved by the server thread alone, one tile at a time; while a new plan is being made, a bot finishes
+ * walking onto the tile it is headed for and waits there, so the plan always starts where the bot will be.
+ */
+class BotController {
+
+    /**
+     * How far a player walks per tick for each point of walk speed, in blocks.
+     */
+    static final double WALK_BLOCKS_PER_TICK = 1.08;
+
+    /**
+     * How long a bot with nothing to do waits before planning again, in ticks.
+     */
+    static final int IDLE_REPLAN_TICKS = 10;
+
+    private static ExecutorService workers;
+
+    private static final class Bot {
+        final int slot;
+        double x, z;
+        float yaw;
+        int tile;
+        BotPlanner.Plan plan;
+        int step;
+        int retryAt;
+        Future<BotPlanner.Plan> pending;
+
+        Bot(int slot, double x, double z, int tile) {
+            this.slot = slot;
+            this.x = x;
+            this.z = z;
+            this.tile = tile;
+        }
+    }
+
+    private final BombermanModule module;
+    private final List<Bot> bots = new ArrayList<>();
+    private final Location scratch = new Location(null, 0, 0, 0);
+
+    // planning failures are logged once per match; a broken planner would otherwise flood the log every tick
+    private boolean failureLogged = false;
+
+    BotController(BombermanModule module) {
+        this.module = module;
+    }
+
+    /**
+     * Starts driving a bot, whose body stands at the center of a tile.
+     */
+    void add(int slot, BombermanGrid grid, int x, int y) {
+        this.bots.add(new Bot(slot, grid.getTileCenterX(x), grid.getTileCenterZ(y), y * grid.getWidth() + x));
+    }
+
+    int size() {
+        return this.bots.size();
+    }
+
+    /**
+     * Moves every living bot, and hands out or collects their plans.
+     *
+     * @param grid the grid the bots are in
+     * @param players the match's participants
+     * @param now the current time on the game clock
+     * @param frozen if bots should hold still
+     * @param canBomb if bots may place bombs
+     */
+    void tick(BombermanGrid grid, PlayerSlots players, int now, boolean frozen, boolean canBomb) {
+        for (var bot : this.bots) {
+            if (!players.alive[bot.slot]) continue;
+
+            if (bot.pending != null && bot.pending.isDone()) this.accept(bot, grid, players, now);
+
+            var ticksPerTile = ticksPerTile(players.getWalkSpeed(bot.slot));
+            if (bot.pending == null && this.needsPlan(bot, grid, now)) {
+                var ready = canBomb
+                        && players.placedBombs[bot.slot] < players.bombs[bot.slot]
+                        && now >= players.bombReadyAt[bot.slot];
+
+                var snapshot = grid.snapshot(now);
+                var start = bot.tile;
+                var power = players.power[bot.slot];
+                bot.pending = workers().submit(() -> BotPlanner.plan(snapshot, start, power, ready, ticksPerTile, now));
+            }
+
+            if (!frozen) this.move(bot, grid, players, 2.0 / ticksPerTile);
+        }
+    }
+
+    private boolean needsPlan(Bot bot, BombermanGrid grid, int now) {
+        if (bot.plan == null || bot.plan.version != grid.getVersion()) return true;
+        return bot.step >= bot.plan.path.length && now >= bot.retryAt;
+    }
+
+    private void accept(Bot bot, BombermanGrid grid, PlayerSlots players, int now) {
+        try {
+            bot.plan = bot.pending.get();
+        } catch (InterruptedException | ExecutionException e) {
+            if (!this.failureLogged) {
+                var cause = e instanceof ExecutionException ? e.getCause() : e;
+                var message = String.format("%s couldn't plan at tick %d of a match on layout %d, and will idle; further planning failures this match won't be logged.",
+                        players.getName(bot.slot), now, grid.getLayout().getSeed());
+                this.module.getGame().getPlugin().getLogger().log(Level.WARNING, message, cause);
+                this.failureLogged = true;
+            }
+
+            bot.plan = BotPlanner.Plan.IDLE;
+        }
+
+        bot.pending = null;
+        bot.step = 0;
+        bot.retryAt = now + (bot.plan.path.length == 0 && !bot.plan.bomb ? IDLE_REPLAN_TICKS : 0);
+    }
+
+    private void move(Bot bot, BombermanGrid grid, PlayerSlots players, double distance) {
+        var startX = bot.x;
+        var startZ = bot.z;
+        var width = grid.getWidth();
+
+        while (distance > 0) {
+            var tx = grid.getTileCenterX(bot.tile % width);
+            var tz = grid.getTileCenterZ(bot.tile / width);
+            var dx = tx - bot.x;
+            var dz = tz - bot.z;
+            var left = Math.sqrt(dx * dx + dz * dz);
+
+            if (left > distance) {
+                bot.x += dx / left * distance;
+                bot.z += dz / left * distance;
+                break;
+            }
+
+            bot.x = tx;
+            bot.z = tz;
+            distance -= left;
+
+            // at the center of a tile; carry on only if the plan is current
+            if (bot.pending != null || bot.plan == null) break;
+            if (bot.step >= bot.plan.path.length) {
+                if (bot.plan.bomb) {
+                    this.module.placeBomb(bot.slot, bot.tile % width, bot.tile / width);
+                    bot.plan = null;
+                }
+
+                break;
+            }
+
+            var next = bot.plan.path[bot.step];
+            var nx = next % width;
+            var ny = next / width;
+            if (grid.getSpace(nx, ny) != Space.EMPTY || grid.getBomb(nx, ny) != null) {
+                // something moved into the way since the plan was made
+                bot.plan = null;
+                break;
+            }
+
+            bot.tile = next;
+            bot.step++;
+        }
+
+        if (bot.x == startX && bot.z == startZ) return;
+
+        bot.yaw = (float) Math.toDegrees(Math.atan2(startX - bot.x, bot.z - startZ));
+        var body = players.bodies[bot.slot];
+        var loc = body.getLocation(this.scratch);
+        loc.setX(bot.x);
+        loc.setY(grid.getTileCenterY());
+        loc.setZ(bot.z);
+        loc.setYaw(bot.yaw);
+        body.teleport(loc);
+    }
+
+    /**
+     * Stops driving every bot, dropping any plans still being made.
+     */
+    void clear() {
+        for (var bot : this.bots) {
+            if (bot.pending != null) bot.pending.cancel(false);
+        }
+
+        this.bots.clear();
+        this.failureLogged = false;
+    }
+
+    /**
+     * @return how many ticks a body takes to cross a tile at a given walk speed
+     */
+    static int ticksPerTile(float walkSpeed) {
+        return Math.max(1, (int) Math.ceil(2 / (walkSpeed * WALK_BLOCKS_PER_TICK)));
+    }
+
+    private static synchronized ExecutorService workers() {
+        if (workers == null) {
+            var threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            workers = Executors.newFixedThreadPool(threads, task -> {
+                var thread = new Thread(task, "bomberman-bots");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return workers;
+    }
+
+    /**
+     * Stops the worker threads shared by every controller. They are started again when next needed.
+     */
+    static synchronized void shutdown() {
+        if (workers != null) workers.shutdownNow();
+        workers = null;
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.Arrays;
+
+/**
+ * Decides what a bot should do next, working only from a {@link GridSnapshot} so that it can run on any thread.
+ * <p/>
+ * In order of priority, a bot flees when its tile is about to be caught in a blast, walks to the nearest powerup, or
+ * walks to the nearest spot where a bomb would break a soft wall and places one there, as long as it can still escape
+ * that bomb's blast afterwards. Paths only cross tiles that no known blast will reach while the bot is on them.
+ */
+class BotPlanner {
+
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    /**
+     * How many spots to place a bomb at are checked for an escape before giving up.
+     */
+    static final int BOMB_CANDIDATES = 8;
+
+    /**
+     * What a bot should do: walk a path, then optionally place a bomb where it ends.
+     */
+    static final class Plan {
+        static final Plan IDLE = new Plan(new int[0], false, -1);
+
+        /**
+         * The tiles to walk through, not including the tile the bot started on.
+         */
+        final int[] path;
+        final boolean bomb;
+
+        /**
+         * The version of the grid this plan was made for.
+         */
+        final int version;
+
+        Plan(int[] path, boolean bomb, int version) {
+            this.path = path;
+            this.bomb = bomb;
+            this.version = version;
+        }
+    }
+
+    private final GridSnapshot grid;
+    private final int size;
+    private final int[] steps;
+    private final int[] parent;
+    private final int[] queue;
+    private final int[] blast;
+    private final int[] candidates = new int[BOMB_CANDIDATES];
+    private final int[] candidateSteps = new int[BOMB_CANDIDATES];
+
+    private BotPlanner(GridSnapshot grid) {
+        this.grid = grid;
+        this.size = grid.width * grid.height;
+        this.steps = new int[this.size];
+        this.parent = new int[this.size];
+        this.queue = new int[this.size];
+        this.blast = new int[this.size];
+    }
+
+    /**
+     * Plans a bot's next move.
+     *
+     * @param grid the grid to plan on
+     * @param start the tile the bot stands on
+     * @param power the power of the bot's bombs
+     * @param canBomb if the bot may place a bomb
+     * @param ticksPerTile how many ticks the bot takes to cross a tile
+     * @param now the current time on the game clock
+     * @return the plan
+     */
+    static Plan plan(GridSnapshot grid, int start, int power, boolean canBomb, int ticksPerTile, int now) {
+        return new BotPlanner(grid).decide(start, power, canBomb, ticksPerTile, now);
+    }
+
+    private Plan decide(int start, int power, boolean canBomb, int ticksPerTile, int now) {
+        Arrays.fill(this.blast, DangerField.SAFE);
+
+        var reached = this.search(start, ticksPerTile, now);
+
+        // get out of the way of any blast first
+        if (this.grid.getDanger(start) != DangerField.SAFE) {
+            for (int i = 0; i < reached; i++) {
+                if (this.isSafe(this.queue[i])) return this.pathTo(this.queue[i], false);
+            }
+
+            return Plan.IDLE;
+        }
+
+        for (int i = 1; i < reached; i++) {
+            var tile = this.queue[i];
+            if (this.grid.hasPowerup(tile) && this.isSafe(tile)) return this.pathTo(tile, false);
+        }
+
+        if (!canBomb) return Plan.IDLE;
+
+        // gather the candidates first, since each escape search reuses the queue and steps
+        var candidates = 0;
+        for (int i = 0; i < reached && candidates < BOMB_CANDIDATES; i++) {
+            var tile = this.queue[i];
+            if (!this.isSafe(tile) || !this.breaksWall(tile, power)) continue;
+
+            this.candidates[candidates] = tile;
+            this.candidateSteps[candidates++] = this.steps[tile];
+        }
+
+        for (int i = 0; i < candidates; i++) {
+            var tile = this.candidates[i];
+            if (this.canEscape(tile, power, now + this.candidateSteps[i] * ticksPerTile, ticksPerTile)) {
+                // search again to rebuild the path here
+                this.search(start, ticksPerTile, now);
+                return this.pathTo(tile, true);
+            }
+        }
+
+        return Plan.IDLE;
+    }
+
+    /**
+     * Finds every tile reachable from a tile without being caught in a blast along the way, nearest first.
+     *
+     * @return the number of tiles reached, which fill the start of the queue
+     */
+    private int search(int start, int ticksPerTile, int now) {
+        Arrays.fill(this.steps, -1);
+        this.steps[start] = 0;
+        this.parent[start] = -1;
+        this.queue[0] = start;
+
+        int head = 0, tail = 1;
+        while (head < tail) {
+            var tile = this.queue[head++];
+            var x = tile % this.grid.width;
+            var y = tile / this.grid.width;
+            for (int d = 0; d < 4; d++) {
+                var nx = x + DX[d];
+                var ny = y + DY[d];
+                if (nx < 0 || ny < 0 || nx >= this.grid.width || ny >= this.grid.height) continue;
+
+                var next = ny * this.grid.width + nx;
+                if (this.steps[next] >= 0 || !this.isOpen(next)) continue;
+
+                // don't be on the tile when a blast reaches it
+                var arrival = now + (this.steps[tile] + 1) * ticksPerTile;
+                if (this.dangerAt(next) <= arrival + ticksPerTile) continue;
+
+                this.steps[next] = this.steps[tile] + 1;
+                this.parent[next] = tile;
+                this.queue[tail++] = next;
+            }
+        }
+
+        return tail;
+    }
+
+    /**
+     * Checks whether, after placing a bomb on a tile at a given time, a tile outside every blast can be reached in time.
+     */
+    private boolean canEscape(int tile, int power, int placedAt, int ticksPerTile) {
+        this.coverBlast(tile, power, placedAt + MatchCore.BOMB_FUSE_TICKS);
+
+        // the bomb's own tile can be stood on until it goes off, but not walked back into
+        var reached = this.search(tile, ticksPerTile, placedAt);
+        var escaped = false;
+        for (int i = 1; i < reached && !escaped; i++) escaped = this.isSafe(this.queue[i]);
+
+        this.clearBlast(tile, power);
+        return escaped;
+    }
+
+    private boolean isOpen(int tile) {
+        return this.grid.getSpace(tile) == Space.EMPTY && !this.grid.hasBomb(tile);
+    }
+
+    private boolean isSafe(int tile) {
+        return this.dangerAt(tile) == DangerField.SAFE;
+    }
+
+    private int dangerAt(int tile) {
+        return Math.min(this.grid.getDanger(tile), this.blast[tile]);
+    }
+
+    private boolean breaksWall(int tile, int power) {
+        var x = tile % this.grid.width;
+        var y = tile / this.grid.width;
+        for (int d = 0; d < 4; d++) {
+            for (int i = 1; i <= power; i++) {
+                var nx = x + DX[d] * i;
+                var ny = y + DY[d] * i;
+                if (nx < 0 || ny < 0 || nx >= this.grid.width || ny >= this.grid.height) break;
+
+                var space = this.grid.getSpace(ny * this.grid.width + nx);
+                if (space == Space.SOFT) return true;
+                if (space == Space.SOLID) break;
+            }
+        }
+
+        return false;
+    }
+
+    private void coverBlast(int tile, int power, int tick) {
+        this.forEachCovered(tile, power, t -> this.blast[t] = Math.min(this.blast[t], tick));
+    }
+
+    private void clearBlast(int tile, int power) {
+        this.forEachCovered(tile, power, t -> this.blast[t] = DangerField.SAFE);
+    }
+
+    private interface TileVisitor {
+        void visit(int tile);
+    }
+
+    private void forEachCovered(int tile, int power, TileVisitor visitor) {
+        visitor.visit(tile);
+
+        var x = tile % this.grid.width;
+        var y = tile / this.grid.width;
+        for (int d = 0; d < 4; d++) {
+            for (int i = 1; i <= power; i++) {
+                var nx = x + DX[d] * i;
+                var ny = y + DY[d] * i;
+                if (nx < 0 || ny < 0 || nx >= this.grid.width || ny >= this.grid.height) break;
+
+                var next = ny * this.grid.width + nx;
+                var space = this.grid.getSpace(next);
+                if (space == Space.SOLID) break;
+
+                visitor.visit(next);
+                if (space == Space.SOFT) break;
+            }
+        }
+    }
+
+    private Plan pathTo(int tile, boolean bomb) {
+        var path = new int[this.steps[tile]];
+        for (int t = tile, i = path.length - 1; i >= 0; t = this.parent[t], i--) path[i] = t;
+        return new Plan(path, bomb, this.grid.version);
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a set of chunks loaded on behalf of a plugin by holding plugin chunk tickets for them.
+ * <p/>
+ * Tickets are acquired a few chunks per tick so that loading or generating the chunks of a large area doesn't stall the
+ * server in a single tick. Chunks stay loaded until the tickets are released.
+ */
+public class ChunkResidency implements Runnable {
+
+    /**
+     * A reasonable number of chunks to load per tick.
+     */
+    public static final int DEFAULT_CHUNKS_PER_TICK = 4;
+
+    private final Plugin plugin;
+    private final World world;
+    private final long[] chunks;
+
+    private int acquired = 0;
+    private int perTick = 0;
+    private int taskId = -1;
+    private final List<Runnable> pending = new ArrayList<>();
+
+    /**
+     * @param plugin the plugin to hold chunk tickets for
+     * @param world the world the chunks belong to
+     * @param chunks the chunks to keep loaded, packed with {@link #pack(int, int)}
+     */
+    public ChunkResidency(Plugin plugin, World world, long[] chunks) {
+        this.plugin = plugin;
+        this.world = world;
+        this.chunks = chunks.clone();
+    }
+
+    /**
+     * Packs a pair of chunk coordinates into a single long.
+     */
+    public static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long chunk) {
+        return (int) (chunk >> 32);
+    }
+
+    public static int unpackZ(long chunk) {
+        return (int) chunk;
+    }
+
+    /**
+     * Begins acquiring tickets for every chunk, loading at most {@code perTick} chunks per tick.
+     * <p/>
+     * The callback is run once every chunk is loaded, immediately if they already are.
+     *
+     * @param perTick the maximum number of chunks to load per tick
+     * @param loaded a callback to run once all chunks are loaded, or null
+     */
+    public void acquire(int perTick, Runnable loaded) {
+        if (perTick <= 0) throw new IllegalArgumentException("Chunks per tick must be positive.");
+        if (loaded != null) this.pending.add(loaded);
+
+        this.perTick = perTick;
+        if (this.isResident()) {
+            this.finish();
+        } else if (this.taskId < 0) {
+            this.taskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(this.plugin, this, 0, 1);
+        }
+    }
+
+    /**
+     * Releases every ticket held, allowing the chunks to unload. Pending callbacks are discarded.
+     */
+    public void release() {
+        if (this.taskId >= 0) Bukkit.getScheduler().cancelTask(this.taskId);
+        this.taskId = -1;
+        this.pending.clear();
+
+        for (int i = 0; i < this.acquired; i++) {
+            this.world.removePluginChunkTicket(unpackX(this.chunks[i]), unpackZ(this.chunks[i]), this.plugin);
+        }
+
+        this.acquired = 0;
+    }
+
+    /**
+     * @return if a ticket is held for every chunk
+     */
+    public boolean isResident() {
+        return this.acquired >= this.chunks.length;
+    }
+
+    /**
+     * @return the number of chunks managed
+     */
+    public int getChunkCount() {
+        return this.chunks.length;
+    }
+
+    @Override
+    public void run() {
+        var end = Math.min(this.chunks.length, this.acquired + this.perTick);
+        for (; this.acquired < end; this.acquired++) {
+            // adding a ticket loads the chunk if it isn't already
+            this.world.addPluginChunkTicket(unpackX(this.chunks[this.acquired]), unpackZ(this.chunks[this.acquired]), this.plugin);
+        }
+
+        if (this.isResident()) {
+            Bukkit.getScheduler().cancelTask(this.taskId);
+            this.taskId = -1;
+            this.finish();
+        }
+    }
+
+    private void finish() {
+        var callbacks = new ArrayList<>(this.pending);
+        this.pending.clear();
+        callbacks.forEach(Runnable::run);
+    }
+
+}
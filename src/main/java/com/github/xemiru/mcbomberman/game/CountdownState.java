@@ -2,100 +2,83 @@ package com.github.xemiru.mcbomberman.game;
 
 import com.github.xemiru.mcbomberman.framework.GameState;
 import com.github.xemiru.mcbomberman.framework.module.RegModule;
-import org.bukkit.Bukkit;
-import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.potion.PotionEffectType;
-
-import java.util.Stack;
-import java.util.concurrent.ThreadLocalRandom;
 
 public class CountdownState extends GameState {
 
     @RegModule
     BombermanModule bomberman;
 
-    private int countdown = 20 * 5;
+    public static final int COUNTDOWN_TICKS = 20 * 5;
+
+    private int goAt = -1;
+    private int shownSecond = -1;
+    private int buildStep = -1;
 
     @Override
     protected void onInit() {
-        var world = Bukkit.getWorlds().get(0);
-
-        // generate arena string
-        var arenaString = "" +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   " +
-                " # # # # # # # # # " +
-                "                   ";
-
-        var arenaStringCh = arenaString.toCharArray();
-        for (int i = 0; i < arenaString.length(); i++) {
-            char ch = arenaStringCh[i];
-            if (ch == ' ')
-                if (ThreadLocalRandom.current().nextBoolean()) arenaStringCh[i] = 'X';
-        }
-
-        // make the arena
-        var arena = bomberman.resetArena(
-                19,
-                19,
-                new Location(world, 0, 192, 0),
-                Material.BEDROCK,
-                Material.POLISHED_ANDESITE,
-                Material.OAK_WOOD,
-                String.valueOf(arenaStringCh));
-
-        var spawnPoints = new Stack<Location>();
-        var mapCenter = arena.getTileCenter(10, 10).toVector();
-        spawnPoints.add(arena.getNorthwestCornerSpawn());
-        spawnPoints.add(arena.getNortheastCornerSpawn());
-        spawnPoints.add(arena.getSouthwestCornerSpawn());
-        spawnPoints.add(arena.getSoutheastCornerSpawn());
         bomberman.setAllowActions(false);
+        bomberman.setFrozen(true);
+        bomberman.leaseArena(this::onArenaReady);
+
+        System.out.println("cd init");
+    }
+
+    private void reportArenaProgress(double progress) {
+        // only report every 10%
+        var step = (int) (progress * 10);
+        if (step == this.buildStep) return;
+
+        this.buildStep = step;
+        this.game.getMessenger().title("", "Building arena... " + (step * 10) + "%", 0, 20, 10);
+    }
+
+    private void onArenaReady() {
+        if (this.game == null) return; // state was exited before the arena finished
+
+        var arena = bomberman.getArena();
+        var mapCenter = arena.getTileCenter(arena.getWidth() / 2, arena.getHeight() / 2).toVector();
+
+        // spread players, then bots, evenly over the available spawns
+        var spawns = arena.getSpawnCount();
+        var players = Math.min(spawns, game.getPlayerCount() + bomberman.getBotCount());
+        var joined = new int[]{0};
         game.forEachPlayer(p -> {
-            if (spawnPoints.empty()) return;
-            var spawn = spawnPoints.pop();
+            if (joined[0] >= players) return;
+            var spawn = arena.getSpawnPoint(joined[0]++ * spawns / players);
             var lookDir = mapCenter.clone().subtract(p.getLocation().toVector()).normalize();
             spawn.setDirection(lookDir);
             p.teleport(spawn);
             bomberman.registerPlayer(p);
-            p.removePotionEffect(PotionEffectType.JUMP);
-            p.setWalkSpeed(0);
         });
 
-        System.out.println("cd init");
+        for (; joined[0] < players; joined[0]++) bomberman.registerBot(arena.getSpawnPoint(joined[0] * spawns / players));
+        bomberman.assignTeams();
     }
 
     @Override
     protected void tick() {
-        if (countdown <= 0) {
+        // don't go live until the arena is complete
+        if (!bomberman.isArenaReady()) {
+            this.reportArenaProgress(bomberman.getArenaProgress());
+            return;
+        }
+
+        // the countdown runs on the game clock, and starts once the arena is ready
+        var now = this.game.getClock().now();
+        if (this.goAt < 0) this.goAt = now + COUNTDOWN_TICKS;
+
+        var remaining = this.goAt - now;
+        if (remaining <= 0) {
             this.game.setState(new PlayState());
-            this.game.forEachPlayer(p -> {
-                p.sendTitle("GO!", "", 0, 30, 10);
-            });
-        } else if (countdown % 20 == 0) {
-            this.game.forEachPlayer(p -> {
-                int sec = countdown / 20;
-                p.sendTitle("" + sec, "", 0, 20, 20);
-            });
+            this.game.getMessenger().title("GO!", "", 0, 30, 10);
+            return;
         }
 
-        countdown--;
+        int sec = (remaining + 19) / 20;
+        if (sec != this.shownSecond) {
+            this.shownSecond = sec;
+            this.game.getMessenger().title("" + sec, "", 0, 20, 20);
+        }
     }
 
     @Override
@@ -0,0 +1,347 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * The earliest tick at which each tile of a {@link TileGrid} will be caught in a blast.
+ * <p/>
+ * Bombs caught in another bomb's blast detonate early, so each bomb's effective detonation tick is the earliest among
+ * its own and those of every bomb whose blast reaches it. When a bomb is placed or removed, or a soft wall breaks, only
+ * the bombs chained to the change are re-timed and only the tiles their blasts cover are recomputed.
+ * <p/>
+ * The field also serves as its grid's index of live bombs by tile, which it needs to find chained bombs.
+ * <p/>
+ * The field is maintained on the server thread. Other threads should read it through {@link #getSnapshot()}, which is
+ * refreshed by {@link #publish()}.
+ */
+public class DangerField {
+
+    /**
+     * The danger of a tile no blast will reach.
+     */
+    public static final int SAFE = Integer.MAX_VALUE;
+
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    /**
+     * An immutable copy of a {@link DangerField}, safe to read from any thread.
+     */
+    public static class Snapshot {
+        private final int width, height;
+        private final int[] danger;
+
+        private Snapshot(int width, int height, int[] danger) {
+            this.width = width;
+            this.height = height;
+            this.danger = danger;
+        }
+
+        /**
+         * @return the tick at which a tile will first be caught in a blast, or {@link #SAFE}
+         */
+        public int getDanger(int x, int y) {
+            if (x < 0 || y < 0 || x >= this.width || y >= this.height) return SAFE;
+            return this.danger[y * this.width + x];
+        }
+    }
+
+    private final TileGrid grid;
+    private final int width, height;
+    private final Bomb[] bombs;
+    private final int[] chained;
+    private final int[] danger;
+
+    private boolean dirty = false;
+    private volatile Snapshot snapshot;
+
+    // scratch state for updates; the queue is a ring holding each tile at most once
+    private final BitSet component;
+    private final BitSet tiles;
+    private final BitSet queued;
+    private final int[] queue;
+    private int head = 0, queueSize = 0;
+    private final int[] members;
+    private int memberCount = 0;
+    private final TileVisitor cover, chain, reseed, spread;
+    private int spreading;
+
+    DangerField(TileGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+
+        var size = this.width * this.height;
+        this.bombs = new Bomb[size];
+        this.chained = new int[size];
+        this.danger = new int[size];
+        this.component = new BitSet(size);
+        this.tiles = new BitSet(size);
+        this.queued = new BitSet(size);
+        this.queue = new int[size];
+        this.members = new int[size];
+        this.cover = this::cover;
+        this.chain = this::chain;
+        this.reseed = this::seed;
+        this.spread = this::spread;
+
+        Arrays.fill(this.danger, SAFE);
+        this.snapshot = new Snapshot(this.width, this.height, this.danger.clone());
+    }
+
+    /**
+     * @return the tick at which a tile will first be caught in a blast, or {@link #SAFE}
+     */
+    public int getDanger(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return SAFE;
+        return this.danger[y * this.width + x];
+    }
+
+    /**
+     * @return the latest published snapshot of this field
+     */
+    public Snapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Publishes a new snapshot if the field changed since the last call.
+     */
+    public void publish() {
+        if (!this.dirty) return;
+        this.snapshot = new Snapshot(this.width, this.height, this.danger.clone());
+        this.dirty = false;
+    }
+
+    /**
+     * @return the bomb on a tile, by index (y * width + x), or null
+     */
+    Bomb getBomb(int tile) {
+        return this.bombs[tile];
+    }
+
+    /**
+     * @return every live bomb, indexed by tile (y * width + x); read-only
+     */
+    Bomb[] getBombs() {
+        return this.bombs;
+    }
+
+    /**
+     * @return the tick at which a bomb will detonate, accounting for chain reactions
+     */
+    int getDetonationTick(Bomb bomb) {
+        var tile = bomb.y * this.width + bomb.x;
+        return this.bombs[tile] == bomb ? this.chained[tile] : bomb.detonateAt;
+    }
+
+    /**
+     * Adds a bomb to the field.
+     *
+     * @return false, without adding it, if its tile already holds a bomb
+     */
+    boolean place(Bomb bomb) {
+        var tile = bomb.y * this.width + bomb.x;
+        if (this.bombs[tile] != null) return false;
+
+        this.bombs[tile] = bomb;
+        this.chained[tile] = bomb.detonateAt;
+        this.seed(tile);
+        this.update();
+        return true;
+    }
+
+    /**
+     * Removes bombs from the field, such as after they detonate.
+     */
+    void remove(Collection<Bomb> removed) {
+        for (var bomb : removed) {
+            var tile = bomb.y * this.width + bomb.x;
+            if (this.bombs[tile] != bomb) continue;
+
+            // the bombs it reached, and the tiles it covered, must be looked at again without it
+            this.seed(tile);
+            this.bombs[tile] = null;
+            this.component.clear(tile);
+        }
+
+        this.update();
+    }
+
+    /**
+     * Notifies the field that soft walls were broken, letting blasts through them.
+     *
+     * @param broken the broken walls, as tile indices
+     */
+    void wallsBroken(BitSet broken) {
+        for (int t = broken.nextSetBit(0); t >= 0; t = broken.nextSetBit(t + 1)) {
+            this.tiles.set(t);
+            this.forEachBombReaching(t, this.reseed);
+        }
+
+        this.update();
+    }
+
+    void clear() {
+        Arrays.fill(this.bombs, null);
+        Arrays.fill(this.danger, SAFE);
+        this.dirty = true;
+    }
+
+    // ---
+    //
+    // internal
+    //
+    // ---
+
+    /**
+     * Marks a tile's bomb, every bomb chained to it and every tile their blasts cover for recomputation.
+     */
+    private void seed(int tile) {
+        if (this.bombs[tile] != null) this.chain(tile);
+
+        // gather the chained component, following blasts in both directions
+        while (this.queueSize > 0) {
+            var bomb = this.poll();
+            this.members[this.memberCount++] = bomb;
+            this.forEachCovered(bomb, this.cover);
+            this.forEachBombReaching(bomb, this.chain);
+        }
+    }
+
+    /**
+     * Marks a tile covered by a blast in the component being gathered, and gathers its bomb, if any.
+     */
+    private void cover(int tile) {
+        this.tiles.set(tile);
+        if (this.bombs[tile] != null) this.chain(tile);
+    }
+
+    /**
+     * Gathers the bomb on a tile into the component, if it isn't already.
+     */
+    private void chain(int tile) {
+        if (this.component.get(tile)) return;
+        this.component.set(tile);
+        this.offer(tile);
+    }
+
+    private void update() {
+        // re-time the component; earlier detonations spread to every bomb their blasts reach
+        for (int i = 0; i < this.memberCount; i++) {
+            var bomb = this.members[i];
+            if (this.bombs[bomb] != null) {
+                this.chained[bomb] = this.bombs[bomb].detonateAt;
+                this.offer(bomb);
+            }
+        }
+
+        while (this.queueSize > 0) {
+            var bomb = this.poll();
+            this.spreading = this.chained[bomb];
+            this.forEachCovered(bomb, this.spread);
+        }
+
+        // recompute every affected tile from the bombs that reach it
+        for (int t = this.tiles.nextSetBit(0); t >= 0; t = this.tiles.nextSetBit(t + 1)) {
+            this.danger[t] = this.earliestReaching(t, this.bombs[t] != null ? this.chained[t] : SAFE);
+        }
+
+        if (!this.tiles.isEmpty()) this.dirty = true;
+        this.memberCount = 0;
+        this.component.clear();
+        this.tiles.clear();
+    }
+
+    /**
+     * Brings forward the detonation of the bomb on a tile, if any, to the detonation currently spreading.
+     */
+    private void spread(int tile) {
+        if (this.bombs[tile] != null && this.chained[tile] > this.spreading) {
+            this.chained[tile] = this.spreading;
+            this.offer(tile);
+        }
+    }
+
+    /**
+     * Queues a tile, unless it is already queued; a queued bomb is spread from its chained detonation once polled.
+     */
+    private void offer(int tile) {
+        if (this.queued.get(tile)) return;
+        this.queued.set(tile);
+        this.queue[(this.head + this.queueSize++) % this.queue.length] = tile;
+    }
+
+    private int poll() {
+        var tile = this.queue[this.head];
+        this.head = (this.head + 1) % this.queue.length;
+        this.queueSize--;
+        this.queued.clear(tile);
+        return tile;
+    }
+
+    private interface TileVisitor {
+        void visit(int tile);
+    }
+
+    /**
+     * Visits every tile covered by the blast of the bomb on a tile, including its own.
+     */
+    private void forEachCovered(int tile, TileVisitor visitor) {
+        visitor.visit(tile);
+
+        var x = tile % this.width;
+        var y = tile / this.width;
+        var power = this.bombs[tile].power;
+        for (int d = 0; d < 4; d++) {
+            for (int i = 1; i <= power; i++) {
+                var space = this.grid.getSpace(x + DX[d] * i, y + DY[d] * i);
+                if (space == Space.SOLID) break;
+
+                visitor.visit((y + DY[d] * i) * this.width + x + DX[d] * i);
+                if (space == Space.SOFT) break;
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest chained detonation among the other bombs whose blasts reach a tile. This walks the same
+     * arms as {@link #forEachBombReaching(int, TileVisitor)}, inline, since it runs for every affected tile.
+     *
+     * @param earliest the detonation to beat
+     */
+    private int earliestReaching(int tile, int earliest) {
+        var x = tile % this.width;
+        var y = tile / this.width;
+        for (int d = 0; d < 4; d++) {
+            for (int i = 1; i <= Participants.MAX_STAT; i++) {
+                if (this.grid.getSpace(x + DX[d] * i, y + DY[d] * i) != Space.EMPTY) break;
+
+                var other = (y + DY[d] * i) * this.width + x + DX[d] * i;
+                if (this.bombs[other] != null && this.bombs[other].power >= i) earliest = Math.min(earliest, this.chained[other]);
+            }
+        }
+
+        return earliest;
+    }
+
+    /**
+     * Visits the tile of every other bomb whose blast reaches a tile.
+     */
+    private void forEachBombReaching(int tile, TileVisitor visitor) {
+        var x = tile % this.width;
+        var y = tile / this.width;
+        for (int d = 0; d < 4; d++) {
+            for (int i = 1; i <= Participants.MAX_STAT; i++) {
+                // blasts can't pass through walls on their way here
+                if (this.grid.getSpace(x + DX[d] * i, y + DY[d] * i) != Space.EMPTY) break;
+
+                var other = (y + DY[d] * i) * this.width + x + DX[d] * i;
+                if (this.bombs[other] != null && this.bombs[other].power >= i) visitor.visit(other);
+            }
+        }
+    }
+
+}
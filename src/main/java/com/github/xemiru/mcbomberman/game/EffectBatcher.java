@@ -0,0 +1,147 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Collects the visual and sound effects of a {@link BombermanGrid} over a tick and sends them in one batch.
+ * <p/>
+ * Effects are queued per tile, so overlapping blasts show each tile only once. On {@link #flush()}, effects are sent
+ * only to players close enough to the arena to see them, and are thinned out to the limits of the current
+ * {@link Quality}.
+ */
+public class EffectBatcher {
+
+    public enum Quality {
+        /**
+         * No effects are shown.
+         */
+        OFF(0, 0),
+        LOW(12, 1),
+        MEDIUM(48, 2),
+        HIGH(192, 4);
+
+        /**
+         * The maximum number of blast particles shown per tick.
+         */
+        public final int particles;
+
+        /**
+         * The maximum number of each kind of sound played per tick.
+         */
+        public final int sounds;
+
+        Quality(int particles, int sounds) {
+            this.particles = particles;
+            this.sounds = sounds;
+        }
+    }
+
+    /**
+     * How far, in blocks, from the edge of an arena a player may be and still receive its effects.
+     */
+    public static final double VIEW_DISTANCE = 48;
+
+    private final BombermanGrid grid;
+    private final BitSet blasts;
+    private final BitSet origins;
+    private final BitSet placements;
+    private final List<Player> viewers = new ArrayList<>();
+    private Quality quality = Quality.HIGH;
+
+    EffectBatcher(BombermanGrid grid) {
+        var tiles = grid.getWidth() * grid.getHeight();
+        this.grid = grid;
+        this.blasts = new BitSet(tiles);
+        this.origins = new BitSet(tiles);
+        this.placements = new BitSet(tiles);
+    }
+
+    public Quality getQuality() {
+        return this.quality;
+    }
+
+    public void setQuality(Quality quality) {
+        this.quality = quality;
+    }
+
+    /**
+     * Queues a blast effect on a tile.
+     */
+    void blast(int x, int y) {
+        this.blasts.set(y * this.grid.getWidth() + x);
+    }
+
+    /**
+     * Queues an explosion sound for a bomb detonating on a tile.
+     */
+    void detonation(int x, int y) {
+        this.origins.set(y * this.grid.getWidth() + x);
+    }
+
+    /**
+     * Queues a placement sound for a bomb placed on a tile.
+     */
+    void placement(int x, int y) {
+        this.placements.set(y * this.grid.getWidth() + x);
+    }
+
+    /**
+     * Sends every queued effect to the players in range, then clears the queue.
+     */
+    public void flush() {
+        if (this.blasts.isEmpty() && this.origins.isEmpty() && this.placements.isEmpty()) return;
+
+        if (this.quality != Quality.OFF) {
+            this.grid.collectViewers(VIEW_DISTANCE, this.viewers);
+            if (!this.viewers.isEmpty()) {
+                this.sendParticles();
+                this.sendSounds(this.origins, Sound.ENTITY_GENERIC_EXPLODE);
+                this.sendSounds(this.placements, Sound.BLOCK_GRASS_PLACE);
+            }
+
+            this.viewers.clear();
+        }
+
+        this.blasts.clear();
+        this.origins.clear();
+        this.placements.clear();
+    }
+
+    private void sendParticles() {
+        // thin out evenly rather than cutting off one side of the arena
+        var stride = Math.max(1, (this.blasts.cardinality() + this.quality.particles - 1) / this.quality.particles);
+        var width = this.grid.getWidth();
+        var y = this.grid.getTileCenterY() + 1;
+
+        var i = 0;
+        for (int t = this.blasts.nextSetBit(0); t >= 0; t = this.blasts.nextSetBit(t + 1)) {
+            if (i++ % stride != 0) continue;
+
+            var x = this.grid.getTileCenterX(t % width);
+            var z = this.grid.getTileCenterZ(t / width);
+            for (var viewer : this.viewers) viewer.spawnParticle(Particle.EXPLOSION_LARGE, x, y, z, 1, 0, 0, 0, 0);
+        }
+    }
+
+    private void sendSounds(BitSet tiles, Sound sound) {
+        var width = this.grid.getWidth();
+        var sent = 0;
+        for (int t = tiles.nextSetBit(0); t >= 0 && sent < this.quality.sounds; t = tiles.nextSetBit(t + 1), sent++) {
+            var loc = new Location(
+                    this.grid.getNorthwestCorner().getWorld(),
+                    this.grid.getTileCenterX(t % width),
+                    this.grid.getTileCenterY(),
+                    this.grid.getTileCenterZ(t / width));
+
+            for (var viewer : this.viewers) viewer.playSound(loc, sound, 1f, 1f);
+        }
+    }
+
+}
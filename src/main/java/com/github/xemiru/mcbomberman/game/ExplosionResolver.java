@@ -0,0 +1,171 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves every explosion happening on a {@link TileGrid} within a single tick.
+ * <p/>
+ * Bombs that are due are detonated in order, and any bomb caught in a blast is detonated along with them in
+ * breadth-first order. Soft walls block blasts for the whole batch, even when destroyed by an earlier blast of the same
+ * tick, so the outcome doesn't depend on the order bombs were placed in.
+ * <p/>
+ * Solid walls don't change during play, so the distance from each tile to the nearest solid wall or edge in each
+ * direction is computed once; a blast arm is then bounded by its power and that distance without checking for solid
+ * walls. A resolver must be replaced if the grid's solid walls change, such as when a recorded state is restored.
+ */
+class ExplosionResolver {
+
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    /**
+     * The outcome of a batch of explosions. A result is reused by its resolver and is only valid until the next call to
+     * {@link #resolve(Collection, Bomb[])}.
+     */
+    static class BlastResult {
+        private final BitSet hit;
+        private final Bomb[] cause;
+        private final BitSet destroyed;
+        private final List<Bomb> detonated = new ArrayList<>();
+        private int due;
+
+        private BlastResult(int tiles) {
+            this.hit = new BitSet(tiles);
+            this.cause = new Bomb[tiles];
+            this.destroyed = new BitSet(tiles);
+        }
+
+        /**
+         * @return the tiles reached by any blast; read-only
+         */
+        BitSet getHitTiles() {
+            return this.hit;
+        }
+
+        /**
+         * @return the soft walls destroyed by any blast, as tile indices; read-only
+         */
+        BitSet getDestroyedWalls() {
+            return this.destroyed;
+        }
+
+        /**
+         * @return every bomb detonated, due bombs first, followed by bombs triggered in the order they were reached
+         */
+        List<Bomb> getDetonated() {
+            return this.detonated;
+        }
+
+        /**
+         * @return the bombs that were set off by another blast rather than by their fuse
+         */
+        List<Bomb> getTriggered() {
+            return this.detonated.subList(this.due, this.detonated.size());
+        }
+
+        /**
+         * @return the first bomb whose blast reached a tile, or null if the tile wasn't hit
+         */
+        Bomb getCause(int tile) {
+            return this.hit.get(tile) ? this.cause[tile] : null;
+        }
+
+        private void clear() {
+            for (int t = this.hit.nextSetBit(0); t >= 0; t = this.hit.nextSetBit(t + 1)) this.cause[t] = null;
+            this.hit.clear();
+            this.destroyed.clear();
+            this.detonated.clear();
+            this.due = 0;
+        }
+    }
+
+    private final TileGrid grid;
+    private final int width, height;
+    private final int[][] reach = new int[4][];
+    private final BlastResult result;
+    private final ArrayDeque<Bomb> queue = new ArrayDeque<>();
+    private final BitSet fired;
+
+    ExplosionResolver(TileGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.result = new BlastResult(this.width * this.height);
+        this.fired = new BitSet(this.width * this.height);
+
+        for (int d = 0; d < 4; d++) {
+            var table = new int[this.width * this.height];
+            for (int y = 0; y < this.height; y++) {
+                for (int x = 0; x < this.width; x++) {
+                    var steps = 0;
+                    while (grid.getSpace(x + DX[d] * (steps + 1), y + DY[d] * (steps + 1)) != Space.SOLID) steps++;
+                    table[y * this.width + x] = steps;
+                }
+            }
+
+            this.reach[d] = table;
+        }
+    }
+
+    /**
+     * Detonates a batch of bombs, along with every bomb caught in their blasts.
+     *
+     * @param due the bombs whose fuses ran out this tick
+     * @param byTile every live bomb, indexed by tile (y * width + x); bombs not in this index can't be triggered. The
+     *               index isn't modified.
+     * @return the result, valid until the next call to this method
+     */
+    BlastResult resolve(Collection<Bomb> due, Bomb[] byTile) {
+        var result = this.result;
+        result.clear();
+        this.fired.clear();
+
+        for (var bomb : due) this.enqueue(bomb);
+        result.due = result.detonated.size();
+
+        while (!this.queue.isEmpty()) {
+            var bomb = this.queue.poll();
+            var origin = bomb.y * this.width + bomb.x;
+            this.hit(origin, bomb);
+
+            for (int d = 0; d < 4; d++) {
+                var length = Math.min(bomb.power, this.reach[d][origin]);
+                var step = DY[d] * this.width + DX[d];
+                for (int i = 1, tile = origin + step; i <= length; i++, tile += step) {
+                    this.hit(tile, bomb);
+
+                    if (this.grid.getSpace(tile % this.width, tile / this.width) == Space.SOFT) {
+                        result.destroyed.set(tile);
+                        break;
+                    }
+
+                    var other = byTile[tile];
+                    if (other != null) this.enqueue(other);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void enqueue(Bomb bomb) {
+        // no blast can set off the same bomb twice
+        var tile = bomb.y * this.width + bomb.x;
+        if (this.fired.get(tile)) return;
+        this.fired.set(tile);
+
+        this.result.detonated.add(bomb);
+        this.queue.add(bomb);
+    }
+
+    private void hit(int tile, Bomb bomb) {
+        if (this.result.hit.get(tile)) return;
+        this.result.hit.set(tile);
+        this.result.cause[tile] = bomb;
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A hashed timing wheel holding bombs by the tick their fuse runs out on.
+ * <p/>
+ * Each tick only the slot for that tick is visited, so the cost of ticking fuses doesn't grow with the number of live
+ * bombs. Bombs scheduled further ahead than the wheel's size simply stay in their slot until their round comes up.
+ * Cancelled bombs are taken out of their slot straight away, so a bomb can be cancelled and scheduled again without
+ * ever being held twice.
+ */
+class FuseWheel {
+
+    private final List<Bomb>[] slots;
+    private final int mask;
+    private int lastTick;
+    private int size = 0;
+
+    /**
+     * @param slots the minimum number of slots; rounded up to a power of two
+     * @param tick the tick the wheel starts at
+     */
+    @SuppressWarnings("unchecked")
+    FuseWheel(int slots, int tick) {
+        if (slots < 1) throw new IllegalArgumentException("A fuse wheel needs at least one slot.");
+
+        var size = Integer.highestOneBit(slots);
+        if (size < slots) size <<= 1;
+
+        this.slots = (List<Bomb>[]) new List[size];
+        for (int i = 0; i < size; i++) this.slots[i] = new ArrayList<>();
+        this.mask = size - 1;
+        this.lastTick = tick;
+    }
+
+    /**
+     * @return the number of scheduled bombs
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Schedules a bomb to come due on its {@link Bomb#detonateAt} tick, or on the next tick if that has passed.
+     */
+    void schedule(Bomb bomb) {
+        if (bomb.scheduled) return;
+
+        bomb.dueAt = Math.max(bomb.detonateAt, this.lastTick + 1);
+        this.slots[bomb.dueAt & this.mask].add(bomb);
+        bomb.scheduled = true;
+        this.size++;
+    }
+
+    /**
+     * Unschedules a bomb, such as one set off early by another blast.
+     */
+    void cancel(Bomb bomb) {
+        if (!bomb.scheduled) return;
+
+        this.slots[bomb.dueAt & this.mask].remove(bomb);
+        bomb.scheduled = false;
+        this.size--;
+    }
+
+    /**
+     * Advances the wheel to a tick, collecting every bomb that came due on the way.
+     */
+    void advance(int tick, Collection<Bomb> due) {
+        // don't lap the wheel more than once if the clock jumped ahead
+        var from = Math.max(this.lastTick + 1, tick - this.mask);
+        this.lastTick = tick;
+        if (this.size == 0) return;
+
+        for (int t = from; t <= tick; t++) {
+            var slot = this.slots[t & this.mask];
+            if (slot.isEmpty()) continue;
+
+            slot.removeIf(bomb -> {
+                if (bomb.dueAt > tick) return false;
+
+                bomb.scheduled = false;
+                this.size--;
+                due.add(bomb);
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Collects every scheduled bomb.
+     */
+    void collect(Collection<Bomb> out) {
+        for (var slot : this.slots) {
+            out.addAll(slot);
+        }
+    }
+
+    /**
+     * Unschedules every bomb.
+     */
+    void clear() {
+        for (var slot : this.slots) {
+            for (var bomb : slot) bomb.scheduled = false;
+            slot.clear();
+        }
+
+        this.size = 0;
+    }
+
+}
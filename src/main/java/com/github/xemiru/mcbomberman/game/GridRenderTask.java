@@ -0,0 +1,183 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Writes the blocks of a {@link BombermanGrid} into its world, or clears them, over the course of several ticks.
+ * <p/>
+ * The arena's region is processed one chunk column at a time, with at most a fixed number of block writes per tick.
+ * Every block in the region is written exactly once with its final material, air included, so rendering does not need
+ * to clear the space beforehand.
+ */
+public class GridRenderTask implements Runnable {
+
+    private final BombermanGrid grid;
+    private final boolean destroy;
+
+    // inclusive world block bounds of each chunk slice; minX, maxX, minZ, maxZ
+    private final int[] slices;
+    private final long total;
+
+    private int slice = 0;
+    private int cursor = 0;
+    private long written = 0;
+
+    private int budget = 0;
+    private int taskId = -1;
+    private boolean done = false;
+    private DoubleConsumer progress = null;
+    private final List<Runnable> completion = new ArrayList<>();
+
+    GridRenderTask(BombermanGrid grid, boolean destroy) {
+        this.grid = grid;
+        this.destroy = destroy;
+
+        var nw = grid.getNorthwestCorner();
+        var minX = nw.getBlockX();
+        var minZ = nw.getBlockZ();
+        var maxX = minX + grid.getRegionWidth() - 1;
+        var maxZ = minZ + grid.getRegionDepth() - 1;
+
+        var cMinX = minX >> 4;
+        var cMinZ = minZ >> 4;
+        var cMaxX = maxX >> 4;
+        var cMaxZ = maxZ >> 4;
+
+        this.slices = new int[(cMaxX - cMinX + 1) * (cMaxZ - cMinZ + 1) * 4];
+        var i = 0;
+        for (int cz = cMinZ; cz <= cMaxZ; cz++) {
+            for (int cx = cMinX; cx <= cMaxX; cx++) {
+                slices[i++] = Math.max(minX, cx << 4);
+                slices[i++] = Math.min(maxX, (cx << 4) + 15);
+                slices[i++] = Math.max(minZ, cz << 4);
+                slices[i++] = Math.min(maxZ, (cz << 4) + 15);
+            }
+        }
+
+        this.total = (long) grid.getRegionWidth() * grid.getRegionDepth() * BombermanGrid.LAYERS;
+    }
+
+    /**
+     * Begins processing this task on the server thread, writing at most {@code budget} blocks per tick.
+     *
+     * @param plugin the plugin to schedule the task under
+     * @param budget the maximum number of blocks to write per tick
+     * @param progress a callback receiving the fraction of blocks written after each tick, or null
+     * @return this task
+     */
+    public GridRenderTask start(Plugin plugin, int budget, DoubleConsumer progress) {
+        if (budget <= 0) throw new IllegalArgumentException("Block budget must be positive.");
+        if (this.taskId >= 0 || this.done) throw new IllegalStateException("Task has already been started.");
+
+        this.budget = budget;
+        this.progress = progress;
+        this.taskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this, 0, 1);
+        return this;
+    }
+
+    /**
+     * Processes this task in its entirety, immediately.
+     */
+    public void runToCompletion() {
+        this.cancel();
+        this.step(Integer.MAX_VALUE);
+        this.finish();
+    }
+
+    /**
+     * Stops processing this task. Completion callbacks are not called.
+     */
+    public void cancel() {
+        if (this.taskId >= 0) Bukkit.getScheduler().cancelTask(this.taskId);
+        this.taskId = -1;
+    }
+
+    /**
+     * Registers a callback to run once every block of this task has been written. If the task has already finished,
+     * the callback is run immediately.
+     *
+     * @param callback the callback
+     * @return this task
+     */
+    public GridRenderTask whenDone(Runnable callback) {
+        if (this.done) callback.run();
+        else this.completion.add(callback);
+
+        return this;
+    }
+
+    /**
+     * @return if every block of this task has been written
+     */
+    public boolean isDone() {
+        return this.done;
+    }
+
+    /**
+     * @return the fraction of this task's blocks that have been written, from 0 to 1
+     */
+    public double getProgress() {
+        return this.total == 0 ? 1 : (double) this.written / this.total;
+    }
+
+    @Override
+    public void run() {
+        this.step(this.budget);
+        if (this.progress != null) this.progress.accept(this.getProgress());
+        if (this.slice * 4 >= this.slices.length) {
+            this.cancel();
+            this.finish();
+        }
+    }
+
+    private void step(int budget) {
+        var nw = this.grid.getNorthwestCorner();
+        var world = nw.getWorld();
+        var nwx = nw.getBlockX();
+        var nwy = nw.getBlockY();
+        var nwz = nw.getBlockZ();
+
+        while (budget > 0 && this.slice * 4 < this.slices.length) {
+            var base = this.slice * 4;
+            var minX = this.slices[base];
+            var minZ = this.slices[base + 2];
+            var dx = this.slices[base + 1] - minX + 1;
+            var dz = this.slices[base + 3] - minZ + 1;
+            var area = dx * dz;
+            var size = area * BombermanGrid.LAYERS;
+
+            while (budget > 0 && this.cursor < size) {
+                var y = this.cursor / area;
+                var rem = this.cursor % area;
+                var x = minX + (rem % dx);
+                var z = minZ + (rem / dx);
+
+                var material = this.destroy ? Material.AIR : this.grid.getBlockMaterial(x - nwx, y, z - nwz);
+                world.setType(x, nwy + y, z, material);
+
+                this.cursor++;
+                this.written++;
+                budget--;
+            }
+
+            if (this.cursor >= size) {
+                this.slice++;
+                this.cursor = 0;
+            }
+        }
+    }
+
+    private void finish() {
+        if (this.done) return;
+        this.done = true;
+        this.completion.forEach(Runnable::run);
+        this.completion.clear();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.BitSet;
+
+/**
+ * An immutable copy of the parts of a {@link MatchCore} that matter for finding paths, safe to read from any
+ * thread.
+ * <p/>
+ * A grid only builds a new snapshot when it has changed since the last one, as told by its version.
+ */
+class GridSnapshot {
+
+    final int width, height;
+
+    /**
+     * The grid's version when this snapshot was taken.
+     */
+    final int version;
+
+    /**
+     * The game clock's time when this snapshot was taken.
+     */
+    final int tick;
+
+    private final Space[] spaces;
+    private final BitSet bombs;
+    private final BitSet powerups;
+    private final DangerField.Snapshot danger;
+
+    GridSnapshot(TileGrid grid, int version, int tick, BitSet bombs, BitSet powerups, DangerField.Snapshot danger) {
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.version = version;
+        this.tick = tick;
+        this.bombs = bombs;
+        this.powerups = powerups;
+        this.danger = danger;
+
+        this.spaces = new Space[this.width * this.height];
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) this.spaces[y * this.width + x] = grid.getSpace(x, y);
+        }
+    }
+
+    Space getSpace(int tile) {
+        return this.spaces[tile];
+    }
+
+    boolean hasBomb(int tile) {
+        return this.bombs.get(tile);
+    }
+
+    boolean hasPowerup(int tile) {
+        return this.powerups.get(tile);
+    }
+
+    /**
+     * @return the tick at which a tile will first be caught in a blast, or {@link DangerField#SAFE}
+     */
+    int getDanger(int tile) {
+        return this.danger.getDanger(tile % this.width, tile / this.width);
+    }
+
+}
@@ -0,0 +1,323 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ranks players by one of their statistics.
+ * <p/>
+ * Players are kept in a treap ordered by score, highest first, with ties going to whoever reached the score first, as
+ * recorded in their statistics, and then by UUID, so players are ranked the same way across restarts. Every node counts
+ * the nodes below it, so a player's rank and the player at any rank are found in one walk down the tree. Updating a
+ * player's score, finding their rank, and finding the top K players all take O(log n) expected time (plus K for the
+ * top K), however many players are ranked. A leaderboard is only meant to be used on one thread.
+ */
+public class Leaderboard {
+
+    /**
+     * The statistics players can be ranked by.
+     */
+    public enum Board {
+        WINS("Wins", StatsStore.Stats::getWins),
+        KD("K/D", stats -> (int) Math.min(Integer.MAX_VALUE, stats.getEliminations() * 1000L / Math.max(1, stats.getDeaths()))),
+        STREAK("Best win streak", StatsStore.Stats::getBestStreak);
+
+        private final String title;
+        private final ToIntFunction<StatsStore.Stats> score;
+
+        Board(String title, ToIntFunction<StatsStore.Stats> score) {
+            this.title = title;
+            this.score = score;
+        }
+
+        public String getTitle() {
+            return this.title;
+        }
+
+        /**
+         * @return a player's score on this board; K/D is scored in thousandths
+         */
+        public int score(StatsStore.Stats stats) {
+            return Math.max(0, this.score.applyAsInt(stats));
+        }
+    }
+
+    /**
+     * A player and their score, as ranked on a board.
+     */
+    public static final class Entry {
+        public final UUID id;
+        public final int score;
+
+        private Entry(UUID id, int score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    private static final class Node {
+        final UUID id;
+        final int score;
+        final long reached;
+        int priority;
+        int size = 1;
+        Node left, right;
+
+        Node(UUID id, int score, long reached, int priority) {
+            this.id = id;
+            this.score = score;
+            this.reached = reached;
+            this.priority = priority;
+        }
+    }
+
+    private final Board board;
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private final SplittableRandom priorities = new SplittableRandom();
+    private Node root;
+
+    public Leaderboard(Board board) {
+        this.board = board;
+    }
+
+    public Board getBoard() {
+        return this.board;
+    }
+
+    /**
+     * @return the number of players ranked
+     */
+    public int size() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Ranks a player by their latest statistics, replacing their old score.
+     */
+    public void update(UUID id, StatsStore.Stats stats) {
+        var score = this.board.score(stats);
+        var old = this.nodes.get(id);
+        if (old != null) {
+            if (old.score == score) return;
+            this.root = remove(this.root, old);
+        }
+
+        var node = new Node(id, score, stats.getReached(this.board), this.priorities.nextInt());
+        this.nodes.put(id, node);
+        this.root = insert(this.root, node);
+    }
+
+    /**
+     * @return a player's rank, starting from 1, or 0 if they aren't ranked
+     */
+    public int getRank(UUID id) {
+        var node = this.nodes.get(id);
+        if (node == null) return 0;
+
+        var rank = 1;
+        var at = this.root;
+        while (at != node) {
+            if (compare(node, at) < 0) {
+                at = at.left;
+            } else {
+                rank += size(at.left) + 1;
+                at = at.right;
+            }
+        }
+
+        return rank + size(node.left);
+    }
+
+    /**
+     * @return a player's score, or 0 if they aren't ranked
+     */
+    public int getScore(UUID id) {
+        var node = this.nodes.get(id);
+        return node == null ? 0 : node.score;
+    }
+
+    /**
+     * @return the player at a rank, starting from 1, or null if fewer players are ranked
+     */
+    public Entry get(int rank) {
+        if (rank < 1 || rank > size(this.root)) return null;
+
+        var at = this.root;
+        var skip = rank - 1;
+        while (true) {
+            var left = size(at.left);
+            if (skip < left) {
+                at = at.left;
+            } else if (skip == left) {
+                return new Entry(at.id, at.score);
+            } else {
+                skip -= left + 1;
+                at = at.right;
+            }
+        }
+    }
+
+    /**
+     * @return up to {@code count} of the highest-ranked players, highest first
+     */
+    public List<Entry> top(int count) {
+        var top = new ArrayList<Entry>(Math.min(count, this.size()));
+        var stack = new ArrayDeque<Node>();
+        var at = this.root;
+        while (top.size() < count && (at != null || !stack.isEmpty())) {
+            while (at != null) {
+                stack.push(at);
+                at = at.left;
+            }
+
+            at = stack.pop();
+            top.add(new Entry(at.id, at.score));
+            at = at.right;
+        }
+
+        return top;
+    }
+
+    /**
+     * Replaces every ranked player with the given ones. The tree is built directly from the sorted players, which is
+     * much quicker than inserting them one at a time.
+     */
+    public void rebuild(Map<UUID, StatsStore.Stats> stats) {
+        var sorted = new Node[stats.size()];
+        var i = 0;
+        for (var entry : stats.entrySet()) {
+            var score = this.board.score(entry.getValue());
+            sorted[i++] = new Node(entry.getKey(), score, entry.getValue().getReached(this.board), 0);
+        }
+
+        Arrays.sort(sorted, Leaderboard::compare);
+
+        // random priorities, handed out highest first one level of the tree at a time, keep it a valid treap
+        var depth = new int[sorted.length];
+        var levels = depths(depth, 0, sorted.length, 0);
+        var drawn = new int[sorted.length];
+        for (i = 0; i < drawn.length; i++) drawn[i] = this.priorities.nextInt();
+        Arrays.sort(drawn);
+
+        var next = drawn.length;
+        for (int level = 0; level < levels; level++) {
+            for (i = 0; i < sorted.length; i++) {
+                if (depth[i] == level) sorted[i].priority = drawn[--next];
+            }
+        }
+
+        this.nodes.clear();
+        for (var node : sorted) this.nodes.put(node.id, node);
+        this.root = link(sorted, 0, sorted.length);
+    }
+
+    // ---
+    //
+    // internal
+    //
+    // ---
+
+    /**
+     * Finds the depth of every node of a balanced tree built from a sorted range.
+     *
+     * @return the number of levels in the tree
+     */
+    private static int depths(int[] depth, int from, int to, int level) {
+        if (from >= to) return level;
+
+        var mid = (from + to) >>> 1;
+        depth[mid] = level;
+        return Math.max(depths(depth, from, mid, level + 1), depths(depth, mid + 1, to, level + 1));
+    }
+
+    private static Node link(Node[] sorted, int from, int to) {
+        if (from >= to) return null;
+
+        var mid = (from + to) >>> 1;
+        var node = sorted[mid];
+        node.left = link(sorted, from, mid);
+        node.right = link(sorted, mid + 1, to);
+        node.size = to - from;
+        return node;
+    }
+
+    private static int compare(Node a, Node b) {
+        if (a.score != b.score) return a.score > b.score ? -1 : 1;
+        if (a.reached != b.reached) return Long.compare(a.reached, b.reached);
+        return a.id.compareTo(b.id);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node insert(Node at, Node node) {
+        if (at == null) return node;
+
+        if (node.priority > at.priority) {
+            var split = split(at, node);
+            node.left = split[0];
+            node.right = split[1];
+            node.size = size(node.left) + size(node.right) + 1;
+            return node;
+        }
+
+        if (compare(node, at) < 0) at.left = insert(at.left, node);
+        else at.right = insert(at.right, node);
+        at.size++;
+        return at;
+    }
+
+    private static Node remove(Node at, Node node) {
+        if (at == node) return merge(at.left, at.right);
+
+        if (compare(node, at) < 0) at.left = remove(at.left, node);
+        else at.right = remove(at.right, node);
+        at.size--;
+        return at;
+    }
+
+    /**
+     * @return the nodes ordered before a key, and those ordered after it
+     */
+    private static Node[] split(Node at, Node key) {
+        if (at == null) return new Node[2];
+
+        Node[] split;
+        if (compare(at, key) < 0) {
+            split = split(at.right, key);
+            at.right = split[0];
+            split[0] = at;
+        } else {
+            split = split(at.left, key);
+            at.left = split[1];
+            split[1] = at;
+        }
+
+        at.size = size(at.left) + size(at.right) + 1;
+        return split;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.size = size(left.left) + size(left.right) + 1;
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.size = size(right.left) + size(right.right) + 1;
+        return right;
+    }
+
+}
@@ -0,0 +1,468 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The rules of a bomberman match: the arena's tiles and the powerups lying on them, bombs and their fuses, blasts,
+ * pickups and eliminations.
+ * <p/>
+ * A core only changes through its inputs. Participants {@link #move(int, int) move} between tiles and
+ * {@link #placeBomb(int, int, int) place bombs}, and the clock {@link #tick(int) ticks}; everything that happens as a
+ * result is told to the core's {@link Events listeners}, in an order that depends on nothing but those inputs.
+ * Powerup drops are rolled from a generator seeded once per match, so two cores built from the same layout and seed
+ * and given the same inputs report the same events.
+ * <p/>
+ * A core knows nothing of the server; {@link BombermanGrid} and {@link BombermanModule} carry out its events in the
+ * world. It isn't thread-safe and should only be used from one thread, but separate cores share nothing and may run
+ * side by side.
+ */
+class MatchCore implements TileGrid {
+
+    public static final int BOMB_FUSE_TICKS = 20 * 3;
+    public static final int BOMB_COOLDOWN_TICKS = 10;
+
+    /**
+     * Receives everything that happens in a match, as it happens.
+     */
+    interface Events {
+        /**
+         * Called when a tile's space changes, as when a soft wall is broken.
+         */
+        default void spaceChanged(int tile, Space space) {
+        }
+
+        /**
+         * Called when the powerup lying on a tile changes.
+         *
+         * @param powerup the powerup now lying there, or null
+         */
+        default void powerupChanged(int tile, Powerup powerup) {
+        }
+
+        default void bombPlaced(Bomb bomb) {
+        }
+
+        /**
+         * Called for every bomb that goes off, before any tile its blast reaches.
+         */
+        default void bombDetonated(Bomb bomb) {
+        }
+
+        /**
+         * Called for every bomb taken away without going off, as when a match ends.
+         */
+        default void bombRemoved(Bomb bomb) {
+        }
+
+        /**
+         * Called for every tile reached by a blast.
+         *
+         * @param cause the bomb whose blast reached the tile first
+         */
+        default void tileBlasted(int tile, Bomb cause) {
+        }
+
+        default void powerupTaken(int slot, Powerup powerup) {
+        }
+
+        /**
+         * @param bomb the bomb whose blast caught the participant
+         */
+        default void eliminated(int slot, Bomb bomb) {
+        }
+    }
+
+    private final int width, height;
+    private final Space[] tiles;
+    private final Powerup[] powerups;
+    private final DangerField danger;
+    private ExplosionResolver explosions;
+    private final FuseWheel fuses = new FuseWheel(BOMB_FUSE_TICKS + 1, 0);
+    private final List<Bomb> due = new ArrayList<>();
+    private final List<Events> listeners = new ArrayList<>();
+    private long seed;
+    private SplittableRandom drops;
+    private int rolls;
+    private Participants participants = new Participants();
+
+    private int now = 0;
+    private int version = 0;
+    private GridSnapshot snapshot;
+
+    /**
+     * @param layout the layout to take the arena's tiles from
+     * @param seed the seed to roll powerup drops from
+     */
+    MatchCore(ArenaLayout layout, long seed) {
+        this.width = layout.getWidth();
+        this.height = layout.getHeight();
+        this.tiles = new Space[this.width * this.height];
+        for (int t = 0; t < this.tiles.length; t++) this.tiles[t] = layout.getSpace(t % this.width, t / this.width);
+
+        this.powerups = new Powerup[this.tiles.length];
+        this.danger = new DangerField(this);
+        this.seed(seed, 0);
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public Space getSpace(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return Space.SOLID;
+        return this.tiles[y * this.width + x];
+    }
+
+    /**
+     * @return the seed powerup drops are rolled from
+     */
+    long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * @return how many drops have been rolled from the seed so far
+     */
+    int getRolls() {
+        return this.rolls;
+    }
+
+    /**
+     * Reseeds powerup drops. A match resumed from a {@link MatchSnapshot} passes the drops it had already rolled, so it
+     * goes on to roll the same drops it would have had it never stopped.
+     *
+     * @param seed the seed to roll powerup drops from
+     * @param rolls how many drops to skip past
+     */
+    void seed(long seed, int rolls) {
+        this.seed = seed;
+        this.drops = new SplittableRandom(seed);
+        for (int i = 0; i < rolls; i++) this.drops.nextInt(4);
+        this.rolls = rolls;
+    }
+
+    /**
+     * @return the tick this core was last advanced to
+     */
+    int getNow() {
+        return this.now;
+    }
+
+    /**
+     * @return a number that changes whenever walls, bombs or powerups change
+     */
+    int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return the field of upcoming blasts, which also indexes the live bombs by tile
+     */
+    DangerField getDanger() {
+        return this.danger;
+    }
+
+    /**
+     * @return the bomb on a tile, or null
+     */
+    Bomb getBomb(int tile) {
+        return this.danger.getBomb(tile);
+    }
+
+    /**
+     * @return the powerup lying on a tile, or null
+     */
+    Powerup getPowerup(int tile) {
+        return this.powerups[tile];
+    }
+
+    Participants getParticipants() {
+        return this.participants;
+    }
+
+    /**
+     * Sets the participants the rules apply to. Should be set before the match starts.
+     */
+    void setParticipants(Participants participants) {
+        this.participants = participants;
+    }
+
+    void addListener(Events listener) {
+        this.listeners.add(listener);
+    }
+
+    void removeListener(Events listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Returns a snapshot of the arena, reusing the last one if nothing has changed since.
+     *
+     * @param tick the current time on the game clock
+     */
+    GridSnapshot snapshot(int tick) {
+        if (this.snapshot != null && this.snapshot.version == this.version) return this.snapshot;
+
+        var bombs = new BitSet(this.tiles.length);
+        var lying = new BitSet(this.tiles.length);
+        var index = this.danger.getBombs();
+        for (int t = 0; t < this.tiles.length; t++) {
+            if (index[t] != null) bombs.set(t);
+            if (this.powerups[t] != null) lying.set(t);
+        }
+
+        this.danger.publish();
+        this.snapshot = new GridSnapshot(this, this.version, tick, bombs, lying, this.danger.getSnapshot());
+        return this.snapshot;
+    }
+
+    /**
+     * Moves a living participant onto a tile.
+     *
+     * @param tile the tile, or -1 if the participant is outside the arena
+     */
+    void move(int slot, int tile) {
+        if (!this.participants.alive[slot]) return;
+        this.participants.tile[slot] = tile >= 0 && tile < this.tiles.length ? tile : -1;
+    }
+
+    /**
+     * Places a bomb for a participant, if it's allowed to: it has to be alive, have a bomb to spare and be past its
+     * cooldown, and the tile has to be empty.
+     *
+     * @return the bomb, or null if none was placed
+     */
+    Bomb placeBomb(int slot, int x, int y) {
+        var players = this.participants;
+        if (!players.alive[slot]) return null;
+        if (players.placedBombs[slot] >= players.bombs[slot]) return null; // can't place any more bombs
+        if (this.now < players.bombReadyAt[slot]) return null; // wait for cooldown
+
+        var bomb = new Bomb();
+        bomb.x = x;
+        bomb.y = y;
+        bomb.owner = slot;
+        bomb.power = players.power[slot];
+        bomb.detonateAt = this.now + BOMB_FUSE_TICKS;
+        if (!this.put(bomb)) return null; // outside the arena, in a wall, or already holding a bomb
+
+        bomb.armed = true;
+        players.placedBombs[slot]++;
+        players.totalBombs[slot]++;
+        players.bombReadyAt[slot] = this.now + BOMB_COOLDOWN_TICKS;
+        this.fuses.schedule(bomb);
+        for (var listener : this.listeners) listener.bombPlaced(bomb);
+        return bomb;
+    }
+
+    /**
+     * Puts a bomb back on its tile, as when restoring a recorded state. An armed bomb counts against its owner's
+     * bombs and goes off when its fuse runs out; any other bomb stays until removed.
+     *
+     * @return false, without placing it, if the tile is outside the arena, is a wall, or already holds a bomb
+     */
+    boolean restoreBomb(Bomb bomb, boolean armed) {
+        if (!this.put(bomb)) return false;
+
+        if (armed) {
+            bomb.armed = true;
+            this.participants.placedBombs[bomb.owner]++;
+            this.fuses.schedule(bomb);
+        }
+
+        for (var listener : this.listeners) listener.bombPlaced(bomb);
+        return true;
+    }
+
+    /**
+     * Removes the bomb on a tile without a blast, as when restoring a recorded state.
+     *
+     * @param detonated if listeners should be told the bomb detonated, rather than that it was taken away
+     * @return the bomb, or null if the tile held none
+     */
+    Bomb removeBomb(int tile, boolean detonated) {
+        var bomb = this.danger.getBomb(tile);
+        if (bomb == null) return null;
+
+        this.disarm(bomb);
+        this.danger.remove(List.of(bomb));
+        this.version++;
+        for (var listener : this.listeners) {
+            if (detonated) listener.bombDetonated(bomb);
+            else listener.bombRemoved(bomb);
+        }
+
+        return bomb;
+    }
+
+    /**
+     * Removes every bomb without setting any off.
+     */
+    void clearBombs() {
+        var bombs = this.danger.getBombs();
+        for (var bomb : bombs) {
+            if (bomb == null) continue;
+
+            this.disarm(bomb);
+            for (var listener : this.listeners) listener.bombRemoved(bomb);
+        }
+
+        this.fuses.clear();
+        this.danger.clear();
+        this.version++;
+    }
+
+    /**
+     * Sets the space of a tile, as when restoring a recorded state.
+     */
+    void restoreSpace(int tile, Space space) {
+        if (this.tiles[tile] == space) return;
+
+        // the resolver's reach tables assume fixed solid walls, so they're rebuilt when the next bombs go off
+        if (this.tiles[tile] == Space.SOLID || space == Space.SOLID) this.explosions = null;
+        this.setSpace(tile, space);
+
+        // blasts reaching this tile may now stop short of it, or pass through it
+        var changed = new BitSet();
+        changed.set(tile);
+        this.danger.wallsBroken(changed);
+    }
+
+    /**
+     * Sets the powerup lying on a tile, as when restoring a recorded state.
+     */
+    void restorePowerup(int tile, Powerup powerup) {
+        if (this.powerups[tile] != powerup) this.setPowerup(tile, powerup);
+    }
+
+    /**
+     * Advances the match to a tick. Participants first take the powerups on their tiles, in slot order, then every bomb
+     * whose fuse ran out since the last tick goes off, along with the bombs caught in their blasts.
+     */
+    void tick(int now) {
+        this.now = now;
+
+        var players = this.participants;
+        for (int slot = 0; slot < players.size(); slot++) {
+            var tile = players.tile[slot];
+            if (!players.alive[slot] || tile < 0 || this.powerups[tile] == null) continue;
+
+            var powerup = this.powerups[tile];
+            this.setPowerup(tile, null);
+            players.addPowerup(slot, powerup);
+            for (var listener : this.listeners) listener.powerupTaken(slot, powerup);
+        }
+
+        // only bombs whose fuse ran out since the last tick are visited, in the order they ran out
+        this.fuses.advance(now, this.due);
+        if (!this.due.isEmpty()) this.detonate(this.due);
+        this.due.clear();
+    }
+
+    // ---
+    //
+    // internal
+    //
+    // ---
+
+    private boolean put(Bomb bomb) {
+        if (this.getSpace(bomb.x, bomb.y) != Space.EMPTY) return false;
+        if (!this.danger.place(bomb)) return false;
+
+        this.version++;
+        return true;
+    }
+
+    /**
+     * Takes a bomb off its fuse, giving its owner the bomb back if it was armed.
+     */
+    private void disarm(Bomb bomb) {
+        this.fuses.cancel(bomb);
+        if (!bomb.armed) return;
+
+        bomb.armed = false;
+        this.participants.placedBombs[bomb.owner]--;
+    }
+
+    /**
+     * Sets off a batch of bombs. Blasts destroy the powerups and catch the participants on every tile they reach, then
+     * break the soft walls they stop at, each of which may drop a powerup.
+     */
+    private void detonate(List<Bomb> due) {
+        if (this.explosions == null) this.explosions = new ExplosionResolver(this);
+        var result = this.explosions.resolve(due, this.danger.getBombs());
+
+        var players = this.participants;
+        // bombs set off by another blast are still waiting on their own fuse, and bombs put back unarmed were never
+        // counted against their owner
+        for (var bomb : result.getDetonated()) this.disarm(bomb);
+
+        this.danger.remove(result.getDetonated());
+        for (var bomb : result.getDetonated()) {
+            for (var listener : this.listeners) listener.bombDetonated(bomb);
+        }
+
+        var hit = result.getHitTiles();
+        for (int t = hit.nextSetBit(0); t >= 0; t = hit.nextSetBit(t + 1)) {
+            for (var listener : this.listeners) listener.tileBlasted(t, result.getCause(t));
+            if (this.powerups[t] != null) this.setPowerup(t, null);
+        }
+
+        for (int slot = 0; slot < players.size(); slot++) {
+            var tile = players.tile[slot];
+            if (!players.alive[slot] || tile < 0 || !hit.get(tile)) continue;
+
+            var bomb = result.getCause(tile);
+            if (bomb.owner != slot && !players.isAlly(bomb.owner, slot)) players.eliminations[bomb.owner]++;
+            players.eliminate(slot);
+            for (var listener : this.listeners) listener.eliminated(slot, bomb);
+        }
+
+        var destroyed = result.getDestroyedWalls();
+        for (int t = destroyed.nextSetBit(0); t >= 0; t = destroyed.nextSetBit(t + 1)) {
+            this.setSpace(t, Space.EMPTY);
+
+            var dropped = this.rollDrop();
+            if (dropped != null) this.setPowerup(t, dropped);
+        }
+
+        this.danger.wallsBroken(destroyed);
+        this.version++;
+    }
+
+    /**
+     * @return the powerup a broken soft wall drops, or null; each powerup drops from a quarter of walls
+     */
+    private Powerup rollDrop() {
+        this.rolls++;
+        return switch (this.drops.nextInt(4)) {
+            case 0 -> Powerup.SPEED;
+            case 1 -> Powerup.POWER;
+            case 2 -> Powerup.BOMBS;
+            default -> null;
+        };
+    }
+
+    private void setSpace(int tile, Space space) {
+        this.tiles[tile] = space;
+        this.version++;
+        for (var listener : this.listeners) listener.spaceChanged(tile, space);
+    }
+
+    private void setPowerup(int tile, Powerup powerup) {
+        this.powerups[tile] = powerup;
+        this.version++;
+        for (var listener : this.listeners) listener.powerupChanged(tile, powerup);
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A sidebar showing the state of a match to its players.
+ * <p/>
+ * Each line is a team prefix on a fixed, invisible entry, so changing a line's text is a single team update rather than
+ * removing and re-adding a score. The text last sent for each line is kept, so setting a line to the text it already
+ * shows sends nothing, and at most {@link #UPDATES_PER_FLUSH} changed lines are sent per {@link #flush()}; the rest
+ * follow on later flushes.
+ * <p/>
+ * Scoreboards are costly to set up, so a hud belongs to an arena slot and is {@link #reset()} and reused by every match
+ * played there.
+ */
+public class MatchHud {
+
+    /**
+     * The most lines a sidebar can show.
+     */
+    public static final int MAX_LINES = 15;
+
+    /**
+     * The most lines sent per flush.
+     */
+    public static final int UPDATES_PER_FLUSH = 4;
+
+    /**
+     * The longest text shown on a line.
+     */
+    public static final int MAX_LINE_LENGTH = 64;
+
+    private final Scoreboard board;
+    private final Objective objective;
+    private final Team[] teams = new Team[MAX_LINES];
+    private final String[] entries = new String[MAX_LINES];
+    private final String[] shown = new String[MAX_LINES];
+    private final String[] wanted = new String[MAX_LINES];
+    private final List<Player> viewers = new ArrayList<>();
+    private String title = "";
+
+    MatchHud() {
+        this.board = Bukkit.getScoreboardManager().getNewScoreboard();
+        this.objective = this.board.registerNewObjective("bomberman", "dummy", this.title);
+
+        var colors = ChatColor.values();
+        for (int i = 0; i < MAX_LINES; i++) {
+            // each line needs a distinct entry that renders as nothing
+            this.entries[i] = colors[i].toString() + ChatColor.RESET;
+            this.teams[i] = this.board.registerNewTeam("line" + i);
+            this.teams[i].addEntry(this.entries[i]);
+        }
+    }
+
+    public void setTitle(String title) {
+        if (title.equals(this.title)) return;
+
+        this.title = title;
+        this.objective.setDisplayName(title);
+    }
+
+    /**
+     * Sets the text of a line, counted from the top. The change is sent on a later {@link #flush()}.
+     *
+     * @param line the line
+     * @param text the text, or null to hide the line
+     */
+    public void setLine(int line, String text) {
+        if (line < 0 || line >= MAX_LINES) throw new IllegalArgumentException("Line " + line + " is out of range.");
+        if (text != null && text.length() > MAX_LINE_LENGTH) text = text.substring(0, MAX_LINE_LENGTH);
+
+        this.wanted[line] = text;
+    }
+
+    /**
+     * Hides every line from a given line onward.
+     */
+    public void clearFrom(int line) {
+        for (int i = Math.max(0, line); i < MAX_LINES; i++) this.wanted[i] = null;
+    }
+
+    /**
+     * Shows this hud to a player.
+     */
+    public void show(Player player) {
+        if (this.viewers.contains(player)) return;
+
+        if (this.viewers.isEmpty()) this.objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+        this.viewers.add(player);
+        player.setScoreboard(this.board);
+    }
+
+    /**
+     * Returns a player to the server's main scoreboard.
+     */
+    public void hide(Player player) {
+        if (!this.viewers.remove(player)) return;
+        if (player.isOnline()) player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+    }
+
+    /**
+     * Sends up to {@link #UPDATES_PER_FLUSH} changed lines.
+     */
+    public void flush() {
+        var sent = 0;
+        for (int i = 0; i < MAX_LINES && sent < UPDATES_PER_FLUSH; i++) {
+            if (Objects.equals(this.wanted[i], this.shown[i])) continue;
+
+            var text = this.wanted[i];
+            if (text == null) {
+                this.board.resetScores(this.entries[i]);
+            } else {
+                this.teams[i].setPrefix(text);
+                if (this.shown[i] == null) this.objective.getScore(this.entries[i]).setScore(MAX_LINES - i);
+            }
+
+            this.shown[i] = text;
+            sent++;
+        }
+    }
+
+    /**
+     * Hides this hud from every viewer and clears its lines, readying it for another match.
+     */
+    void reset() {
+        for (var viewer : new ArrayList<>(this.viewers)) this.hide(viewer);
+        this.board.clearSlot(DisplaySlot.SIDEBAR);
+
+        for (int i = 0; i < MAX_LINES; i++) {
+            if (this.shown[i] != null) this.board.resetScores(this.entries[i]);
+            this.shown[i] = null;
+            this.wanted[i] = null;
+        }
+    }
+
+}
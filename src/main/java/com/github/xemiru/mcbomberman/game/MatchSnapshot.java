@@ -0,0 +1,291 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * The state of a running match, captured so that it can be resumed after the plugin is reloaded or the server restarts.
+ * <p/>
+ * Capturing only copies the module's arrays, so it takes microseconds and can be done on the tick; encoding is left to
+ * the {@link SnapshotStore}'s writer thread.
+ * <p/>
+ * <h1>Format</h1>
+ * All values are big-endian, and strings are a short length followed by UTF-8 bytes. A snapshot holds, in order:
+ * <ul>
+ *     <li>the magic number {@code BMMS} and a version byte;</li>
+ *     <li>the simple name of the game's state class;</li>
+ *     <li>a flags byte (bit 0 if pieces are virtual, bit 1 if the game clock follows wall time), the number of teams as
+ *     a byte, the index of the arena within its pool as an int, the arena's width and height as shorts, and the ticks
+ *     since the match started as an int;</li>
+ *     <li>the seed the match's powerup drops are rolled from as a long, and the number of drops rolled so far as an
+ *     int;</li>
+ *     <li>the tiles, row by row, packed four to a byte like in an {@link ArenaCatalog};</li>
+ *     <li>a short holding the number of powerups lying in the arena, then each one's tile as an int and powerup
+ *     ordinal as a byte;</li>
+ *     <li>a short holding the number of bombs, then each one's tile as an int, owner as a short, power as a byte and
+ *     ticks left on its fuse as a short;</li>
+ *     <li>a short holding the number of participants, then for each: a flags byte (bit 0 if a bot, bit 1 if alive),
+ *     its UUID as two longs (zero for bots), name, team as a byte (-1 for none), speed, power and bomb stats as bytes,
+ *     eliminations, bombs placed and powerups taken as ints, and its tile as an int (-1 if not in the arena);</li>
+ *     <li>a CRC32 of every preceding byte, as an int.</li>
+ * </ul>
+ */
+public class MatchSnapshot {
+
+    static final int MAGIC = 0x424D4D53; // BMMS
+    static final byte VERSION = 1;
+
+    String name;
+    String state;
+    boolean virtualPieces, realtime;
+    int teams;
+    int arenaIndex;
+    int width, height;
+    int elapsed;
+    long seed;
+    int rolls;
+    byte[] tiles;
+
+    int[] powerupTiles;
+    Powerup[] powerups;
+
+    int[] bombTiles, bombOwners, bombPowers, bombFuses;
+
+    UUID[] ids;
+    String[] names;
+    boolean[] alive;
+    int[] team, speed, power, bombs, eliminations, totalBombs, totalPowerups, positions;
+
+    MatchSnapshot() {
+    }
+
+    /**
+     * @return the name the snapshot is stored under
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the simple name of the state the game was in
+     */
+    public String getState() {
+        return this.state;
+    }
+
+    public boolean isVirtualPieces() {
+        return this.virtualPieces;
+    }
+
+    /**
+     * @return if the game's clock followed wall time
+     */
+    public boolean isRealtime() {
+        return this.realtime;
+    }
+
+    public int getTeams() {
+        return this.teams;
+    }
+
+    /**
+     * @return the index of the match's arena within its pool
+     */
+    public int getArenaIndex() {
+        return this.arenaIndex;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return the seed the match's powerup drops are rolled from
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * @return the number of participants, players and bots
+     */
+    public int getParticipants() {
+        return this.ids.length;
+    }
+
+    /**
+     * @return the UUID of a participating player, or null if the participant is a bot
+     */
+    public UUID getId(int slot) {
+        return this.ids[slot];
+    }
+
+    public boolean isAlive(int slot) {
+        return this.alive[slot];
+    }
+
+    ByteBuffer encode() {
+        var size = 64 + this.state.length() * 3 + (this.tiles.length + 3) / 4
+                + this.powerupTiles.length * 5 + this.bombTiles.length * 9;
+        for (var name : this.names) size += 64 + name.length() * 3;
+
+        var buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).put(VERSION);
+        putString(buf, this.state);
+        buf.put((byte) ((this.virtualPieces ? 1 : 0) | (this.realtime ? 2 : 0)))
+                .put((byte) this.teams)
+                .putInt(this.arenaIndex)
+                .putShort((short) this.width)
+                .putShort((short) this.height)
+                .putInt(this.elapsed)
+                .putLong(this.seed)
+                .putInt(this.rolls);
+
+        for (int i = 0; i < this.tiles.length; i += 4) {
+            var packed = 0;
+            for (int j = 0; j < 4 && i + j < this.tiles.length; j++) packed |= this.tiles[i + j] << (j * 2);
+            buf.put((byte) packed);
+        }
+
+        buf.putShort((short) this.powerupTiles.length);
+        for (int i = 0; i < this.powerupTiles.length; i++) buf.putInt(this.powerupTiles[i]).put((byte) this.powerups[i].ordinal());
+
+        buf.putShort((short) this.bombTiles.length);
+        for (int i = 0; i < this.bombTiles.length; i++) {
+            buf.putInt(this.bombTiles[i])
+                    .putShort((short) this.bombOwners[i])
+                    .put((byte) this.bombPowers[i])
+                    .putShort((short) this.bombFuses[i]);
+        }
+
+        buf.putShort((short) this.ids.length);
+        for (int slot = 0; slot < this.ids.length; slot++) {
+            var id = this.ids[slot];
+            buf.put((byte) ((id == null ? 1 : 0) | (this.alive[slot] ? 2 : 0)))
+                    .putLong(id == null ? 0 : id.getMostSignificantBits())
+                    .putLong(id == null ? 0 : id.getLeastSignificantBits());
+            putString(buf, this.names[slot]);
+            buf.put((byte) this.team[slot])
+                    .put((byte) this.speed[slot])
+                    .put((byte) this.power[slot])
+                    .put((byte) this.bombs[slot])
+                    .putInt(this.eliminations[slot])
+                    .putInt(this.totalBombs[slot])
+                    .putInt(this.totalPowerups[slot])
+                    .putInt(this.positions[slot]);
+        }
+
+        var crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        return buf.putInt((int) crc.getValue()).flip();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data isn't a snapshot, or is corrupt
+     */
+    static MatchSnapshot decode(String name, ByteBuffer buf) {
+        if (buf.remaining() < 9 || buf.getInt(0) != MAGIC) throw new IllegalArgumentException("File is not a match snapshot.");
+        var version = buf.get(4);
+        if (version != VERSION) throw new IllegalArgumentException("Unsupported match snapshot version " + version + ".");
+
+        var crc = new CRC32();
+        crc.update(buf.slice(0, buf.limit() - 4));
+        if ((int) crc.getValue() != buf.getInt(buf.limit() - 4))
+            throw new IllegalArgumentException("Match snapshot is corrupt (checksum mismatch).");
+
+        var snapshot = new MatchSnapshot();
+        snapshot.name = name;
+        buf.position(5);
+        snapshot.state = getString(buf);
+
+        var flags = buf.get();
+        snapshot.virtualPieces = (flags & 1) != 0;
+        snapshot.realtime = (flags & 2) != 0;
+        snapshot.teams = buf.get();
+        snapshot.arenaIndex = buf.getInt();
+        snapshot.width = buf.getShort();
+        snapshot.height = buf.getShort();
+        snapshot.elapsed = buf.getInt();
+        snapshot.seed = buf.getLong();
+        snapshot.rolls = buf.getInt();
+
+        snapshot.tiles = new byte[snapshot.width * snapshot.height];
+        var packed = 0;
+        for (int i = 0; i < snapshot.tiles.length; i++) {
+            if (i % 4 == 0) packed = buf.get();
+            snapshot.tiles[i] = (byte) ((packed >> ((i % 4) * 2)) & 0b11);
+        }
+
+        var count = buf.getShort();
+        snapshot.powerupTiles = new int[count];
+        snapshot.powerups = new Powerup[count];
+        for (int i = 0; i < count; i++) {
+            snapshot.powerupTiles[i] = buf.getInt();
+            snapshot.powerups[i] = Powerup.values()[buf.get()];
+        }
+
+        count = buf.getShort();
+        snapshot.bombTiles = new int[count];
+        snapshot.bombOwners = new int[count];
+        snapshot.bombPowers = new int[count];
+        snapshot.bombFuses = new int[count];
+        for (int i = 0; i < count; i++) {
+            snapshot.bombTiles[i] = buf.getInt();
+            snapshot.bombOwners[i] = buf.getShort();
+            snapshot.bombPowers[i] = buf.get();
+            snapshot.bombFuses[i] = buf.getShort();
+        }
+
+        count = buf.getShort();
+        snapshot.allocate(count);
+        for (int slot = 0; slot < count; slot++) {
+            flags = buf.get();
+            var id = new UUID(buf.getLong(), buf.getLong());
+            snapshot.ids[slot] = (flags & 1) != 0 ? null : id;
+            snapshot.alive[slot] = (flags & 2) != 0;
+            snapshot.names[slot] = getString(buf);
+            snapshot.team[slot] = buf.get();
+            snapshot.speed[slot] = buf.get();
+            snapshot.power[slot] = buf.get();
+            snapshot.bombs[slot] = buf.get();
+            snapshot.eliminations[slot] = buf.getInt();
+            snapshot.totalBombs[slot] = buf.getInt();
+            snapshot.totalPowerups[slot] = buf.getInt();
+            snapshot.positions[slot] = buf.getInt();
+        }
+
+        return snapshot;
+    }
+
+    void allocate(int participants) {
+        this.ids = new UUID[participants];
+        this.names = new String[participants];
+        this.alive = new boolean[participants];
+        this.team = new int[participants];
+        this.speed = new int[participants];
+        this.power = new int[participants];
+        this.bombs = new int[participants];
+        this.eliminations = new int[participants];
+        this.totalBombs = new int[participants];
+        this.totalPowerups = new int[participants];
+        this.positions = new int[participants];
+    }
+
+    private static void putString(ByteBuffer buf, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        var bytes = new byte[buf.getShort()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
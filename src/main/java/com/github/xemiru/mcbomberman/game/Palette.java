@@ -0,0 +1,30 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Material;
+
+/**
+ * The materials an arena is built from in the world: its floor, its outer and solid walls, and its soft walls.
+ */
+public class Palette {
+
+    private final Material floorTile, wallTile, softWallTile;
+
+    public Palette(Material floorTile, Material wallTile, Material softWallTile) {
+        this.floorTile = floorTile;
+        this.wallTile = wallTile;
+        this.softWallTile = softWallTile;
+    }
+
+    public Material getFloorTile() {
+        return this.floorTile;
+    }
+
+    public Material getWallTile() {
+        return this.wallTile;
+    }
+
+    public Material getSoftWallTile() {
+        return this.softWallTile;
+    }
+
+}
@@ -0,0 +1,278 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.util.Arrays;
+
+/**
+ * The participants of a match and the stats the rules care about.
+ * <p/>
+ * Each participant is given a small slot number when it joins, and every stat is kept in a primitive array indexed by
+ * slot, so per-tick work walks plain arrays rather than looking participants up. Slots aren't reused within a match; an
+ * eliminated participant keeps its slot and stats. Cooldowns are stored as the tick they end on, so nothing needs
+ * counting down.
+ * <p/>
+ * Participants know nothing of the server; see {@link PlayerSlots} for the players and bodies behind them.
+ */
+public class Participants {
+
+    /**
+     * The highest level any stat can be raised to.
+     */
+    public static final int MAX_STAT = 8;
+
+    private int count = 0;
+    private int living = 0;
+
+    boolean[] alive = new boolean[0];
+    int[] speed = new int[0], power = new int[0], bombs = new int[0], placedBombs = new int[0];
+    int[] eliminations = new int[0];
+
+    /**
+     * If each participant left before the match was decided, which loses it the match even if its team wins.
+     */
+    boolean[] forfeited = new boolean[0];
+
+    /**
+     * How many bombs each participant has placed and powerups each has taken over the whole match.
+     */
+    int[] totalBombs = new int[0], totalPowerups = new int[0];
+
+    /**
+     * The team each participant plays for, or -1 when playing alone.
+     */
+    int[] team = new int[0];
+
+    /**
+     * The tick each participant may next place a bomb on.
+     */
+    int[] bombReadyAt = new int[0];
+
+    /**
+     * The tile each participant stands on, or -1 if it is outside the arena or eliminated.
+     */
+    int[] tile = new int[0];
+
+    /**
+     * Adds a participant with fresh stats.
+     *
+     * @return the participant's slot
+     */
+    int join() {
+        if (this.count == this.alive.length) this.allocate(Math.max(8, this.count * 2));
+
+        var slot = this.count++;
+        this.alive[slot] = true;
+        this.speed[slot] = 1;
+        this.power[slot] = 1;
+        this.bombs[slot] = 1;
+        this.placedBombs[slot] = 0;
+        this.eliminations[slot] = 0;
+        this.forfeited[slot] = false;
+        this.totalBombs[slot] = 0;
+        this.totalPowerups[slot] = 0;
+        this.team[slot] = -1;
+        this.bombReadyAt[slot] = Integer.MIN_VALUE;
+        this.tile[slot] = -1;
+        this.living++;
+        return slot;
+    }
+
+    /**
+     * @return the number of slots handed out
+     */
+    public int size() {
+        return this.count;
+    }
+
+    public int getLivingCount() {
+        return this.living;
+    }
+
+    public boolean isAlive(int slot) {
+        return this.alive[slot];
+    }
+
+    public int getTeam(int slot) {
+        return this.team[slot];
+    }
+
+    /**
+     * @return if two participants play for the same team
+     */
+    public boolean isAlly(int slot, int other) {
+        return this.team[slot] >= 0 && this.team[slot] == this.team[other];
+    }
+
+    /**
+     * Splits the participants into teams. Participants that joined next to each other, who were given neighbouring
+     * spawns, are put on the same team.
+     *
+     * @param teams the number of teams, or 0 for everyone to play alone
+     */
+    void assignTeams(int teams) {
+        for (int slot = 0; slot < this.count; slot++) this.team[slot] = teams == 0 ? -1 : slot * teams / this.count;
+    }
+
+    /**
+     * @return the number of participants on a team who are still alive
+     */
+    public int getLivingCount(int team) {
+        var living = 0;
+        for (int slot = 0; slot < this.count; slot++) {
+            if (this.alive[slot] && this.team[slot] == team) living++;
+        }
+
+        return living;
+    }
+
+    /**
+     * @return the number of participants on a team
+     */
+    public int getTeamSize(int team) {
+        var size = 0;
+        for (int slot = 0; slot < this.count; slot++) {
+            if (this.team[slot] == team) size++;
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns if the match is over: at most one participant, or one team, is left standing. A match played alone is
+     * only over once its one participant is eliminated.
+     */
+    public boolean isDecided() {
+        if (this.count == 1) return this.living == 0;
+
+        var standing = -1;
+        for (int slot = 0; slot < this.count; slot++) {
+            if (!this.alive[slot]) continue;
+            if (standing < 0) standing = slot;
+            else if (!this.isAlly(standing, slot)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return if a participant is on the winning side: it is still alive, or in a team game, someone on its team is;
+     * a participant that forfeited never wins
+     */
+    public boolean hasWon(int slot) {
+        if (this.forfeited[slot]) return false;
+        return this.team[slot] >= 0 ? this.getLivingCount(this.team[slot]) > 0 : this.alive[slot];
+    }
+
+    /**
+     * @return if a participant left the match before it was decided
+     */
+    public boolean hasForfeited(int slot) {
+        return this.forfeited[slot];
+    }
+
+    void eliminate(int slot) {
+        if (!this.alive[slot]) return;
+
+        this.alive[slot] = false;
+        this.tile[slot] = -1;
+        this.living--;
+    }
+
+    /**
+     * Eliminates a participant that left the match, so that the match can be decided without it. It loses the match
+     * even if its team goes on to win.
+     */
+    void forfeit(int slot) {
+        if (!this.alive[slot]) return;
+
+        this.forfeited[slot] = true;
+        this.eliminate(slot);
+    }
+
+    /**
+     * Raises the stat a powerup improves, up to {@link #MAX_STAT}.
+     *
+     * @return false if there was no powerup
+     */
+    boolean addPowerup(int slot, Powerup powerup) {
+        if (powerup == null) return false;
+        switch (powerup) {
+            case POWER -> this.power[slot] = Math.min(this.power[slot] + 1, MAX_STAT);
+            case SPEED -> this.speed[slot] = Math.min(this.speed[slot] + 1, MAX_STAT);
+            case BOMBS -> this.bombs[slot] = Math.min(this.bombs[slot] + 1, MAX_STAT);
+        }
+
+        this.totalPowerups[slot]++;
+        return true;
+    }
+
+    public int getSpeed(int slot) {
+        return this.speed[slot];
+    }
+
+    public int getPower(int slot) {
+        return this.power[slot];
+    }
+
+    public int getBombs(int slot) {
+        return this.bombs[slot];
+    }
+
+    public int getPlacedBombs(int slot) {
+        return this.placedBombs[slot];
+    }
+
+    /**
+     * @return the number of other participants eliminated by this participant's bombs
+     */
+    public int getEliminations(int slot) {
+        return this.eliminations[slot];
+    }
+
+    /**
+     * @return the number of bombs this participant has placed over the match
+     */
+    public int getTotalBombs(int slot) {
+        return this.totalBombs[slot];
+    }
+
+    /**
+     * @return the number of powerups this participant has taken over the match
+     */
+    public int getTotalPowerups(int slot) {
+        return this.totalPowerups[slot];
+    }
+
+    /**
+     * @return the tile a participant stands on, or -1
+     */
+    public int getTile(int slot) {
+        return this.tile[slot];
+    }
+
+    /**
+     * Removes every participant.
+     */
+    void clear() {
+        this.count = 0;
+        this.living = 0;
+    }
+
+    /**
+     * Grows every per-slot array to a capacity. Subclasses keeping arrays of their own should grow them here too.
+     */
+    void allocate(int capacity) {
+        this.alive = Arrays.copyOf(this.alive, capacity);
+        this.speed = Arrays.copyOf(this.speed, capacity);
+        this.power = Arrays.copyOf(this.power, capacity);
+        this.bombs = Arrays.copyOf(this.bombs, capacity);
+        this.placedBombs = Arrays.copyOf(this.placedBombs, capacity);
+        this.eliminations = Arrays.copyOf(this.eliminations, capacity);
+        this.forfeited = Arrays.copyOf(this.forfeited, capacity);
+        this.totalBombs = Arrays.copyOf(this.totalBombs, capacity);
+        this.totalPowerups = Arrays.copyOf(this.totalPowerups, capacity);
+        this.team = Arrays.copyOf(this.team, capacity);
+        this.bombReadyAt = Arrays.copyOf(this.bombReadyAt, capacity);
+        this.tile = Arrays.copyOf(this.tile, capacity);
+    }
+
+}
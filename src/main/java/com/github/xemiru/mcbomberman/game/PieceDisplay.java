@@ -0,0 +1,85 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows the bombs and powerups of a {@link BombermanGrid} without spawning entities for them.
+ * <p/>
+ * Each piece is shown by replacing the floor under its tile with a marker block, sent only to the clients of players
+ * near the arena. Tiles are sent when they change; every {@link #RESYNC_TICKS} ticks every marked tile is sent again,
+ * covering players who came into range since and chunks resent by the server.
+ */
+class PieceDisplay {
+
+    /**
+     * How often, in ticks, every marked tile is sent again.
+     */
+    static final int RESYNC_TICKS = 20 * 5;
+
+    private final BombermanGrid grid;
+    private final BitSet dirty;
+    private final List<Player> viewers = new ArrayList<>();
+    private final Map<Material, BlockData> blocks = new EnumMap<>(Material.class);
+    private final Location scratch;
+    private int sinceResync = 0;
+
+    PieceDisplay(BombermanGrid grid) {
+        this.grid = grid;
+        this.dirty = new BitSet(grid.getWidth() * grid.getHeight());
+        this.scratch = grid.getNorthwestCorner().clone();
+    }
+
+    /**
+     * Queues a tile to be sent on the next {@link #flush()}.
+     */
+    void mark(int tile) {
+        this.dirty.set(tile);
+    }
+
+    /**
+     * Sends every changed tile to the players in range.
+     */
+    void flush() {
+        if (++this.sinceResync >= RESYNC_TICKS) {
+            this.sinceResync = 0;
+            for (int t = 0; t < this.grid.getWidth() * this.grid.getHeight(); t++) {
+                if (this.grid.getPieceMarker(t) != null) this.dirty.set(t);
+            }
+        }
+
+        if (this.dirty.isEmpty()) return;
+
+        this.grid.collectViewers(EffectBatcher.VIEW_DISTANCE, this.viewers);
+        if (!this.viewers.isEmpty()) {
+            var width = this.grid.getWidth();
+            var y = this.grid.getNorthwestCorner().getBlockY();
+            for (int t = this.dirty.nextSetBit(0); t >= 0; t = this.dirty.nextSetBit(t + 1)) {
+                var marker = this.grid.getPieceMarker(t);
+                var block = this.blocks.computeIfAbsent(marker != null ? marker : this.grid.getFloorTile(), Material::createBlockData);
+                var x = this.grid.getTileBlockX(t % width);
+                var z = this.grid.getTileBlockZ(t / width);
+
+                for (int i = 0; i < 4; i++) {
+                    this.scratch.setX(x + (i & 1));
+                    this.scratch.setY(y);
+                    this.scratch.setZ(z + (i >> 1));
+                    for (var viewer : this.viewers) viewer.sendBlockChange(this.scratch, block);
+                }
+            }
+
+            this.viewers.clear();
+        }
+
+        this.dirty.clear();
+    }
+
+}
@@ -10,20 +10,15 @@ public class PlayState extends GameState {
 
     @Override
     protected void onInit() {
-        game.forEachPlayer(p -> {
-            bomberman.getPlayer(p).ifPresent(bp -> {
-                bp.applyToPlayer(p);
-            });
-        });
-
+        bomberman.setFrozen(false);
         bomberman.setAllowActions(true);
     }
 
     @Override
     protected void tick() {
-        /* if (bomberman.getLivingPlayers() <= 1) {
+        if (bomberman.isDecided()) {
             game.setState(new WinState());
-        } */
+        }
     }
 
     @Override
@@ -0,0 +1,135 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The participants of a match, their stats, and the players and bodies behind them.
+ * <p/>
+ * A participant is either a player or a bot. Every participant has a body, the entity that stands in the arena and is
+ * caught in blasts; for players it is the player itself, while bots have no {@link Player} at all.
+ */
+public class PlayerSlots extends Participants {
+
+    public static final float MAX_WALKSPEED = 0.25f;
+    public static final float MIN_WALKSPEED = 0.15f;
+    public static final float WALKSPEED_INC = (MAX_WALKSPEED - MIN_WALKSPEED) / 7f;
+
+    private final Map<UUID, Integer> slots = new HashMap<>();
+
+    Player[] players = new Player[0];
+    Entity[] bodies = new Entity[0];
+    String[] names = new String[0];
+    PlayerSync[] syncs = new PlayerSync[0];
+
+    /**
+     * Registers a participant, giving it fresh stats.
+     *
+     * @return the participant's slot
+     */
+    int register(Player player) {
+        var slot = this.register(player, player.getName());
+        this.players[slot] = player;
+        this.syncs[slot] = new PlayerSync();
+        return slot;
+    }
+
+    /**
+     * Registers a bot, giving it fresh stats.
+     *
+     * @param body the entity standing in for the bot
+     * @param name the bot's name
+     * @return the bot's slot
+     */
+    int registerBot(Entity body, String name) {
+        return this.register(body, name);
+    }
+
+    private int register(Entity body, String name) {
+        if (this.slots.containsKey(body.getUniqueId()))
+            throw new IllegalArgumentException(name + " is already registered.");
+
+        var slot = this.join();
+        this.slots.put(body.getUniqueId(), slot);
+        this.bodies[slot] = body;
+        this.names[slot] = name;
+        return slot;
+    }
+
+    /**
+     * @return the slot of a participant's body, or -1 if it was never registered
+     */
+    public int getSlot(Entity body) {
+        return this.getSlot(body.getUniqueId());
+    }
+
+    /**
+     * @return the slot of a participant's body, or -1 if it was never registered
+     */
+    public int getSlot(UUID body) {
+        var slot = this.slots.get(body);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the slot of a participant's body if it is still alive, or -1
+     */
+    public int getLivingSlot(Entity body) {
+        var slot = this.getSlot(body);
+        return slot >= 0 && this.alive[slot] ? slot : -1;
+    }
+
+    /**
+     * @return the player in a slot, or null if it holds a bot
+     */
+    public Player getPlayer(int slot) {
+        return this.players[slot];
+    }
+
+    public Entity getBody(int slot) {
+        return this.bodies[slot];
+    }
+
+    public String getName(int slot) {
+        return this.names[slot];
+    }
+
+    public boolean isBot(int slot) {
+        return this.players[slot] == null;
+    }
+
+    public float getWalkSpeed(int slot) {
+        var speed = this.speed[slot];
+        if (speed == 1) return MIN_WALKSPEED;
+        if (speed == MAX_STAT) return MAX_WALKSPEED;
+        return MIN_WALKSPEED + ((speed - 1) * WALKSPEED_INC);
+    }
+
+    /**
+     * Removes every participant.
+     */
+    @Override
+    void clear() {
+        Arrays.fill(this.players, 0, this.size(), null);
+        Arrays.fill(this.bodies, 0, this.size(), null);
+        Arrays.fill(this.names, 0, this.size(), null);
+        Arrays.fill(this.syncs, 0, this.size(), null);
+        this.slots.clear();
+        super.clear();
+    }
+
+    @Override
+    void allocate(int capacity) {
+        super.allocate(capacity);
+        this.players = Arrays.copyOf(this.players, capacity);
+        this.bodies = Arrays.copyOf(this.bodies, capacity);
+        this.names = Arrays.copyOf(this.names, capacity);
+        this.syncs = Arrays.copyOf(this.syncs, capacity);
+    }
+
+}
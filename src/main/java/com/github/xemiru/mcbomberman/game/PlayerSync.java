@@ -0,0 +1,105 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Pushes a participant's stats to its player, sending only what changed since the last push.
+ * <p/>
+ * The hotbar, walk speed and the effect disabling jumping are remembered as last applied. Each call to
+ * {@link #apply(Player, PlayerSlots, int, boolean, int)} compares them against the current stats and updates only the
+ * fields that differ; the client's inventory is refreshed at most once per call. The jump effect is long-lived and is
+ * only renewed shortly before it runs out.
+ */
+class PlayerSync {
+
+    /**
+     * How long, in ticks, the effect disabling jumping lasts.
+     */
+    static final int JUMP_DURATION = 20 * 30;
+
+    /**
+     * How many ticks before it runs out the effect disabling jumping is renewed.
+     */
+    static final int JUMP_RENEW = 20 * 5;
+
+    private static final int UNKNOWN = -1;
+
+    // slot 1: place bomb
+    // slot 8: power
+    // slot 9: speed
+    private static final int BOMB_SLOT = 0, POWER_SLOT = 7, SPEED_SLOT = 8;
+
+    private int bombItems = UNKNOWN, power = UNKNOWN, speed = UNKNOWN;
+    private float walkSpeed = Float.NaN;
+    private int jumpRenewAt = Integer.MIN_VALUE;
+    private boolean cleared = false;
+
+    /**
+     * Forgets everything last applied, so the next call pushes the full state.
+     */
+    void invalidate() {
+        this.bombItems = this.power = this.speed = UNKNOWN;
+        this.walkSpeed = Float.NaN;
+        this.jumpRenewAt = Integer.MIN_VALUE;
+        this.cleared = false;
+    }
+
+    /**
+     * Pushes whatever changed since the last call.
+     *
+     * @param player the player to update
+     * @param slots the participants
+     * @param slot the player's slot
+     * @param frozen if the player should be unable to move
+     * @param tick the current tick
+     */
+    void apply(Player player, PlayerSlots slots, int slot, boolean frozen, int tick) {
+        var inventory = player.getInventory();
+        var changed = false;
+        if (!this.cleared) {
+            inventory.clear();
+            this.cleared = true;
+            changed = true;
+        }
+
+        var bombItems = Math.max(0, slots.bombs[slot] - slots.placedBombs[slot]);
+        if (bombItems != this.bombItems) {
+            inventory.setItem(BOMB_SLOT, bombItems > 0 ? new ItemStack(Material.TNT, bombItems) : null);
+            this.bombItems = bombItems;
+            changed = true;
+        }
+
+        var power = slots.power[slot];
+        if (power != this.power) {
+            inventory.setItem(POWER_SLOT, new ItemStack(Material.FLINT_AND_STEEL, power));
+            this.power = power;
+            changed = true;
+        }
+
+        var speed = slots.speed[slot];
+        if (speed != this.speed) {
+            inventory.setItem(SPEED_SLOT, new ItemStack(Material.LEATHER_BOOTS, speed));
+            this.speed = speed;
+            changed = true;
+        }
+
+        // cancelled interactions can leave the client showing stale items, so refresh it along with any change
+        if (changed) player.updateInventory();
+
+        var walkSpeed = frozen ? 0 : slots.getWalkSpeed(slot);
+        if (walkSpeed != this.walkSpeed) {
+            player.setWalkSpeed(walkSpeed);
+            this.walkSpeed = walkSpeed;
+        }
+
+        if (tick >= this.jumpRenewAt) {
+            player.addPotionEffect(new PotionEffect(PotionEffectType.JUMP, JUMP_DURATION, -10, true));
+            this.jumpRenewAt = tick + JUMP_DURATION - JUMP_RENEW;
+        }
+    }
+
+}
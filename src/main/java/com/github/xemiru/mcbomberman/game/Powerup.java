@@ -0,0 +1,10 @@
+package com.github.xemiru.mcbomberman.game;
+
+/**
+ * A powerup that may drop from a broken soft wall.
+ */
+public enum Powerup {
+    SPEED,
+    POWER,
+    BOMBS
+}
@@ -0,0 +1,404 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.github.xemiru.mcbomberman.game.ReplayRecorder.*;
+
+/**
+ * Reads a replay written by a {@link ReplayRecorder}, accessed through a memory mapping.
+ * <p/>
+ * A reader walks the replay forward, handing every operation to a {@link Visitor}, and can {@link #seek(int)} to any
+ * point by starting from the nearest earlier keyframe. It needs no server, so replays can be analyzed anywhere.
+ */
+public class ReplayReader implements Closeable {
+
+    /**
+     * Receives the contents of a replay. Tiles are indices (y * width + x).
+     */
+    public interface Visitor {
+        default void bomb(int slot, int tile, int power) {
+        }
+
+        default void detonate(int tile) {
+        }
+
+        /**
+         * The bomb on a tile was taken away without detonating.
+         */
+        default void remove(int tile) {
+        }
+
+        default void tile(int tile, Space space) {
+        }
+
+        /**
+         * @param powerup the powerup now on the tile, or null
+         */
+        default void powerup(int tile, Powerup powerup) {
+        }
+
+        default void pickup(int slot, Powerup powerup) {
+        }
+
+        default void eliminate(int slot, int by) {
+        }
+
+        /**
+         * @param tile the participant's tile, or -1 if it isn't in the arena
+         */
+        default void position(int slot, int tile) {
+        }
+    }
+
+    /**
+     * The whole state of a match at one point in time.
+     */
+    public static final class Keyframe {
+        public final int tick;
+        final Space[] tiles;
+        final Powerup[] powerups;
+        final Bomb[] bombs;
+        final boolean[] alive;
+        final int[] positions;
+
+        private Keyframe(int tick, Space[] tiles, Powerup[] powerups, Bomb[] bombs, boolean[] alive, int[] positions) {
+            this.tick = tick;
+            this.tiles = tiles;
+            this.powerups = powerups;
+            this.bombs = bombs;
+            this.alive = alive;
+            this.positions = positions;
+        }
+    }
+
+    private static final Visitor IGNORE = new Visitor() {
+    };
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int width, height;
+    private final long seed;
+    private final String[] names;
+    private final int start;
+    private final int[] positions;
+
+    private int[] keyframeTicks;
+    private int[] keyframeOffsets;
+
+    private int tick;
+    private boolean done = false;
+
+    private ReplayReader(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.capacity() < 5 || buffer.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("File is not a replay.");
+        var version = buffer.get(4);
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported replay version " + version + ".");
+
+        buffer.position(5);
+        this.width = this.varint();
+        this.height = this.varint();
+        this.seed = buffer.getLong();
+        this.names = new String[this.varint()];
+        for (int i = 0; i < this.names.length; i++) {
+            var name = new byte[this.varint()];
+            buffer.get(name);
+            this.names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        this.start = buffer.position();
+        this.positions = new int[this.names.length];
+        if (!this.readIndex()) this.scanIndex();
+        if (this.keyframeTicks.length == 0) throw new IllegalArgumentException("Replay holds no keyframes.");
+    }
+
+    /**
+     * Opens a replay file.
+     *
+     * @param path the path of the replay
+     * @return the reader, positioned before the first keyframe
+     * @throws IOException if the file couldn't be opened or mapped
+     */
+    public static ReplayReader open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ReplayReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return the seed the match's powerup drops were rolled from
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * @return the number of participants in the match
+     */
+    public int getParticipants() {
+        return this.names.length;
+    }
+
+    public String getName(int slot) {
+        return this.names[slot];
+    }
+
+    /**
+     * @return the tick the reader has reached
+     */
+    public int getTick() {
+        return this.tick;
+    }
+
+    /**
+     * @return the tick of the first keyframe, where the match starts
+     */
+    public int getStartTick() {
+        return this.keyframeTicks[0];
+    }
+
+    /**
+     * @return if the reader has reached the end of the replay
+     */
+    public boolean isDone() {
+        return this.done;
+    }
+
+    /**
+     * Moves to the latest keyframe at or before a tick, and reads it. Reading on with {@link #advance(int, Visitor)}
+     * reaches the tick itself.
+     *
+     * @param tick the tick to seek to
+     * @return the keyframe
+     */
+    public Keyframe seek(int tick) {
+        var i = Arrays.binarySearch(this.keyframeTicks, tick);
+        if (i < 0) i = Math.max(0, -i - 2);
+
+        this.buffer.position(this.keyframeOffsets[i]);
+        this.done = false;
+        if (this.buffer.get() != OP_KEYFRAME) throw new IllegalStateException("Replay index points outside a keyframe.");
+        return this.keyframe();
+    }
+
+    /**
+     * Reads every operation up to and including a tick.
+     *
+     * @param until the tick to read up to
+     * @param visitor the visitor to receive the operations
+     */
+    public void advance(int until, Visitor visitor) {
+        try {
+            while (!this.done && this.buffer.hasRemaining()) {
+                if (!this.step(until, visitor)) return;
+            }
+
+            this.done = true;
+        } catch (BufferUnderflowException e) {
+            // the recording was cut short
+            this.done = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    // ---
+    //
+    // internal
+    //
+    // ---
+
+    private Keyframe keyframe() {
+        this.tick = this.varint();
+
+        var size = this.width * this.height;
+        var tiles = new Space[size];
+        var packed = 0;
+        for (int i = 0; i < size; i++) {
+            if (i % 4 == 0) packed = this.buffer.get();
+            tiles[i] = space((packed >> ((i % 4) * 2)) & 0b11);
+        }
+
+        var powerups = new Powerup[size];
+        var count = this.varint();
+        for (int i = 0; i < count; i++) powerups[this.varint()] = powerup(this.varint());
+
+        var bombs = new Bomb[this.varint()];
+        for (int i = 0; i < bombs.length; i++) {
+            var tile = this.varint();
+            var bomb = new Bomb();
+            bomb.x = tile % this.width;
+            bomb.y = tile / this.width;
+            bomb.owner = this.varint();
+            bomb.power = this.varint();
+            bomb.detonateAt = this.tick + this.varint();
+            bombs[i] = bomb;
+        }
+
+        var alive = new boolean[this.names.length];
+        for (int slot = 0; slot < alive.length; slot++) {
+            alive[slot] = (this.buffer.get() & 1) != 0;
+            this.positions[slot] = this.varint() - 1;
+        }
+
+        return new Keyframe(this.tick, tiles, powerups, bombs, alive, this.positions.clone());
+    }
+
+    /**
+     * Reads one operation, unless it happens after a given tick.
+     *
+     * @return false if the operation was left unread
+     */
+    private boolean step(int until, Visitor visitor) {
+        var mark = this.buffer.position();
+        var op = this.buffer.get();
+        switch (op) {
+            case OP_END -> this.done = true;
+            case OP_TICK -> {
+                var next = this.tick + this.varint();
+                if (next > until) {
+                    this.buffer.position(mark);
+                    return false;
+                }
+
+                this.tick = next;
+            }
+            case OP_BOMB -> visitor.bomb(this.varint(), this.varint(), this.varint());
+            case OP_DETONATE -> visitor.detonate(this.varint());
+            case OP_REMOVE -> visitor.remove(this.varint());
+            case OP_TILE -> visitor.tile(this.varint(), space(this.varint()));
+            case OP_POWERUP -> visitor.powerup(this.varint(), powerup(this.varint()));
+            case OP_PICKUP -> visitor.pickup(this.varint(), powerup(this.varint()));
+            case OP_ELIMINATE -> visitor.eliminate(this.varint(), this.varint());
+            case OP_POSITIONS -> {
+                var count = this.varint();
+                for (int i = 0; i < count; i++) {
+                    var slot = this.varint();
+                    this.positions[slot] += unzigzag(this.varint());
+                    visitor.position(slot, this.positions[slot]);
+                }
+            }
+            case OP_KEYFRAME -> {
+                // a keyframe repeats what the operations before it built up, so only its time and positions matter
+                var at = this.buffer.position();
+                if (this.varint() > until) {
+                    this.buffer.position(mark);
+                    return false;
+                }
+
+                this.buffer.position(at);
+                var keyframe = this.keyframe();
+                for (int slot = 0; slot < keyframe.positions.length; slot++) {
+                    if (keyframe.alive[slot]) visitor.position(slot, keyframe.positions[slot]);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown replay operation " + op + " at " + mark + ".");
+        }
+
+        return true;
+    }
+
+    private boolean readIndex() {
+        var end = this.buffer.capacity();
+        if (end - this.start < 8 || this.buffer.getInt(end - 4) != INDEX_MAGIC) return false;
+
+        var at = this.buffer.getInt(end - 8);
+        if (at < this.start || at > end - 8) return false;
+
+        this.buffer.position(at);
+        var count = this.varint();
+        this.keyframeTicks = new int[count];
+        this.keyframeOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.keyframeTicks[i] = this.varint();
+            this.keyframeOffsets[i] = (int) this.varlong();
+        }
+
+        this.buffer.position(this.start);
+        return true;
+    }
+
+    /**
+     * Finds every keyframe by reading the whole replay, for replays that were never finished.
+     */
+    private void scanIndex() {
+        var ticks = new int[16];
+        var offsets = new int[16];
+        var count = 0;
+
+        this.buffer.position(this.start);
+        try {
+            while (!this.done && this.buffer.hasRemaining()) {
+                var at = this.buffer.position();
+                var keyframe = this.buffer.get(at) == OP_KEYFRAME;
+                this.step(Integer.MAX_VALUE, IGNORE);
+                if (!keyframe) continue;
+
+                if (count == ticks.length) {
+                    ticks = Arrays.copyOf(ticks, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+
+                ticks[count] = this.tick;
+                offsets[count++] = at;
+            }
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            // keep the keyframes read before the recording was cut short
+        }
+
+        this.keyframeTicks = Arrays.copyOf(ticks, count);
+        this.keyframeOffsets = Arrays.copyOf(offsets, count);
+        this.buffer.position(this.start);
+        this.done = false;
+        this.tick = 0;
+    }
+
+    private static Powerup powerup(int code) {
+        return code == 0 ? null : Powerup.values()[code - 1];
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int varint() {
+        return (int) this.varlong();
+    }
+
+    private long varlong() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = this.buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            if (shift > 63) throw new IllegalStateException("Malformed varint in replay.");
+        }
+    }
+
+}
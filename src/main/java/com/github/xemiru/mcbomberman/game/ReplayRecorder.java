@@ -0,0 +1,472 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records a match to a replay file, to be read back by a {@link ReplayReader}.
+ * <p/>
+ * Recording only appends a few bytes to a buffer on the tick; full buffers are handed to a shared writer thread, which
+ * owns the file, and handed back once written to be filled again. A replay holds what is needed to show the match
+ * again: bomb placements and detonations, walls broken, powerups dropped, taken and destroyed, eliminations, and every
+ * participant's tile, sampled every {@link #POSITION_TICKS} ticks and only when it changes. Every
+ * {@link #KEYFRAME_TICKS} ticks, the whole state of the match is written down, so that a reader can start from any
+ * point without reading what came before.
+ * <p/>
+ * <h1>Format</h1>
+ * Numbers are unsigned LEB128 varints unless stated otherwise; signed numbers are zigzag-encoded first. A replay begins
+ * with the magic number {@code BMRP} and a version byte, the width and height of the arena, the seed the match's
+ * powerup drops are rolled from as a big-endian long, and the number of participants followed by
+ * each one's name as a varint length and UTF-8 bytes.
+ * <p/>
+ * The rest is a stream of operations, each an opcode byte followed by its fields:
+ * <ul>
+ *     <li>{@link #OP_TICK} (delta): time moves forward by delta ticks;</li>
+ *     <li>{@link #OP_BOMB} (slot, tile, power): a participant placed a bomb;</li>
+ *     <li>{@link #OP_DETONATE} (tile): the bomb on a tile detonated;</li>
+ *     <li>{@link #OP_REMOVE} (tile): the bomb on a tile was taken away without detonating, as when a match ends;</li>
+ *     <li>{@link #OP_TILE} (tile, space): a tile's space changed, as 0 (empty), 1 (soft) or 2 (solid);</li>
+ *     <li>{@link #OP_POWERUP} (tile, powerup): the powerup on a tile changed, as 0 (none) or 1 plus its ordinal;</li>
+ *     <li>{@link #OP_PICKUP} (slot, powerup): a participant took a powerup;</li>
+ *     <li>{@link #OP_ELIMINATE} (slot, by): a participant was eliminated by a participant's bomb; one leaving the
+ *     match is recorded as eliminating itself;</li>
+ *     <li>{@link #OP_POSITIONS} (count, then count pairs of slot and signed tile delta): participants moved, each
+ *     delta from the participant's tile in the last sample or keyframe;</li>
+ *     <li>{@link #OP_KEYFRAME}: the time, as an absolute tick; the tiles, packed four to a byte like in an
+ *     {@link ArenaCatalog}; the number of powerups, then each one's tile and powerup; the number of bombs, then each
+ *     one's tile, owner, power and ticks left on its fuse; then, for each participant, a flag byte (bit 0 if alive)
+ *     and its tile, plus one, or 0 when not in the arena;</li>
+ *     <li>{@link #OP_END}: the end of the stream.</li>
+ * </ul>
+ * A finished replay ends with an index of keyframes: their number, then each one's tick and byte offset, followed by
+ * the index's own offset as a big-endian int and the magic number {@code BMRI}. A replay cut short by a crash has no
+ * index, and is read by scanning.
+ */
+class ReplayRecorder {
+
+    static final int MAGIC = 0x424D5250; // BMRP
+    static final int INDEX_MAGIC = 0x424D5249; // BMRI
+    static final byte VERSION = 1;
+
+    static final int OP_END = 0;
+    static final int OP_TICK = 1;
+    static final int OP_BOMB = 2;
+    static final int OP_DETONATE = 3;
+    static final int OP_TILE = 4;
+    static final int OP_POWERUP = 5;
+    static final int OP_PICKUP = 6;
+    static final int OP_ELIMINATE = 7;
+    static final int OP_POSITIONS = 8;
+    static final int OP_KEYFRAME = 9;
+    static final int OP_REMOVE = 10;
+
+    /**
+     * How often participants' tiles are sampled, in ticks.
+     */
+    static final int POSITION_TICKS = 5;
+
+    /**
+     * How often the whole state of the match is written down, in ticks.
+     */
+    static final int KEYFRAME_TICKS = 20 * 15;
+
+    /**
+     * How many buffered bytes are handed to the writer at once.
+     */
+    static final int FLUSH_BYTES = 4096;
+
+    private static ExecutorService writer;
+
+    private final Path path;
+    private final MatchCore core;
+    private final Logger logger;
+    private FileChannel channel; // only touched by the writer thread
+    private volatile boolean failed = false;
+
+    private ByteBuffer buf = ByteBuffer.allocate(FLUSH_BYTES * 2);
+    private final Queue<ByteBuffer> spare = new ConcurrentLinkedQueue<>(); // written buffers, ready to be filled again
+    private long handedOff = 0;
+    private int lastTick;
+    private int now;
+    private int nextSample, nextKeyframe;
+    private int[] sampled = new int[0];
+    private final Powerup[] powerups;
+
+    private int keyframes = 0;
+    private int[] keyframeTicks = new int[16];
+    private long[] keyframeOffsets = new long[16];
+
+    private ReplayRecorder(Path path, MatchCore core, Logger logger) {
+        this.path = path;
+        this.core = core;
+        this.logger = logger;
+        this.powerups = new Powerup[core.getWidth() * core.getHeight()];
+    }
+
+    /**
+     * Starts recording a match into a new file, beginning with a keyframe of its current state.
+     *
+     * @param path the file to record to
+     * @param core the core playing out the match
+     * @param names the name of each of the match's participants, by slot
+     * @param now the current time on the game clock
+     * @param logger the logger to report write failures to
+     * @return the recorder
+     */
+    static ReplayRecorder start(Path path, MatchCore core, String[] names, int now, Logger logger) {
+        var recorder = new ReplayRecorder(path, core, logger);
+        recorder.now = now;
+        recorder.lastTick = now;
+        recorder.sampled = new int[names.length];
+        for (int t = 0; t < recorder.powerups.length; t++) recorder.powerups[t] = core.getPowerup(t);
+
+        var buf = recorder.ensure(16);
+        buf.putInt(MAGIC).put(VERSION);
+        recorder.varint(core.getWidth());
+        recorder.varint(core.getHeight());
+        recorder.ensure(8).putLong(core.getSeed());
+        recorder.varint(names.length);
+        for (var participant : names) {
+            var name = participant.getBytes(StandardCharsets.UTF_8);
+            recorder.varint(name.length);
+            recorder.ensure(name.length).put(name);
+        }
+
+        recorder.submit(() -> {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            recorder.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        });
+
+        recorder.keyframe();
+        return recorder;
+    }
+
+    /**
+     * @return the file being recorded to
+     */
+    Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * @return how many bytes have been recorded so far
+     */
+    long getSize() {
+        return this.handedOff + this.buf.position();
+    }
+
+    /**
+     * Moves the recording's time forward. Called at the start of every tick.
+     */
+    void begin(int now) {
+        this.now = now;
+    }
+
+    void bomb(Bomb bomb, int width) {
+        this.op(OP_BOMB);
+        this.varint(bomb.owner);
+        this.varint(bomb.y * width + bomb.x);
+        this.varint(bomb.power);
+    }
+
+    void detonate(Bomb bomb, int width) {
+        this.op(OP_DETONATE);
+        this.varint(bomb.y * width + bomb.x);
+    }
+
+    void remove(Bomb bomb, int width) {
+        this.op(OP_REMOVE);
+        this.varint(bomb.y * width + bomb.x);
+    }
+
+    void tile(int tile, Space space) {
+        this.op(OP_TILE);
+        this.varint(tile);
+        this.varint(code(space));
+    }
+
+    /**
+     * Records the powerup lying on a tile changing.
+     *
+     * @param powerup the new powerup, or null if there is none
+     */
+    void powerup(int tile, Powerup powerup) {
+        if (tile < 0 || this.powerups[tile] == powerup) return;
+
+        this.powerups[tile] = powerup;
+        this.op(OP_POWERUP);
+        this.varint(tile);
+        this.varint(powerup == null ? 0 : powerup.ordinal() + 1);
+    }
+
+    void pickup(int slot, Powerup powerup) {
+        this.op(OP_PICKUP);
+        this.varint(slot);
+        this.varint(powerup.ordinal() + 1);
+    }
+
+    void eliminate(int slot, int by) {
+        this.op(OP_ELIMINATE);
+        this.varint(slot);
+        this.varint(by);
+    }
+
+    /**
+     * Samples positions and writes keyframes when due, and hands full buffers to the writer. Called at the end of every
+     * tick.
+     */
+    void end() {
+        if (this.now >= this.nextKeyframe) {
+            this.keyframe();
+        } else if (this.now >= this.nextSample) {
+            this.sample();
+        }
+
+        if (this.buf.position() >= FLUSH_BYTES) this.flush();
+    }
+
+    /**
+     * Ends the recording, writing the keyframe index and closing the file once everything before it is written.
+     */
+    void close() {
+        this.op(OP_END);
+
+        var indexAt = this.getSize();
+        this.varint(this.keyframes);
+        for (int i = 0; i < this.keyframes; i++) {
+            this.varint(this.keyframeTicks[i]);
+            this.varlong(this.keyframeOffsets[i]);
+        }
+
+        this.ensure(8).putInt((int) indexAt).putInt(INDEX_MAGIC);
+        this.flush();
+        this.submit(() -> {
+            if (this.channel != null) this.channel.close();
+        });
+    }
+
+    // ---
+    //
+    // internal
+    //
+    // ---
+
+    private void sample() {
+        this.nextSample = this.now + POSITION_TICKS;
+
+        var players = this.core.getParticipants();
+        var moved = 0;
+        for (int slot = 0; slot < this.sampled.length; slot++) {
+            if (players.alive[slot] && players.tile[slot] != this.sampled[slot]) moved++;
+        }
+
+        if (moved == 0) return;
+
+        this.op(OP_POSITIONS);
+        this.varint(moved);
+        for (int slot = 0; slot < this.sampled.length; slot++) {
+            if (!players.alive[slot]) continue;
+
+            var tile = players.tile[slot];
+            if (tile == this.sampled[slot]) continue;
+
+            this.varint(slot);
+            this.varint(zigzag(tile - this.sampled[slot]));
+            this.sampled[slot] = tile;
+        }
+    }
+
+    private void keyframe() {
+        this.nextKeyframe = this.now + KEYFRAME_TICKS;
+        this.nextSample = this.now + POSITION_TICKS;
+
+        if (this.keyframes == this.keyframeTicks.length) {
+            this.keyframeTicks = Arrays.copyOf(this.keyframeTicks, this.keyframes * 2);
+            this.keyframeOffsets = Arrays.copyOf(this.keyframeOffsets, this.keyframes * 2);
+        }
+
+        this.keyframeTicks[this.keyframes] = this.now;
+        this.keyframeOffsets[this.keyframes++] = this.getSize();
+
+        // keyframes carry absolute time, so no tick op is needed before one
+        this.lastTick = this.now;
+        this.ensure(1).put((byte) OP_KEYFRAME);
+        this.varint(this.now);
+
+        var width = this.core.getWidth();
+        var size = width * this.core.getHeight();
+        var tiles = this.ensure((size + 3) / 4);
+        var packed = 0;
+        for (int i = 0; i < size; i++) {
+            packed |= code(this.core.getSpace(i % width, i / width)) << ((i % 4) * 2);
+            if (i % 4 == 3) {
+                tiles.put((byte) packed);
+                packed = 0;
+            }
+        }
+
+        if (size % 4 != 0) tiles.put((byte) packed);
+
+        var count = 0;
+        for (var powerup : this.powerups) if (powerup != null) count++;
+        this.varint(count);
+        for (int t = 0; t < size; t++) {
+            if (this.powerups[t] == null) continue;
+            this.varint(t);
+            this.varint(this.powerups[t].ordinal() + 1);
+        }
+
+        var bombs = this.core.getDanger().getBombs();
+        count = 0;
+        for (var bomb : bombs) if (bomb != null) count++;
+        this.varint(count);
+        for (int t = 0; t < bombs.length; t++) {
+            var bomb = bombs[t];
+            if (bomb == null) continue;
+            this.varint(t);
+            this.varint(bomb.owner);
+            this.varint(bomb.power);
+            this.varint(Math.max(0, bomb.detonateAt - this.now));
+        }
+
+        var players = this.core.getParticipants();
+        for (int slot = 0; slot < this.sampled.length; slot++) {
+            var tile = players.alive[slot] ? players.tile[slot] : -1;
+            this.ensure(1).put((byte) (players.alive[slot] ? 1 : 0));
+            this.varint(tile + 1);
+            this.sampled[slot] = tile;
+        }
+    }
+
+    private void op(int op) {
+        if (this.now != this.lastTick) {
+            this.ensure(1).put((byte) OP_TICK);
+            this.varint(this.now - this.lastTick);
+            this.lastTick = this.now;
+        }
+
+        this.ensure(1).put((byte) op);
+    }
+
+    private void varint(int value) {
+        this.varlong(value & 0xFFFFFFFFL);
+    }
+
+    private void varlong(long value) {
+        var buf = this.ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buf.put((byte) value);
+    }
+
+    static int code(Space space) {
+        return switch (space) {
+            case EMPTY -> 0;
+            case SOFT -> 1;
+            case SOLID -> 2;
+        };
+    }
+
+    static Space space(int code) {
+        return switch (code) {
+            case 1 -> Space.SOFT;
+            case 2 -> Space.SOLID;
+            default -> Space.EMPTY;
+        };
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (this.buf.remaining() >= bytes) return this.buf;
+
+        this.flush();
+        if (this.buf.remaining() < bytes) this.buf = ByteBuffer.allocate(Math.max(this.buf.capacity() * 2, bytes));
+        return this.buf;
+    }
+
+    private void flush() {
+        if (this.buf.position() == 0) return;
+
+        var out = this.buf.flip();
+        this.handedOff += out.remaining();
+
+        // the writer usually keeps up, so a recording cycles through two buffers
+        var next = this.spare.poll();
+        this.buf = next != null ? next : ByteBuffer.allocate(out.capacity());
+        this.submit(() -> {
+            while (out.hasRemaining()) this.channel.write(out);
+            this.spare.add(out.clear());
+        });
+    }
+
+    private interface WriteTask {
+        void run() throws IOException;
+    }
+
+    private void submit(WriteTask task) {
+        if (this.failed) return;
+
+        writer().execute(() -> {
+            if (this.failed) return;
+
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                this.failed = true;
+                this.logger.log(Level.WARNING, "Replay " + this.path + " could not be written", e);
+                try {
+                    if (this.channel != null) this.channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+    }
+
+    private static synchronized ExecutorService writer() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(task -> {
+                var thread = new Thread(task, "bomberman-replays");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return writer;
+    }
+
+    /**
+     * Finishes writing every replay handed to the writer, then stops it. It is started again when next needed.
+     */
+    static synchronized void shutdown() {
+        if (writer == null) return;
+
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        writer = null;
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.github.xemiru.mcbomberman.game;
+
+import com.github.xemiru.mcbomberman.framework.GameState;
+import com.github.xemiru.mcbomberman.framework.module.GModule;
+import org.bukkit.GameMode;
+import org.bukkit.entity.ArmorStand;
+
+import java.io.IOException;
+
+/**
+ * Plays a recorded match back to the game's players, who watch as spectators.
+ * <p/>
+ * The replay is shown in an arena leased like any other, rebuilt to the recorded layout, with any part of the arena
+ * beyond the recorded one walled off. Participants are shown by named armor stands, and bombs and powerups as floor
+ * markers, so the module should use virtual pieces. Playback runs at the recorded speed, and can {@link #seek(int)} to
+ * any point.
+ */
+public class ReplayState extends GameState {
+
+    @GModule
+    BombermanModule bomberman;
+
+    /**
+     * How long to wait after the replay ends before stopping the game, in ticks.
+     */
+    public static final int END_DELAY_TICKS = 20 * 5;
+
+    private final ReplayReader reader;
+    private final ReplayReader.Visitor apply = new ReplayReader.Visitor() {
+        @Override
+        public void bomb(int slot, int tile, int power) {
+            var bomb = new Bomb();
+            bomb.x = tile % reader.getWidth();
+            bomb.y = tile / reader.getWidth();
+            bomb.owner = slot;
+            bomb.power = power;
+            bomb.detonateAt = Integer.MAX_VALUE;
+            bomberman.getArena().getCore().restoreBomb(bomb, false);
+        }
+
+        @Override
+        public void detonate(int tile) {
+            bomberman.getArena().getCore().removeBomb(toArena(tile), true);
+        }
+
+        @Override
+        public void remove(int tile) {
+            bomberman.getArena().getCore().removeBomb(toArena(tile), false);
+        }
+
+        @Override
+        public void tile(int tile, Space space) {
+            bomberman.getArena().getCore().restoreSpace(toArena(tile), space);
+        }
+
+        @Override
+        public void powerup(int tile, Powerup powerup) {
+            bomberman.getArena().getCore().restorePowerup(toArena(tile), powerup);
+        }
+
+        @Override
+        public void eliminate(int slot, int by) {
+            // participants leaving the match are recorded as eliminating themselves
+            if (by == slot) bomberman.printf("%s was eliminated", reader.getName(slot));
+            else bomberman.printf("%s was eliminated by %s's bomb", reader.getName(slot), reader.getName(by));
+            hide(slot);
+        }
+
+        @Override
+        public void position(int slot, int tile) {
+            show(slot, tile);
+        }
+    };
+
+    private ArmorStand[] bodies;
+    private boolean ready = false;
+    private int tick;
+    private int stopAt = -1;
+
+    /**
+     * @param reader the replay to play, which is closed when this state exits
+     */
+    public ReplayState(ReplayReader reader) {
+        this.reader = reader;
+        this.bodies = new ArmorStand[reader.getParticipants()];
+    }
+
+    @Override
+    protected void onInit() {
+        bomberman.setAllowActions(false);
+        bomberman.leaseArena(this::onArenaReady);
+    }
+
+    private void onArenaReady() {
+        if (this.game == null) return; // state was exited before the arena finished
+
+        var arena = bomberman.getArena();
+        if (arena.getWidth() < this.reader.getWidth() || arena.getHeight() < this.reader.getHeight()) {
+            bomberman.print("This replay's arena doesn't fit in the arenas available.");
+            this.game.stop();
+            return;
+        }
+
+        var center = arena.getTileCenter(arena.getWidth() / 2, arena.getHeight() / 2).add(0, 8, 0);
+        this.game.forEachPlayer(p -> {
+            p.setGameMode(GameMode.SPECTATOR);
+            p.teleport(center);
+        });
+
+        this.ready = true;
+        this.seek(this.reader.getStartTick());
+    }
+
+    /**
+     * Moves playback to a tick of the recorded match.
+     */
+    public void seek(int tick) {
+        if (!this.ready) return;
+
+        var keyframe = this.reader.seek(tick);
+        var arena = bomberman.getArena();
+        var core = arena.getCore();
+        for (int y = 0; y < arena.getHeight(); y++) {
+            for (int x = 0; x < arena.getWidth(); x++) {
+                // wall off whatever part of the arena the recorded one didn't cover
+                var t = y * arena.getWidth() + x;
+                var inside = x < this.reader.getWidth() && y < this.reader.getHeight();
+                var recorded = y * this.reader.getWidth() + x;
+                core.restoreSpace(t, inside ? keyframe.tiles[recorded] : Space.SOLID);
+                core.restorePowerup(t, inside ? keyframe.powerups[recorded] : null);
+            }
+        }
+
+        core.clearBombs();
+        for (var bomb : keyframe.bombs) core.restoreBomb(bomb, false);
+
+        for (int slot = 0; slot < this.bodies.length; slot++) {
+            if (keyframe.alive[slot]) this.show(slot, keyframe.positions[slot]);
+            else this.hide(slot);
+        }
+
+        this.reader.advance(tick, this.apply);
+        this.tick = tick;
+        this.stopAt = -1;
+    }
+
+    @Override
+    protected void tick() {
+        if (!this.ready) return;
+
+        var now = this.game.getClock().now();
+        if (this.stopAt >= 0) {
+            if (now >= this.stopAt) this.game.stop();
+            return;
+        }
+
+        this.reader.advance(++this.tick, this.apply);
+        if (this.reader.isDone()) {
+            this.game.getMessenger().title("Replay over", "", 0, 60, 20);
+            this.stopAt = now + END_DELAY_TICKS;
+        }
+    }
+
+    @Override
+    protected void onExit(boolean formal) {
+        for (int slot = 0; slot < this.bodies.length; slot++) this.hide(slot);
+
+        try {
+            this.reader.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @return the arena's index of a tile of the recorded arena
+     */
+    private int toArena(int tile) {
+        return (tile / this.reader.getWidth()) * bomberman.getArena().getWidth() + tile % this.reader.getWidth();
+    }
+
+    private void show(int slot, int tile) {
+        if (tile < 0) return;
+
+        var arena = bomberman.getArena();
+        var loc = arena.getTileCenter(tile % this.reader.getWidth(), tile / this.reader.getWidth());
+        if (this.bodies[slot] == null) {
+            var name = this.reader.getName(slot);
+            this.bodies[slot] = loc.getWorld().spawn(loc, ArmorStand.class, stand -> {
+                stand.setCustomName(name);
+                stand.setCustomNameVisible(true);
+                stand.setGravity(false);
+                stand.setInvulnerable(true);
+                stand.setPersistent(false);
+            });
+        } else {
+            this.bodies[slot].teleport(loc);
+        }
+    }
+
+    private void hide(int slot) {
+        if (this.bodies[slot] == null) return;
+
+        this.bodies[slot].remove();
+        this.bodies[slot] = null;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.github.xemiru.mcbomberman.game;
+
+import com.github.xemiru.mcbomberman.framework.GameState;
+import com.github.xemiru.mcbomberman.framework.module.RegModule;
+
+/**
+ * Puts a match interrupted by a reload or restart back together from its {@link MatchSnapshot}, then counts down
+ * before play carries on.
+ */
+public class ResumeState extends GameState {
+
+    @RegModule
+    BombermanModule bomberman;
+
+    public static final int RESUME_TICKS = 20 * 3;
+
+    private final MatchSnapshot snapshot;
+    private boolean resumed = false;
+    private int goAt = -1;
+    private int shownSecond = -1;
+
+    public ResumeState(MatchSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    protected void onInit() {
+        bomberman.setAllowActions(false);
+        bomberman.setFrozen(true);
+        bomberman.leaseArena(this.snapshot.getArenaIndex(), this::onArenaReady);
+    }
+
+    private void onArenaReady() {
+        if (this.game == null) return; // state was exited before the arena finished
+
+        if (!bomberman.restore(this.snapshot)) {
+            bomberman.print("This match's arena doesn't fit in the arenas available, so it can't be resumed.");
+            this.game.stop();
+            return;
+        }
+
+        this.resumed = true;
+    }
+
+    @Override
+    protected void tick() {
+        if (!this.resumed) return;
+
+        var now = this.game.getClock().now();
+        if (this.goAt < 0) this.goAt = now + RESUME_TICKS;
+
+        var remaining = this.goAt - now;
+        if (remaining <= 0) {
+            this.game.setState(new PlayState());
+            this.game.getMessenger().title("GO!", "", 0, 30, 10);
+            return;
+        }
+
+        int sec = (remaining + 19) / 20;
+        if (sec != this.shownSecond) {
+            this.shownSecond = sec;
+            this.game.getMessenger().title("" + sec, "Resuming match", 0, 20, 20);
+        }
+    }
+
+    @Override
+    protected void onExit(boolean formal) {
+
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the latest {@link MatchSnapshot} of every running match on disk, one file per match.
+ * <p/>
+ * Saving a snapshot only hands it to the store's writer thread. If a match is saved again before its last snapshot was
+ * written, only the newer one is written. Each file is written in full beside the old one, then moved over it, so a
+ * crash leaves either the old snapshot or the new one, never a mix.
+ */
+public class SnapshotStore implements Closeable {
+
+    private static final String EXTENSION = ".bms";
+
+    private final Path directory;
+    private final Logger logger;
+    private final Map<String, MatchSnapshot> pending = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "bomberman-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param directory the directory to keep snapshots in, which is created if needed
+     * @param logger the logger to report problems to
+     */
+    public SnapshotStore(Path directory, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+    }
+
+    /**
+     * Reads every snapshot left by a previous run. Snapshots that can't be read are deleted.
+     *
+     * @return the snapshots
+     */
+    public List<MatchSnapshot> loadAll() {
+        var snapshots = new ArrayList<MatchSnapshot>();
+        if (!Files.isDirectory(this.directory)) return snapshots;
+
+        try (var files = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+            for (var file : files) {
+                var name = file.getFileName().toString();
+                name = name.substring(0, name.length() - EXTENSION.length());
+                try {
+                    snapshots.add(MatchSnapshot.decode(name, ByteBuffer.wrap(Files.readAllBytes(file))));
+                } catch (IOException | RuntimeException e) {
+                    this.logger.warning("Discarding unreadable match snapshot " + file.getFileName() + ": " + e.getMessage());
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            this.logger.warning("Couldn't read match snapshots: " + e.getMessage());
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Writes a match's snapshot, replacing its last one. Returns immediately.
+     *
+     * @param name the name to store the snapshot under
+     * @param snapshot the snapshot
+     */
+    public void save(String name, MatchSnapshot snapshot) {
+        snapshot.name = name;
+        if (this.pending.put(name, snapshot) != null) return; // the queued write will pick up the newer snapshot
+
+        this.submit(() -> {
+            var latest = this.pending.remove(name);
+            if (latest == null) return; // discarded since
+
+            Files.createDirectories(this.directory);
+            var file = this.directory.resolve(name + EXTENSION);
+            var temp = this.directory.resolve(name + EXTENSION + ".tmp");
+            try (var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var buf = latest.encode();
+                while (buf.hasRemaining()) out.write(buf);
+                out.force(true);
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        });
+    }
+
+    /**
+     * Deletes a match's snapshot, as when the match ends. Returns immediately.
+     */
+    public void discard(String name) {
+        this.pending.remove(name);
+        this.submit(() -> Files.deleteIfExists(this.directory.resolve(name + EXTENSION)));
+    }
+
+    /**
+     * Finishes every write handed to the store, then stops its writer thread.
+     */
+    @Override
+    public void close() {
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(5, TimeUnit.SECONDS))
+                this.logger.warning("Match snapshots took too long to write; some may be out of date.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface StoreTask {
+        void run() throws IOException;
+    }
+
+    private void submit(StoreTask task) {
+        if (this.writer.isShutdown()) return;
+
+        this.writer.execute(() -> {
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                this.logger.warning("Couldn't write match snapshot: " + e);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.github.xemiru.mcbomberman.game;
+
+/**
+ * What occupies a tile of an arena.
+ */
+public enum Space {
+    /**
+     * Regular bombs can't pass through this space type.
+     * <p/>
+     * Represented as # in initialization strings.
+     */
+    SOLID('#'),
+    /**
+     * Fire will break this space type and occupy it.
+     * <p/>
+     * Represented as X in initialization strings.
+     */
+    SOFT('X'),
+    /**
+     * Nothing is in this space.
+     * <p/>
+     * Represented as the space character (' ') in initialization strings.
+     */
+    EMPTY(' ');
+
+    public final char rep;
+
+    Space(char rep) {
+        this.rep = rep;
+    }
+
+    public static Space getSpace(char rep) {
+        for (var space : Space.values()) {
+            if (space.rep == rep) return space;
+        }
+
+        throw new IllegalArgumentException("Unknown space representation \"" + rep + "\"");
+    }
+}
@@ -0,0 +1,570 @@
+package com.github.xemiru.mcbomberman.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps every player's statistics across matches, on disk and in memory.
+ * <p/>
+ * Recording a match's results on the tick only adds them to an in-memory cache and a queue. The store's writer thread
+ * drains the queue in batches, appending each batch to a log and syncing it once, and folds the log into a snapshot
+ * whenever it grows past {@link #COMPACT_BYTES}. Reads are served from the cache, which always includes results still
+ * waiting to be written. When opened, the store reads the snapshot and replays the log over it; a record cut short by
+ * a crash is dropped from the end of the log.
+ * <p/>
+ * The store also ranks players on every {@link Leaderboard.Board}. The leaderboards are rebuilt in one go when the
+ * store is opened, then updated with each recorded result, so they should only be used on the thread recording results.
+ * <p/>
+ * <h1>Format</h1>
+ * All values are big-endian. Both files begin with a magic number, {@code BMSS} for the snapshot and {@code BMSL} for
+ * the log, a version byte and a generation as a long. The log's generation counts compactions; the snapshot's is that
+ * of the last log folded into it, so a log already folded in before a crash isn't counted twice.
+ * <p/>
+ * The rest of each file is a sequence of records, each the payload's length as an int, the payload, and a CRC32 of the
+ * payload as an int. A payload holds a player's UUID as two longs, their name as a short length followed by UTF-8
+ * bytes, then matches played, wins, eliminations, deaths, bombs placed, powerups taken, current win streak and best win
+ * streak as ints, and finally the time the player reached their score on each {@link Leaderboard.Board}, in order, in
+ * milliseconds since the epoch, as longs. Log records hold the results of one match; snapshot records hold
+ * a player's totals.
+ */
+public class StatsStore implements Closeable {
+
+    private static final int SNAPSHOT_MAGIC = 0x424D5353; // BMSS
+    private static final int LOG_MAGIC = 0x424D534C; // BMSL
+    private static final byte VERSION = 1;
+    private static final int HEADER = 4 + 1 + 8;
+
+    /**
+     * How large the log may grow, in bytes, before it is folded into the snapshot.
+     */
+    public static final long COMPACT_BYTES = 1 << 20;
+
+    /**
+     * A player's statistics, either from a single match or summed over many.
+     */
+    public static final class Stats {
+
+        private final String name;
+        private final int matches, wins, eliminations, deaths, bombs, powerups;
+        private final int streak, bestStreak;
+        private final long[] reached;
+
+        /**
+         * @param reached the time the player reached their score on each {@link Leaderboard.Board}, by ordinal
+         */
+        public Stats(String name, int matches, int wins, int eliminations, int deaths, int bombs, int powerups,
+                     int streak, int bestStreak, long[] reached) {
+            this.name = name;
+            this.matches = matches;
+            this.wins = wins;
+            this.eliminations = eliminations;
+            this.deaths = deaths;
+            this.bombs = bombs;
+            this.powerups = powerups;
+            this.streak = streak;
+            this.bestStreak = bestStreak;
+            this.reached = reached;
+        }
+
+        /**
+         * @param at when the match ended, in milliseconds since the epoch
+         * @return the results of a single match
+         */
+        public static Stats ofMatch(String name, boolean won, int eliminations, boolean died, int bombs, int powerups, long at) {
+            var win = won ? 1 : 0;
+            var reached = new long[Leaderboard.Board.values().length];
+            Arrays.fill(reached, at);
+            return new Stats(name, 1, win, eliminations, died ? 1 : 0, bombs, powerups, win, win, reached);
+        }
+
+        /**
+         * @param at when the match ended, in milliseconds since the epoch
+         * @return the results of a single match for one of its participants
+         */
+        public static Stats ofMatch(String name, Participants players, int slot, long at) {
+            return ofMatch(name,
+                    players.hasWon(slot),
+                    players.getEliminations(slot),
+                    !players.isAlive(slot),
+                    players.getTotalBombs(slot),
+                    players.getTotalPowerups(slot),
+                    at);
+        }
+
+        /**
+         * @return the player's name, as of the latest of the summed matches
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        public int getMatches() {
+            return this.matches;
+        }
+
+        public int getWins() {
+            return this.wins;
+        }
+
+        public int getEliminations() {
+            return this.eliminations;
+        }
+
+        public int getDeaths() {
+            return this.deaths;
+        }
+
+        /**
+         * @return the number of bombs placed
+         */
+        public int getBombs() {
+            return this.bombs;
+        }
+
+        /**
+         * @return the number of powerups taken
+         */
+        public int getPowerups() {
+            return this.powerups;
+        }
+
+        /**
+         * @return the number of matches won in a row, up to the latest one
+         */
+        public int getStreak() {
+            return this.streak;
+        }
+
+        /**
+         * @return the most matches ever won in a row
+         */
+        public int getBestStreak() {
+            return this.bestStreak;
+        }
+
+        /**
+         * @return when the player reached their current score on a board, in milliseconds since the epoch
+         */
+        public long getReached(Leaderboard.Board board) {
+            return this.reached[board.ordinal()];
+        }
+
+        /**
+         * @return the sum of these stats and later ones, under the later name
+         */
+        public Stats plus(Stats later) {
+            // a streak running through every later match carries on from this one
+            var streak = later.wins == later.matches ? this.streak + later.streak : later.streak;
+            var sum = new Stats(later.name,
+                    this.matches + later.matches,
+                    this.wins + later.wins,
+                    this.eliminations + later.eliminations,
+                    this.deaths + later.deaths,
+                    this.bombs + later.bombs,
+                    this.powerups + later.powerups,
+                    streak,
+                    Math.max(streak, Math.max(this.bestStreak, later.bestStreak)),
+                    new long[this.reached.length]);
+
+            // a score that didn't change was reached back when it last did
+            for (var board : Leaderboard.Board.values()) {
+                var i = board.ordinal();
+                sum.reached[i] = board.score(sum) == board.score(this) ? this.reached[i] : later.reached[i];
+            }
+
+            return sum;
+        }
+    }
+
+    private static final class Entry {
+        final UUID id;
+        final Stats stats;
+
+        Entry(UUID id, Stats stats) {
+            this.id = id;
+            this.stats = stats;
+        }
+    }
+
+    private interface StoreTask {
+        void run() throws IOException;
+    }
+
+    private final Path directory;
+    private final Logger logger;
+    private final Map<UUID, Stats> cache = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final Map<Leaderboard.Board, Leaderboard> boards = new EnumMap<>(Leaderboard.Board.class);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "bomberman-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // only touched by the writer thread once opened
+    private final Map<UUID, Stats> totals = new HashMap<>();
+    private FileChannel log;
+    private long logSize;
+    private long generation;
+    private volatile boolean failed = false;
+
+    private StatsStore(Path directory, Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+    }
+
+    /**
+     * Opens the store kept in a directory, creating it if needed, and reads every player's statistics into memory.
+     *
+     * @param directory the directory holding the store's files
+     * @param logger the logger to report problems to
+     * @return the store
+     * @throws IOException if the store couldn't be read or its log couldn't be opened
+     */
+    public static StatsStore open(Path directory, Logger logger) throws IOException {
+        var store = new StatsStore(directory, logger);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.writer.shutdownNow();
+            if (store.log != null) store.log.close();
+            throw e;
+        }
+
+        for (var board : Leaderboard.Board.values()) {
+            var leaderboard = new Leaderboard(board);
+            leaderboard.rebuild(store.cache);
+            store.boards.put(board, leaderboard);
+        }
+
+        return store;
+    }
+
+    /**
+     * @return a player's statistics over every recorded match, or null if they've never been recorded
+     */
+    public Stats get(UUID id) {
+        return this.cache.get(id);
+    }
+
+    /**
+     * @return the number of players with recorded statistics
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * @return the ranking of every player on a board
+     */
+    public Leaderboard getLeaderboard(Leaderboard.Board board) {
+        return this.boards.get(board);
+    }
+
+    /**
+     * Records a player's results from one match. Returns immediately; the results are written by the writer thread.
+     *
+     * @param id the player's UUID
+     * @param result the player's results
+     */
+    public void record(UUID id, Stats result) {
+        var total = this.cache.merge(id, result, Stats::plus);
+        for (var leaderboard : this.boards.values()) leaderboard.update(id, total);
+        this.queue.add(new Entry(id, result));
+
+        // results recorded while a flush is queued are written with it
+        if (this.flushing.compareAndSet(false, true)) this.submit(this::flush);
+    }
+
+    /**
+     * Writes every player's totals to a file as newline-delimited JSON, one object per player. The file is written by
+     * the writer thread, one player at a time, after every result recorded before this call.
+     *
+     * @param path the file to write
+     * @return a future completing with the number of players written
+     */
+    public CompletableFuture<Integer> export(Path path) {
+        var result = new CompletableFuture<Integer>();
+        this.writer.execute(() -> {
+            try {
+                if (!this.failed) this.flush();
+                try (var out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                    for (var entry : this.totals.entrySet()) {
+                        var stats = entry.getValue();
+                        out.write(String.format(
+                                "{\"uuid\":\"%s\",\"name\":\"%s\",\"matches\":%d,\"wins\":%d,\"eliminations\":%d,\"deaths\":%d,\"bombs\":%d,\"powerups\":%d,\"bestStreak\":%d}",
+                                entry.getKey(), escape(stats.getName()), stats.getMatches(), stats.getWins(),
+                                stats.getEliminations(), stats.getDeaths(), stats.getBombs(), stats.getPowerups(), stats.getBestStreak()));
+                        out.newLine();
+                    }
+                }
+
+                result.complete(this.totals.size());
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Writes every recorded result, then stops the writer thread and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        this.submit(this::flush);
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(5, TimeUnit.SECONDS))
+                this.logger.warning("Stats store took too long to close; some results may be lost.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (this.log != null) this.log.close();
+    }
+
+    // ---
+    //
+    // internal
+    //
+    // ---
+
+    private Path snapshotPath() {
+        return this.directory.resolve("stats.snapshot");
+    }
+
+    private Path logPath() {
+        return this.directory.resolve("stats.log");
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(this.directory);
+
+        var covered = -1L;
+        var snapshot = this.snapshotPath();
+        if (Files.isRegularFile(snapshot)) {
+            try (var channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                covered = this.read(channel, SNAPSHOT_MAGIC, "snapshot");
+            }
+        }
+
+        this.log = FileChannel.open(this.logPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (this.log.size() < HEADER) {
+            this.generation = covered + 1;
+            this.startLog();
+        } else {
+            // an unfinished compaction may have already folded this log into the snapshot
+            var totals = new HashMap<>(this.totals);
+            this.generation = this.read(this.log, LOG_MAGIC, "log");
+            if (this.generation <= covered) {
+                this.totals.clear();
+                this.totals.putAll(totals);
+                this.generation = covered + 1;
+                this.startLog();
+            }
+        }
+
+        this.cache.putAll(this.totals);
+    }
+
+    /**
+     * Reads every intact record of a file into the totals, and leaves the channel positioned after the last one.
+     *
+     * @return the file's generation
+     */
+    private long read(FileChannel channel, int magic, String kind) throws IOException {
+        var header = ByteBuffer.allocate(HEADER);
+        while (header.hasRemaining() && channel.read(header) >= 0) ;
+        header.flip();
+        if (header.remaining() < HEADER || header.getInt() != magic)
+            throw new IllegalStateException("Stats " + kind + " is not a stats file.");
+        var version = header.get();
+        if (version != VERSION) throw new IllegalStateException("Unsupported stats " + kind + " version " + version + ".");
+        var generation = header.getLong();
+
+        var data = ByteBuffer.allocate((int) (channel.size() - HEADER));
+        while (data.hasRemaining() && channel.read(data) >= 0) ;
+        data.flip();
+
+        var crc = new CRC32();
+        while (data.remaining() >= 4) {
+            var start = data.position();
+            var length = data.getInt();
+            if (length < 16 || data.remaining() < length + 4) {
+                data.position(start);
+                break;
+            }
+
+            var payload = data.slice(data.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            data.position(data.position() + length);
+            if ((int) crc.getValue() != data.getInt()) {
+                data.position(start);
+                break;
+            }
+
+            var id = new UUID(payload.getLong(), payload.getLong());
+            var name = new byte[payload.getShort()];
+            payload.get(name);
+
+            var counts = new int[8];
+            for (int i = 0; i < counts.length; i++) counts[i] = payload.getInt();
+
+            var reached = new long[Leaderboard.Board.values().length];
+            for (int i = 0; i < reached.length; i++) reached[i] = payload.getLong();
+
+            var stats = new Stats(new String(name, StandardCharsets.UTF_8),
+                    counts[0], counts[1], counts[2], counts[3], counts[4], counts[5], counts[6], counts[7], reached);
+            this.totals.merge(id, stats, Stats::plus);
+        }
+
+        var end = HEADER + data.position();
+        if (end < channel.size()) {
+            this.logger.warning(String.format("Stats %s had %d unreadable bytes at its end, which were dropped.", kind, channel.size() - end));
+            if (magic == LOG_MAGIC) channel.truncate(end);
+        }
+
+        channel.position(end);
+        this.logSize = end;
+        return generation;
+    }
+
+    private void startLog() throws IOException {
+        this.log.truncate(0);
+        this.log.position(0);
+        this.write(this.log, header(LOG_MAGIC, this.generation));
+        this.log.force(false);
+        this.logSize = HEADER;
+    }
+
+    private void flush() throws IOException {
+        this.flushing.set(false);
+        if (this.queue.isEmpty()) return;
+
+        var batch = ByteBuffer.allocate(4096);
+        Entry entry;
+        while ((entry = this.queue.poll()) != null) {
+            var record = encode(entry.id, entry.stats);
+            if (batch.remaining() < record.remaining()) {
+                var grown = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + record.remaining()));
+                batch = grown.put(batch.flip());
+            }
+
+            batch.put(record);
+            this.totals.merge(entry.id, entry.stats, Stats::plus);
+        }
+
+        batch.flip();
+        this.logSize += batch.remaining();
+        this.write(this.log, batch);
+        this.log.force(false);
+
+        if (this.logSize > COMPACT_BYTES) this.compact();
+    }
+
+    /**
+     * Folds the log into the snapshot by writing every player's totals to a new snapshot, then starting a new log.
+     */
+    private void compact() throws IOException {
+        var started = System.nanoTime();
+        var temp = this.directory.resolve("stats.snapshot.tmp");
+        try (var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            this.write(out, header(SNAPSHOT_MAGIC, this.generation));
+            for (var entry : this.totals.entrySet()) this.write(out, encode(entry.getKey(), entry.getValue()));
+            out.force(true);
+        }
+
+        Files.move(temp, this.snapshotPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        this.generation++;
+        this.startLog();
+        this.logger.info(String.format("Compacted stats of %d players in %.1fms", this.totals.size(), (System.nanoTime() - started) / 1e6));
+    }
+
+    private void write(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+
+    private void submit(StoreTask task) {
+        if (this.failed || this.writer.isShutdown()) return;
+
+        this.writer.execute(() -> {
+            if (this.failed) return;
+
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                // keep serving reads from the cache, but stop writing to a log that may now be damaged
+                this.failed = true;
+                this.logger.severe("Stats could not be written, and won't be saved until restarted: " + e);
+            }
+        });
+    }
+
+    private static ByteBuffer header(int magic, long generation) {
+        return ByteBuffer.allocate(HEADER).putInt(magic).put(VERSION).putLong(generation).flip();
+    }
+
+    private static ByteBuffer encode(UUID id, Stats stats) {
+        var name = stats.getName().getBytes(StandardCharsets.UTF_8);
+        var boards = Leaderboard.Board.values();
+        var length = 16 + 2 + name.length + 4 * 8 + 8 * boards.length;
+        var buf = ByteBuffer.allocate(4 + length + 4);
+        buf.putInt(length)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .putShort((short) name.length)
+                .put(name)
+                .putInt(stats.getMatches())
+                .putInt(stats.getWins())
+                .putInt(stats.getEliminations())
+                .putInt(stats.getDeaths())
+                .putInt(stats.getBombs())
+                .putInt(stats.getPowerups())
+                .putInt(stats.getStreak())
+                .putInt(stats.getBestStreak());
+        for (var board : boards) buf.putLong(stats.getReached(board));
+
+        var crc = new CRC32();
+        crc.update(buf.array(), 4, length);
+        return buf.putInt((int) crc.getValue()).flip();
+    }
+
+    private static String escape(String text) {
+        var out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c == '"' || c == '\\') out.append('\\').append(c);
+            else if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+            else out.append(c);
+        }
+
+        return out.toString();
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.github.xemiru.mcbomberman.game;
+
+/**
+ * A rectangle of tiles, each holding a {@link Space}.
+ */
+interface TileGrid {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * @return the space of a tile, or {@link Space#SOLID} if it lies outside the grid
+     */
+    Space getSpace(int x, int y);
+
+}
@@ -0,0 +1,87 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Which tiles of a {@link BombermanGrid} a set of tracked entities stand on.
+ * <p/>
+ * Positions are sampled once per tick through {@link #update()}. Entities that leave the grid are kept tracked, but
+ * aren't on any tile.
+ */
+class TileOccupancy {
+
+    private static class Occupant {
+        private final Entity entity;
+        private int tile = -1;
+
+        private Occupant(Entity entity) {
+            this.entity = entity;
+        }
+    }
+
+    private final BombermanGrid grid;
+    private final List<Occupant> occupants = new ArrayList<>();
+    private final Map<UUID, Occupant> byId = new HashMap<>();
+    private final Location scratch = new Location(null, 0, 0, 0);
+
+    TileOccupancy(BombermanGrid grid) {
+        this.grid = grid;
+    }
+
+    void track(Entity entity) {
+        if (this.byId.containsKey(entity.getUniqueId())) return;
+
+        var occupant = new Occupant(entity);
+        this.occupants.add(occupant);
+        this.byId.put(entity.getUniqueId(), occupant);
+        occupant.tile = this.tileOf(entity);
+    }
+
+    void untrack(Entity entity) {
+        var occupant = this.byId.remove(entity.getUniqueId());
+        if (occupant == null) return;
+
+        this.occupants.remove(occupant);
+    }
+
+    /**
+     * Samples the position of every tracked entity, dropping entities that no longer exist.
+     */
+    void update() {
+        this.occupants.removeIf(occupant -> {
+            if (!occupant.entity.isValid()) {
+                this.byId.remove(occupant.entity.getUniqueId());
+                return true;
+            }
+
+            occupant.tile = this.tileOf(occupant.entity);
+            return false;
+        });
+    }
+
+    /**
+     * @return the tile index an entity stood on when last sampled, or -1 if it is untracked or outside the grid
+     */
+    int getTile(Entity entity) {
+        var occupant = this.byId.get(entity.getUniqueId());
+        return occupant == null ? -1 : occupant.tile;
+    }
+
+    void clear() {
+        this.occupants.clear();
+        this.byId.clear();
+    }
+
+    private int tileOf(Entity entity) {
+        var loc = entity.getLocation(this.scratch);
+        return this.grid.getTileIndexAt(loc.getX(), loc.getZ());
+    }
+
+}
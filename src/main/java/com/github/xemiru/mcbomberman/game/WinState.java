@@ -8,32 +8,41 @@ public class WinState extends GameState {
     @GModule
     BombermanModule bomberman;
 
-    private int ticks;
+    public static final int TIMEOUT_TICKS = 20 * 10;
+
+    private int stopAt;
 
     @Override
     protected void onInit() {
-        this.ticks = 0;
+        this.stopAt = this.game.getClock().now() + TIMEOUT_TICKS;
         StringBuilder winners = new StringBuilder();
-        this.game.forEachPlayer(p -> {
-            bomberman.getPlayer(p).ifPresent(bp -> {
+        var players = bomberman.getPlayers();
+        if (bomberman.getTeams() > 0) {
+            // name the surviving teams rather than every survivor
+            for (int team = 0; team < bomberman.getTeams(); team++) {
+                if (players.getLivingCount(team) == 0) continue;
+                if (winners.length() > 0) winners.append(", ");
+                winners.append(BombermanModule.getTeamName(team));
+            }
+        } else {
+            for (int slot = 0; slot < players.size(); slot++) {
+                if (!players.isAlive(slot)) continue;
                 if (winners.length() > 0) winners.append(", ");
-                winners.append(p.getName());
-            });
-        });
+                winners.append(players.getName(slot));
+            }
+        }
 
         winners.append(" wins!");
-        this.game.forEachPlayer(p -> {
-            p.sendTitle("Game over!", winners.toString(), 0, 90, 10);
-        });
+        this.game.getMessenger().title("Game over!", winners.toString(), 0, 90, 10);
 
         bomberman.setAllowActions(false);
         bomberman.clearBombs();
+        bomberman.recordResults();
     }
 
     @Override
     protected void tick() {
-        ticks++;
-        if (ticks > 20 * 10) {
+        if (this.game.getClock().now() > this.stopAt) {
             game.stop();
         }
     }
@@ -0,0 +1,120 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ArenaCatalogTest {
+
+    @TempDir
+    Path dir;
+
+    private static final ArenaLayout SMALL = ArenaLayout.parse(5, 5, ""
+            + "  X  "
+            + " # # "
+            + "XX XX"
+            + " # # "
+            + "  X  ");
+
+    private static final ArenaLayout WIDE = ArenaLayout.parse(7, 3, ""
+            + "   X   "
+            + " #X#X# "
+            + "   X   ");
+
+    private static final Palette WIDE_PALETTE = new Palette(Material.SMOOTH_STONE, Material.STONE_BRICKS, Material.OAK_PLANKS);
+
+    private Path write() throws IOException {
+        var path = this.dir.resolve("arenas.bmac");
+        ArenaCatalog.write(path, List.of(SMALL, WIDE), Arrays.asList(null, WIDE_PALETTE));
+        return path;
+    }
+
+    private static void assertSameLayout(ArenaLayout expected, ArenaLayout actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++)
+                assertEquals(expected.getSpace(x, y), actual.getSpace(x, y), "tile " + x + ", " + y);
+        }
+
+        assertEquals(expected.getSpawnCount(), actual.getSpawnCount());
+        for (int i = 0; i < expected.getSpawnCount(); i++) {
+            assertEquals(expected.getSpawnX(i), actual.getSpawnX(i));
+            assertEquals(expected.getSpawnY(i), actual.getSpawnY(i));
+        }
+    }
+
+    @Test
+    void layoutsRoundTrip() throws IOException {
+        try (var catalog = ArenaCatalog.open(this.write())) {
+            assertEquals(2, catalog.size());
+            assertEquals(7, catalog.getWidth(1));
+            assertEquals(3, catalog.getHeight(1));
+
+            assertSameLayout(SMALL, catalog.read(0));
+            assertNull(catalog.readPalette(0));
+
+            var wide = catalog.read(1);
+            assertSameLayout(WIDE, wide);
+            assertEquals(Space.SOLID, wide.getSpace(1, 1));
+
+            var palette = catalog.readPalette(1);
+            assertEquals(Material.SMOOTH_STONE, palette.getFloorTile());
+            assertEquals(Material.STONE_BRICKS, palette.getWallTile());
+            assertEquals(Material.OAK_PLANKS, palette.getSoftWallTile());
+        }
+    }
+
+    @Test
+    void corruptRecordIsCaughtByItsChecksum() throws IOException {
+        var path = this.write();
+        var bytes = Files.readAllBytes(path);
+
+        // flip a bit in the second layout's last tile byte, just before its checksum
+        var index = ByteBuffer.wrap(bytes);
+        var offset = (int) index.getLong(9 + 12);
+        var length = index.getInt(9 + 12 + 8);
+        bytes[offset + length - 5] ^= 1;
+        Files.write(path, bytes);
+
+        try (var catalog = ArenaCatalog.open(path)) {
+            assertSameLayout(SMALL, catalog.read(0));
+            assertThrows(IllegalStateException.class, () -> catalog.read(1));
+        }
+    }
+
+    @Test
+    void malformedLayoutsAreRejected() {
+        var tiles = new Space[25];
+        Arrays.fill(tiles, Space.EMPTY);
+        var outside = ArenaCatalog.encode(new ArenaLayout(0, 5, 5, tiles, new int[]{0, 25}), null);
+        assertThrows(IllegalStateException.class, () -> ArenaCatalog.decode(outside));
+
+        var truncated = ArenaCatalog.encode(SMALL, null);
+        truncated.limit(truncated.limit() - 6);
+        assertThrows(IllegalStateException.class, () -> ArenaCatalog.decode(truncated));
+
+        var flat = ArenaCatalog.encode(SMALL, null);
+        flat.putShort(13 + 2, (short) 0);
+        assertThrows(IllegalStateException.class, () -> ArenaCatalog.decode(flat));
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        var path = this.dir.resolve("other.bin");
+        Files.write(path, new byte[]{'B', 'M', 'R', 'P', 1, 0, 0, 0, 0});
+        assertThrows(IllegalArgumentException.class, () -> ArenaCatalog.open(path));
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuseWheelTest {
+
+    private static Bomb bomb(int detonateAt) {
+        var bomb = new Bomb();
+        bomb.detonateAt = detonateAt;
+        return bomb;
+    }
+
+    private static List<Bomb> advance(FuseWheel wheel, int tick) {
+        var due = new ArrayList<Bomb>();
+        wheel.advance(tick, due);
+        return due;
+    }
+
+    @Test
+    void bombComesDueOnItsTick() {
+        var wheel = new FuseWheel(8, 0);
+        var bomb = bomb(5);
+        wheel.schedule(bomb);
+
+        assertTrue(advance(wheel, 4).isEmpty());
+        assertEquals(List.of(bomb), advance(wheel, 5));
+        assertFalse(bomb.scheduled);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overdueBombComesDueOnTheNextTick() {
+        var wheel = new FuseWheel(8, 10);
+        var bomb = bomb(3);
+        wheel.schedule(bomb);
+
+        assertEquals(List.of(bomb), advance(wheel, 11));
+    }
+
+    @Test
+    void bombWaitsOutLapsOfTheWheel() {
+        var wheel = new FuseWheel(4, 0);
+        var bomb = bomb(10);
+        wheel.schedule(bomb);
+
+        for (int tick = 1; tick < 10; tick++) assertTrue(advance(wheel, tick).isEmpty(), "tick " + tick);
+        assertEquals(List.of(bomb), advance(wheel, 10));
+    }
+
+    @Test
+    void clockJumpingAheadCollectsEverythingPassed() {
+        var wheel = new FuseWheel(4, 0);
+        var early = bomb(2);
+        var late = bomb(7);
+        wheel.schedule(early);
+        wheel.schedule(late);
+
+        var due = advance(wheel, 50);
+        assertEquals(2, due.size());
+        assertTrue(due.contains(early) && due.contains(late));
+    }
+
+    @Test
+    void cancelledBombNeverComesDue() {
+        var wheel = new FuseWheel(8, 0);
+        var bomb = bomb(3);
+        wheel.schedule(bomb);
+        wheel.cancel(bomb);
+
+        assertEquals(0, wheel.size());
+        assertTrue(advance(wheel, 3).isEmpty());
+    }
+
+    @Test
+    void rescheduledBombComesDueOnceAtItsNewTick() {
+        var wheel = new FuseWheel(8, 0);
+        var bomb = bomb(3);
+        wheel.schedule(bomb);
+        wheel.cancel(bomb);
+        bomb.detonateAt = 6;
+        wheel.schedule(bomb);
+
+        assertEquals(1, wheel.size());
+        assertTrue(advance(wheel, 5).isEmpty());
+        assertEquals(List.of(bomb), advance(wheel, 6));
+        assertTrue(advance(wheel, 20).isEmpty());
+    }
+
+    @Test
+    void rescheduledOnTheSameTickComesDueOnce() {
+        var wheel = new FuseWheel(8, 0);
+        var bomb = bomb(3);
+        wheel.schedule(bomb);
+        wheel.cancel(bomb);
+        wheel.schedule(bomb);
+
+        assertEquals(List.of(bomb), advance(wheel, 3));
+    }
+
+    @Test
+    void collectAndClear() {
+        var wheel = new FuseWheel(8, 0);
+        var first = bomb(2);
+        var second = bomb(9);
+        var cancelled = bomb(4);
+        wheel.schedule(first);
+        wheel.schedule(second);
+        wheel.schedule(cancelled);
+        wheel.cancel(cancelled);
+
+        var held = new ArrayList<Bomb>();
+        wheel.collect(held);
+        assertEquals(2, held.size());
+        assertFalse(held.contains(cancelled));
+
+        wheel.clear();
+        assertEquals(0, wheel.size());
+        assertFalse(first.scheduled || second.scheduled);
+        assertTrue(advance(wheel, 20).isEmpty());
+    }
+
+}
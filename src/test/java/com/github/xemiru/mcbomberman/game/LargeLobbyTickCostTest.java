@@ -0,0 +1,110 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the server-free part of a large-lobby tick against {@link BombermanModule#TICK_COST_TARGET_NANOS}.
+ * <p/>
+ * Each match puts 64 bots on a generated 41x41 arena and plays until one is left or three minutes pass. Bots plan with
+ * {@link BotPlanner} and walk their plans a tile at a time, and the {@link MatchCore} places their bombs, runs the fuse
+ * wheel, resolves blasts and keeps the danger field. Planning runs on worker threads in a real match, so it is timed
+ * apart from the rest of the tick. Entity teleports, packets and scoreboards aren't covered; the module's own timing
+ * reports those on a live server.
+ */
+class LargeLobbyTickCostTest {
+
+    private static final int PARTICIPANTS = 64;
+    private static final int SIZE = 41;
+    private static final int WARMUP_MATCHES = 2;
+    private static final int MATCHES = 6;
+    private static final int MAX_TICKS = 20 * 60 * 3;
+
+    private final long[] costs = new long[MATCHES * MAX_TICKS];
+    private int measured = 0;
+    private long planning = 0;
+    private int plans = 0;
+
+    @Test
+    void largeLobbyTickMeetsTheTarget() {
+        var generator = new ArenaGenerator(SIZE, SIZE, 0.5, ArenaGenerator.SolidPattern.PILLARS, PARTICIPANTS);
+        for (int match = 0; match < WARMUP_MATCHES + MATCHES; match++)
+            this.play(generator.generate(match), match, match >= WARMUP_MATCHES);
+
+        var sorted = Arrays.copyOf(this.costs, this.measured);
+        Arrays.sort(sorted);
+        var average = Arrays.stream(sorted).sum() / sorted.length;
+        System.out.printf("%d matches, %d ticks with %d bots on %dx%d: average tick %.4fms, p99 %.4fms, worst %.4fms, target %.3fms%n",
+                MATCHES, sorted.length, PARTICIPANTS, SIZE, SIZE, average / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6, BombermanModule.TICK_COST_TARGET_NANOS / 1e6);
+        System.out.printf("planning on workers: %.4fms per tick, %.4fms per plan%n",
+                this.planning / 1e6 / sorted.length, this.planning / 1e6 / Math.max(1, this.plans));
+
+        assertTrue(average <= BombermanModule.TICK_COST_TARGET_NANOS, "average tick " + average + "ns is over the target");
+    }
+
+    private void play(ArenaLayout layout, long seed, boolean measure) {
+        var core = new MatchCore(layout, seed);
+        var players = new PlayerSlots();
+        core.setParticipants(players);
+
+        var tile = new int[PARTICIPANTS];
+        var step = new int[PARTICIPANTS];
+        var moveAt = new int[PARTICIPANTS];
+        var plan = new BotPlanner.Plan[PARTICIPANTS];
+        for (int slot = 0; slot < PARTICIPANTS; slot++) {
+            players.join();
+            tile[slot] = layout.getSpawnTile(slot);
+            core.move(slot, tile[slot]);
+        }
+
+        for (int now = 1; now <= MAX_TICKS && players.getLivingCount() > 1; now++) {
+            var started = System.nanoTime();
+            var planned = 0L;
+            for (int slot = 0; slot < PARTICIPANTS; slot++) {
+                if (!players.alive[slot]) continue;
+
+                var ticksPerTile = BotController.ticksPerTile(players.getWalkSpeed(slot));
+                var idle = plan[slot] != null && step[slot] >= plan[slot].path.length && !plan[slot].bomb;
+                if (plan[slot] == null || plan[slot].version != core.getVersion() || (idle && now % BotController.IDLE_REPLAN_TICKS == 0)) {
+                    var snapshot = core.snapshot(now);
+                    var canBomb = players.placedBombs[slot] < players.bombs[slot] && now >= players.bombReadyAt[slot];
+
+                    var planStarted = System.nanoTime();
+                    plan[slot] = BotPlanner.plan(snapshot, tile[slot], players.power[slot], canBomb, ticksPerTile, now);
+                    planned += System.nanoTime() - planStarted;
+                    step[slot] = 0;
+                    if (measure) this.plans++;
+                }
+
+                if (now < moveAt[slot]) continue;
+                if (step[slot] < plan[slot].path.length) {
+                    var next = plan[slot].path[step[slot]];
+                    if (core.getSpace(next % SIZE, next / SIZE) == Space.EMPTY && core.getBomb(next) == null) {
+                        tile[slot] = next;
+                        step[slot]++;
+                        moveAt[slot] = now + ticksPerTile;
+                        core.move(slot, next);
+                    } else {
+                        plan[slot] = null;
+                    }
+                } else if (plan[slot].bomb) {
+                    core.placeBomb(slot, tile[slot] % SIZE, tile[slot] / SIZE);
+                    plan[slot] = null;
+                }
+            }
+
+            core.tick(now);
+            core.getDanger().publish();
+
+            if (measure) {
+                this.costs[this.measured++] = System.nanoTime() - started - planned;
+                this.planning += planned;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LeaderboardTest {
+
+    @TempDir
+    Path dir;
+
+    private static StatsStore.Stats wins(int wins, long reached) {
+        var at = new long[Leaderboard.Board.values().length];
+        at[Leaderboard.Board.WINS.ordinal()] = reached;
+        return new StatsStore.Stats("player", wins, wins, 0, 0, 0, 0, 0, 0, at);
+    }
+
+    /**
+     * Checks every way of reading a leaderboard against the players sorted by hand.
+     */
+    private static void assertRanks(Leaderboard board, Map<UUID, StatsStore.Stats> stats) {
+        var expected = new ArrayList<>(stats.keySet());
+        expected.sort(Comparator.<UUID>comparingInt(id -> -stats.get(id).getWins())
+                .thenComparingLong(id -> stats.get(id).getReached(Leaderboard.Board.WINS))
+                .thenComparing(Comparator.naturalOrder()));
+
+        assertEquals(expected.size(), board.size());
+        for (int i = 0; i < expected.size(); i++) {
+            var id = expected.get(i);
+            assertEquals(i + 1, board.getRank(id), "rank of player " + i);
+            assertEquals(id, board.get(i + 1).id);
+            assertEquals(stats.get(id).getWins(), board.getScore(id));
+        }
+
+        assertNull(board.get(expected.size() + 1));
+
+        var top = board.top(10);
+        assertEquals(Math.min(10, expected.size()), top.size());
+        for (int i = 0; i < top.size(); i++) assertEquals(expected.get(i), top.get(i).id);
+    }
+
+    @Test
+    void emptyBoard() {
+        var board = new Leaderboard(Leaderboard.Board.WINS);
+        assertEquals(0, board.size());
+        assertEquals(0, board.getRank(UUID.randomUUID()));
+        assertNull(board.get(1));
+        assertEquals(List.of(), board.top(5));
+    }
+
+    @Test
+    void updatesMatchSortedOrder() {
+        var random = new SplittableRandom(7);
+        var board = new Leaderboard(Leaderboard.Board.WINS);
+        var stats = new HashMap<UUID, StatsStore.Stats>();
+        var ids = new UUID[300];
+        for (int i = 0; i < ids.length; i++) ids[i] = new UUID(random.nextLong(), random.nextLong());
+
+        for (int step = 0; step < 3000; step++) {
+            var id = ids[random.nextInt(ids.length)];
+            var old = stats.get(id);
+            var next = wins(random.nextInt(20), step);
+
+            // an unchanged score keeps the time it was first reached
+            if (old != null && old.getWins() == next.getWins()) continue;
+
+            stats.put(id, next);
+            board.update(id, next);
+            if (step % 500 == 0) assertRanks(board, stats);
+        }
+
+        assertRanks(board, stats);
+    }
+
+    @Test
+    void rebuildMatchesUpdates() {
+        var random = new SplittableRandom(11);
+        var stats = new LinkedHashMap<UUID, StatsStore.Stats>();
+        var updated = new Leaderboard(Leaderboard.Board.WINS);
+        for (int i = 0; i < 1000; i++) {
+            var id = new UUID(random.nextLong(), random.nextLong());
+            var entry = wins(random.nextInt(30), random.nextInt(50));
+            stats.put(id, entry);
+            updated.update(id, entry);
+        }
+
+        var rebuilt = new Leaderboard(Leaderboard.Board.WINS);
+        rebuilt.rebuild(stats);
+        assertRanks(rebuilt, stats);
+        for (int rank = 1; rank <= stats.size(); rank++) assertEquals(updated.get(rank).id, rebuilt.get(rank).id);
+
+        // a rebuilt board keeps taking updates
+        var first = rebuilt.get(1).id;
+        var promoted = rebuilt.get(500).id;
+        stats.put(promoted, wins(100, 60));
+        rebuilt.update(promoted, stats.get(promoted));
+        assertEquals(1, rebuilt.getRank(promoted));
+        assertEquals(2, rebuilt.getRank(first));
+        assertRanks(rebuilt, stats);
+    }
+
+    @Test
+    void tiesGoToWhoeverReachedTheScoreFirst() {
+        var board = new Leaderboard(Leaderboard.Board.WINS);
+        var early = UUID.randomUUID();
+        var late = UUID.randomUUID();
+        board.update(late, wins(3, 200));
+        board.update(early, wins(3, 100));
+
+        assertEquals(1, board.getRank(early));
+        assertEquals(2, board.getRank(late));
+    }
+
+    @Test
+    void ranksSurviveARestart() throws IOException {
+        var ids = new UUID[40];
+        for (int i = 0; i < ids.length; i++) ids[i] = UUID.randomUUID();
+
+        var before = new UUID[ids.length];
+        try (var store = StatsStore.open(this.dir, Logger.getAnonymousLogger())) {
+            // every player wins once, in order, so all tie on wins
+            for (int i = 0; i < ids.length; i++) store.record(ids[i], StatsStore.Stats.ofMatch("p" + i, true, 0, false, 0, 0, 1000 + i));
+
+            var board = store.getLeaderboard(Leaderboard.Board.WINS);
+            for (int rank = 1; rank <= ids.length; rank++) before[rank - 1] = board.get(rank).id;
+        }
+
+        assertEquals(ids[0], before[0]);
+        assertEquals(ids[ids.length - 1], before[ids.length - 1]);
+
+        try (var store = StatsStore.open(this.dir, Logger.getAnonymousLogger())) {
+            var board = store.getLeaderboard(Leaderboard.Board.WINS);
+            for (int rank = 1; rank <= ids.length; rank++) assertEquals(before[rank - 1], board.get(rank).id, "rank " + rank);
+        }
+    }
+
+    @Test
+    void lossesKeepTheTimeTheScoreWasReached() {
+        var first = StatsStore.Stats.ofMatch("a", true, 0, false, 0, 0, 100);
+        var total = first.plus(StatsStore.Stats.ofMatch("a", false, 0, true, 0, 0, 200));
+        assertEquals(100, total.getReached(Leaderboard.Board.WINS));
+        assertEquals(100, total.getReached(Leaderboard.Board.STREAK));
+
+        total = total.plus(StatsStore.Stats.ofMatch("a", true, 0, false, 0, 0, 300));
+        assertEquals(300, total.getReached(Leaderboard.Board.WINS));
+        assertEquals(100, total.getReached(Leaderboard.Board.STREAK));
+    }
+
+}
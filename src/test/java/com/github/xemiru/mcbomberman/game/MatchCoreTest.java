@@ -0,0 +1,310 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchCoreTest {
+
+    private static final int WIDTH = 7;
+
+    // spawns in the corners; soft walls down the middle column
+    private static final String ARENA = ""
+            + "   X   "
+            + " # X # "
+            + "   X   "
+            + " # X # "
+            + "   X   ";
+
+    private static final long SEED = 42;
+
+    private final List<String> events = new ArrayList<>();
+    private final MatchCore.Events log = new MatchCore.Events() {
+        @Override
+        public void spaceChanged(int tile, Space space) {
+            events.add("space " + tile + " " + space);
+        }
+
+        @Override
+        public void powerupChanged(int tile, Powerup powerup) {
+            events.add("powerup " + tile + " " + powerup);
+        }
+
+        @Override
+        public void bombPlaced(Bomb bomb) {
+            events.add("placed " + bomb.x + "," + bomb.y);
+        }
+
+        @Override
+        public void bombDetonated(Bomb bomb) {
+            events.add("detonated " + bomb.x + "," + bomb.y);
+        }
+
+        @Override
+        public void bombRemoved(Bomb bomb) {
+            events.add("removed " + bomb.x + "," + bomb.y);
+        }
+
+        @Override
+        public void eliminated(int slot, Bomb bomb) {
+            events.add("eliminated " + slot + " by " + bomb.owner);
+        }
+    };
+
+    private MatchCore core(long seed, int participants) {
+        var core = new MatchCore(ArenaLayout.parse(WIDTH, 5, ARENA), seed);
+        var players = new Participants();
+        for (int i = 0; i < participants; i++) players.join();
+        core.setParticipants(players);
+        core.addListener(this.log);
+        return core;
+    }
+
+    private static void runUntil(MatchCore core, int tick) {
+        for (int t = core.getNow() + 1; t <= tick; t++) core.tick(t);
+    }
+
+    @Test
+    void placingABombCountsAgainstItsOwner() {
+        var core = this.core(SEED, 1);
+        var players = core.getParticipants();
+
+        var bomb = core.placeBomb(0, 0, 0);
+        assertNotNull(bomb);
+        assertSame(bomb, core.getBomb(0));
+        assertEquals(MatchCore.BOMB_FUSE_TICKS, bomb.detonateAt);
+        assertEquals(1, players.getPlacedBombs(0));
+        assertEquals(1, players.getTotalBombs(0));
+
+        // a participant with one bomb can't place another until it goes off
+        runUntil(core, MatchCore.BOMB_COOLDOWN_TICKS);
+        assertNull(core.placeBomb(0, 1, 0));
+    }
+
+    @Test
+    void bombsNeedAnEmptyTileAndACooledDownOwner() {
+        var core = this.core(SEED, 2);
+        var players = core.getParticipants();
+        players.addPowerup(0, Powerup.BOMBS);
+
+        assertNull(core.placeBomb(0, 1, 1), "solid wall");
+        assertNull(core.placeBomb(0, 3, 0), "soft wall");
+        assertNull(core.placeBomb(0, -1, 0), "outside the arena");
+        assertNotNull(core.placeBomb(0, 0, 0));
+        assertNull(core.placeBomb(1, 0, 0), "tile holds a bomb");
+        assertNull(core.placeBomb(0, 1, 0), "cooling down");
+
+        runUntil(core, MatchCore.BOMB_COOLDOWN_TICKS);
+        assertNotNull(core.placeBomb(0, 1, 0));
+
+        players.eliminate(1);
+        assertNull(core.placeBomb(1, 6, 4), "eliminated");
+    }
+
+    @Test
+    void bombGoesOffWhenItsFuseRunsOut() {
+        var core = this.core(SEED, 2);
+        var players = core.getParticipants();
+        core.move(0, 2 * WIDTH);
+        core.move(1, 0);
+
+        // the blast reaches one tile each way: the second participant, and the soft wall to the east
+        core.placeBomb(0, 2, 0);
+        core.move(1, 1);
+        runUntil(core, MatchCore.BOMB_FUSE_TICKS - 1);
+        assertTrue(players.isAlive(1));
+        assertEquals(Space.SOFT, core.getSpace(3, 0));
+
+        runUntil(core, MatchCore.BOMB_FUSE_TICKS);
+        assertNull(core.getBomb(2));
+        assertEquals(0, players.getPlacedBombs(0));
+        assertFalse(players.isAlive(1));
+        assertEquals(-1, players.getTile(1));
+        assertEquals(1, players.getEliminations(0));
+        assertTrue(players.isAlive(0));
+        assertEquals(Space.EMPTY, core.getSpace(3, 0));
+        assertTrue(this.events.contains("detonated 2,0"));
+        assertTrue(this.events.contains("eliminated 1 by 0"));
+        assertTrue(this.events.contains("space 3 EMPTY"));
+    }
+
+    @Test
+    void blastsSetOffTheBombsTheyReach() {
+        var core = this.core(SEED, 2);
+        var players = core.getParticipants();
+
+        var first = core.placeBomb(0, 0, 2);
+        runUntil(core, 20);
+        var second = core.placeBomb(1, 1, 2);
+        assertEquals(20 + MatchCore.BOMB_FUSE_TICKS, second.detonateAt);
+
+        // the first bomb's blast sets off the second, 20 ticks early
+        runUntil(core, MatchCore.BOMB_FUSE_TICKS);
+        assertNull(core.getBomb(2 * WIDTH));
+        assertNull(core.getBomb(2 * WIDTH + 1));
+        assertEquals(0, players.getPlacedBombs(0));
+        assertEquals(0, players.getPlacedBombs(1));
+        assertFalse(first.scheduled || second.scheduled);
+        assertEquals(1, this.events.stream().filter("detonated 0,2"::equals).count());
+        assertEquals(1, this.events.stream().filter("detonated 1,2"::equals).count());
+
+        // nothing is left to go off at the second bomb's own time
+        this.events.clear();
+        runUntil(core, second.detonateAt + 1);
+        assertTrue(this.events.isEmpty());
+    }
+
+    @Test
+    void blastsPassWhereSolidWallsWereRemoved() {
+        var core = this.core(SEED, 2);
+        var players = core.getParticipants();
+        core.move(0, 2 * WIDTH);
+
+        // a first blast, against the pillar below it
+        core.placeBomb(0, 1, 0);
+        runUntil(core, MatchCore.BOMB_FUSE_TICKS);
+
+        core.restoreSpace(WIDTH + 1, Space.EMPTY);
+        core.move(1, WIDTH + 1);
+        var bomb = core.placeBomb(0, 1, 0);
+        assertNotNull(bomb);
+        runUntil(core, bomb.detonateAt);
+        assertFalse(players.isAlive(1));
+    }
+
+    @Test
+    void dropsFollowTheSeed() {
+        var drops = this.breakMiddleColumn(SEED, 0);
+        assertEquals(drops, this.breakMiddleColumn(SEED, 0));
+
+        // each blast breaks one wall, which rolls the next drop from the seed
+        assertEquals(expectedDrops(SEED, 5), drops);
+    }
+
+    @Test
+    void reseedingSkipsTheDropsAlreadyRolled() {
+        // a core resumed two drops in rolls what an unbroken match would have from its third wall on
+        var expected = expectedDrops(SEED, 7).subList(2, 7);
+        assertEquals(expected, this.breakMiddleColumn(SEED, 2));
+    }
+
+    private static List<Powerup> expectedDrops(long seed, int count) {
+        var random = new SplittableRandom(seed);
+        var expected = new ArrayList<Powerup>();
+        for (int i = 0; i < count; i++) {
+            expected.add(switch (random.nextInt(4)) {
+                case 0 -> Powerup.SPEED;
+                case 1 -> Powerup.POWER;
+                case 2 -> Powerup.BOMBS;
+                default -> null;
+            });
+        }
+
+        return expected;
+    }
+
+    /**
+     * Breaks every soft wall of the middle column, one row at a time from the top.
+     *
+     * @param rolls the drops to treat as already rolled from the seed
+     * @return the powerup each wall dropped, from the top
+     */
+    private List<Powerup> breakMiddleColumn(long seed, int rolls) {
+        var core = this.core(0, 1);
+        core.seed(seed, rolls);
+        var players = core.getParticipants();
+        for (int i = 0; i < 2; i++) players.addPowerup(0, Powerup.POWER);
+
+        var drops = new ArrayList<Powerup>();
+        for (int row = 0; row < 5; row++) {
+            // solid pillars on odd rows, so reach the wall from the row's empty column
+            var x = row % 2 == 0 ? 0 : 2;
+            var bomb = core.placeBomb(0, x, row);
+            assertNotNull(bomb, "row " + row);
+            runUntil(core, bomb.detonateAt);
+            assertEquals(Space.EMPTY, core.getSpace(3, row), "row " + row);
+            drops.add(core.getPowerup(row * WIDTH + 3));
+        }
+
+        assertEquals(rolls + 5, core.getRolls());
+        return drops;
+    }
+
+    @Test
+    void restoredBombsOnlyGiveBackWhatTheyTook() {
+        var core = this.core(SEED, 1);
+        var players = core.getParticipants();
+
+        // a bomb put back unarmed, as during replay playback, never counted against its owner
+        var unarmed = new Bomb();
+        unarmed.x = 1;
+        unarmed.y = 2;
+        unarmed.power = 1;
+        unarmed.detonateAt = Integer.MAX_VALUE;
+        assertTrue(core.restoreBomb(unarmed, false));
+        assertEquals(0, players.getPlacedBombs(0));
+
+        // setting it off with an armed bomb gives back only the armed one
+        core.placeBomb(0, 0, 2);
+        assertEquals(1, players.getPlacedBombs(0));
+        runUntil(core, MatchCore.BOMB_FUSE_TICKS);
+        assertNull(core.getBomb(2 * WIDTH + 1));
+        assertEquals(0, players.getPlacedBombs(0));
+
+        // an armed bomb put back counts until it goes off
+        var armed = new Bomb();
+        armed.x = 0;
+        armed.y = 4;
+        armed.power = 1;
+        armed.detonateAt = core.getNow() + 5;
+        assertTrue(core.restoreBomb(armed, true));
+        assertEquals(1, players.getPlacedBombs(0));
+        runUntil(core, armed.detonateAt);
+        assertEquals(0, players.getPlacedBombs(0));
+    }
+
+    @Test
+    void removingBombsGivesThemBack() {
+        var core = this.core(SEED, 2);
+        var players = core.getParticipants();
+        core.placeBomb(0, 0, 0);
+        core.placeBomb(1, 6, 4);
+
+        assertNotNull(core.removeBomb(0, false));
+        assertNull(core.removeBomb(0, false));
+        assertEquals(0, players.getPlacedBombs(0));
+        assertTrue(this.events.contains("removed 0,0"));
+
+        core.clearBombs();
+        assertEquals(0, players.getPlacedBombs(1));
+        assertNull(core.getBomb(4 * WIDTH + 6));
+
+        // nothing goes off after being removed
+        this.events.clear();
+        runUntil(core, MatchCore.BOMB_FUSE_TICKS * 2);
+        assertTrue(this.events.isEmpty());
+    }
+
+    @Test
+    void participantsTakePowerupsTheyStandOn() {
+        var core = this.core(SEED, 1);
+        var players = core.getParticipants();
+        core.restorePowerup(1, Powerup.POWER);
+
+        core.move(0, 1);
+        runUntil(core, 1);
+        assertNull(core.getPowerup(1));
+        assertEquals(2, players.getPower(0));
+        assertEquals(1, players.getTotalPowerups(0));
+    }
+
+}
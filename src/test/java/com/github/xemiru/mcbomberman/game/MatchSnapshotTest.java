@@ -0,0 +1,78 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MatchSnapshotTest {
+
+    private static final UUID ALICE = new UUID(1, 2);
+
+    /**
+     * A 3x3 match a little way in: a powerup, a lit bomb, a player and a bot.
+     */
+    private static MatchSnapshot snapshot() {
+        var snapshot = new MatchSnapshot();
+        snapshot.state = "PlayState";
+        snapshot.realtime = true;
+        snapshot.teams = 2;
+        snapshot.arenaIndex = 3;
+        snapshot.width = 3;
+        snapshot.height = 3;
+        snapshot.elapsed = 400;
+        snapshot.seed = -7316592840113422L;
+        snapshot.rolls = 12;
+        snapshot.tiles = new byte[]{0, 1, 0, 1, 2, 1, 0, 1, 0};
+        snapshot.powerupTiles = new int[]{6};
+        snapshot.powerups = new Powerup[]{Powerup.POWER};
+        snapshot.bombTiles = new int[]{2};
+        snapshot.bombOwners = new int[]{1};
+        snapshot.bombPowers = new int[]{3};
+        snapshot.bombFuses = new int[]{25};
+
+        snapshot.allocate(2);
+        snapshot.ids[0] = ALICE;
+        snapshot.names[0] = "alice";
+        snapshot.names[1] = "bot";
+        snapshot.alive[0] = true;
+        snapshot.team[0] = 0;
+        snapshot.team[1] = 1;
+        snapshot.eliminations[0] = 1;
+        snapshot.positions[0] = 0;
+        snapshot.positions[1] = -1;
+        return snapshot;
+    }
+
+    @Test
+    void snapshotRoundTrips() {
+        var read = MatchSnapshot.decode("match", snapshot().encode());
+        assertEquals("match", read.getName());
+        assertEquals("PlayState", read.getState());
+        assertEquals(3, read.getArenaIndex());
+        assertEquals(400, read.elapsed);
+        assertEquals(-7316592840113422L, read.getSeed());
+        assertEquals(12, read.rolls);
+        assertArrayEquals(new byte[]{0, 1, 0, 1, 2, 1, 0, 1, 0}, read.tiles);
+        assertEquals(Powerup.POWER, read.powerups[0]);
+        assertEquals(25, read.bombFuses[0]);
+
+        assertEquals(2, read.getParticipants());
+        assertEquals(ALICE, read.getId(0));
+        assertNull(read.getId(1));
+        assertEquals("bot", read.names[1]);
+        assertEquals(-1, read.positions[1]);
+    }
+
+    @Test
+    void corruptSnapshotIsRejected() {
+        var buf = snapshot().encode();
+        buf.put(20, (byte) (buf.get(20) ^ 1));
+        assertThrows(IllegalArgumentException.class, () -> MatchSnapshot.decode("match", buf));
+    }
+
+}
@@ -0,0 +1,236 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayRecorderTest {
+
+    // spawns in the corners; a soft wall two tiles east of the northwest spawn
+    private static final String ARENA = ""
+            + "  X    "
+            + " # # # "
+            + "       "
+            + " # # # "
+            + "       ";
+
+    private static final int WIDTH = 7;
+
+    @TempDir
+    Path dir;
+
+    private MatchCore core;
+    private Participants players;
+    private ReplayRecorder recorder;
+    private int now = 0;
+
+    @BeforeEach
+    void setUp() {
+        this.core = new MatchCore(ArenaLayout.parse(WIDTH, 5, ARENA), 1);
+        this.players = new Participants();
+        this.players.join();
+        this.players.join();
+        this.core.setParticipants(this.players);
+        this.core.move(0, 0);
+        this.core.move(1, 34);
+    }
+
+    /**
+     * Records a match: a bomb breaking the soft wall, a bomb removed unexploded, and a bomb still lit at the second
+     * keyframe. The first participant walks two tiles south.
+     */
+    private Path record() {
+        var path = this.dir.resolve("match.bmr");
+        this.recorder = ReplayRecorder.start(path, this.core, new String[]{"alice", "bob"}, this.now, Logger.getAnonymousLogger());
+        this.core.addListener(new MatchCore.Events() {
+            @Override
+            public void spaceChanged(int tile, Space space) {
+                recorder.tile(tile, space);
+            }
+
+            @Override
+            public void powerupChanged(int tile, Powerup powerup) {
+                recorder.powerup(tile, powerup);
+            }
+
+            @Override
+            public void bombPlaced(Bomb bomb) {
+                recorder.bomb(bomb, WIDTH);
+            }
+
+            @Override
+            public void bombDetonated(Bomb bomb) {
+                recorder.detonate(bomb, WIDTH);
+            }
+
+            @Override
+            public void bombRemoved(Bomb bomb) {
+                recorder.remove(bomb, WIDTH);
+            }
+
+            @Override
+            public void powerupTaken(int slot, Powerup powerup) {
+                recorder.pickup(slot, powerup);
+            }
+
+            @Override
+            public void eliminated(int slot, Bomb bomb) {
+                recorder.eliminate(slot, bomb.owner);
+            }
+        });
+
+        this.runUntil(1);
+        this.core.placeBomb(0, 1, 0);
+        this.core.move(0, 14);
+
+        this.runUntil(100);
+        this.core.placeBomb(1, 6, 3);
+
+        this.runUntil(120);
+        this.core.clearBombs();
+
+        this.runUntil(250);
+        this.core.placeBomb(1, 4, 4);
+
+        this.runUntil(400);
+        this.recorder.close();
+        ReplayRecorder.shutdown();
+        return path;
+    }
+
+    private void runUntil(int tick) {
+        while (this.now < tick) {
+            this.now++;
+            this.recorder.begin(this.now);
+            this.core.tick(this.now);
+            this.recorder.end();
+        }
+    }
+
+    private static final class Log implements ReplayReader.Visitor {
+        final List<String> ops = new ArrayList<>();
+        private final ReplayReader reader;
+
+        Log(ReplayReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public void bomb(int slot, int tile, int power) {
+            this.ops.add(this.reader.getTick() + " bomb " + slot + " " + tile + " " + power);
+        }
+
+        @Override
+        public void detonate(int tile) {
+            this.ops.add(this.reader.getTick() + " detonate " + tile);
+        }
+
+        @Override
+        public void remove(int tile) {
+            this.ops.add(this.reader.getTick() + " remove " + tile);
+        }
+
+        @Override
+        public void tile(int tile, Space space) {
+            this.ops.add(this.reader.getTick() + " tile " + tile + " " + space);
+        }
+
+        @Override
+        public void position(int slot, int tile) {
+            this.ops.add(this.reader.getTick() + " position " + slot + " " + tile);
+        }
+
+        int indexOf(String op) {
+            var i = this.ops.indexOf(op);
+            assertTrue(i >= 0, "missing \"" + op + "\" in " + this.ops);
+            return i;
+        }
+    }
+
+    @Test
+    void headerRoundTrips() throws IOException {
+        try (var reader = ReplayReader.open(this.record())) {
+            assertEquals(WIDTH, reader.getWidth());
+            assertEquals(5, reader.getHeight());
+            assertEquals(1, reader.getSeed());
+            assertEquals(2, reader.getParticipants());
+            assertEquals("alice", reader.getName(0));
+            assertEquals("bob", reader.getName(1));
+            assertEquals(0, reader.getStartTick());
+        }
+    }
+
+    @Test
+    void operationsRoundTripInOrder() throws IOException {
+        try (var reader = ReplayReader.open(this.record())) {
+            var first = reader.seek(0);
+            assertEquals(0, first.tick);
+            assertEquals(Space.SOFT, first.tiles[2]);
+            assertEquals(0, first.positions[0]);
+            assertEquals(34, first.positions[1]);
+
+            var log = new Log(reader);
+            reader.advance(Integer.MAX_VALUE, log);
+            assertTrue(reader.isDone());
+
+            var placed = log.indexOf("1 bomb 0 1 1");
+            var walked = log.indexOf("5 position 0 14");
+            var detonated = log.indexOf("61 detonate 1");
+            var broken = log.indexOf("61 tile 2 EMPTY");
+            var removed = log.indexOf("120 remove 27");
+            var lit = log.indexOf("310 detonate 32");
+            assertTrue(placed < walked && walked < detonated && detonated < broken && broken < removed && removed < lit);
+
+            // the bomb taken away unexploded is not shown going off
+            assertFalse(log.ops.contains("120 detonate 27"));
+        }
+    }
+
+    @Test
+    void seekStartsFromTheLatestKeyframe() throws IOException {
+        try (var reader = ReplayReader.open(this.record())) {
+            var keyframe = reader.seek(305);
+            assertEquals(ReplayRecorder.KEYFRAME_TICKS, keyframe.tick);
+            assertEquals(Space.EMPTY, keyframe.tiles[2]);
+            assertEquals(14, keyframe.positions[0]);
+            assertEquals(1, keyframe.bombs.length);
+            assertEquals(4, keyframe.bombs[0].x);
+            assertEquals(4, keyframe.bombs[0].y);
+            assertEquals(1, keyframe.bombs[0].owner);
+            assertEquals(310, keyframe.bombs[0].detonateAt);
+
+            var log = new Log(reader);
+            reader.advance(310, log);
+            log.indexOf("310 detonate 32");
+            assertFalse(reader.isDone());
+
+            // seeking backwards starts over from the first keyframe
+            assertEquals(0, reader.seek(299).tick);
+        }
+    }
+
+    @Test
+    void unfinishedReplayIsReadByScanning() throws IOException {
+        var path = this.record();
+        var bytes = Files.readAllBytes(path);
+        var cut = this.dir.resolve("cut.bmr");
+        Files.write(cut, Arrays.copyOf(bytes, bytes.length - 8));
+
+        try (var reader = ReplayReader.open(cut)) {
+            assertEquals(ReplayRecorder.KEYFRAME_TICKS, reader.seek(350).tick);
+        }
+    }
+
+}
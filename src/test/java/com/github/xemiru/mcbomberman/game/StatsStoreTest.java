@@ -0,0 +1,205 @@
+package com.github.xemiru.mcbomberman.game;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<LogRecord> logged = new ArrayList<>();
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        this.logger = Logger.getAnonymousLogger();
+        this.logger.setUseParentHandlers(false);
+        this.logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                logged.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    private StatsStore open() throws IOException {
+        return StatsStore.open(this.dir, this.logger);
+    }
+
+    @Test
+    void finishedMatchReachesTheStore() throws IOException {
+        var core = new MatchCore(ArenaLayout.parse(7, 3, " ".repeat(7 * 3)), 1);
+        var players = new Participants();
+        players.join();
+        players.join();
+        core.setParticipants(players);
+        core.move(0, 0);
+        core.move(1, 3);
+
+        // the second participant's bomb catches the first
+        core.placeBomb(1, 1, 0);
+        for (int tick = 1; tick < MatchCore.BOMB_FUSE_TICKS; tick++) core.tick(tick);
+        assertFalse(players.isDecided());
+        core.tick(MatchCore.BOMB_FUSE_TICKS);
+        assertTrue(players.isDecided());
+
+        var ids = new UUID[]{UUID.randomUUID(), UUID.randomUUID()};
+        var names = new String[]{"alice", "bob"};
+        try (var store = this.open()) {
+            for (int slot = 0; slot < 2; slot++) store.record(ids[slot], StatsStore.Stats.ofMatch(names[slot], players, slot, 1000));
+        }
+
+        try (var store = this.open()) {
+            var loser = store.get(ids[0]);
+            assertEquals(1, loser.getMatches());
+            assertEquals(0, loser.getWins());
+            assertEquals(1, loser.getDeaths());
+
+            var winner = store.get(ids[1]);
+            assertEquals("bob", winner.getName());
+            assertEquals(1, winner.getWins());
+            assertEquals(1, winner.getEliminations());
+            assertEquals(1, winner.getBombs());
+            assertEquals(0, winner.getDeaths());
+
+            assertEquals(ids[1], store.getLeaderboard(Leaderboard.Board.WINS).get(1).id);
+        }
+    }
+
+    @Test
+    void teamMatchIsDecidedOnceOneTeamStands() {
+        var players = new Participants();
+        for (int i = 0; i < 4; i++) players.join();
+        players.assignTeams(2);
+
+        players.eliminate(0);
+        assertFalse(players.isDecided());
+        players.eliminate(2);
+        assertFalse(players.isDecided());
+        players.eliminate(3);
+        assertTrue(players.isDecided());
+
+        assertTrue(players.hasWon(0));
+        assertTrue(players.hasWon(1));
+        assertFalse(players.hasWon(2));
+    }
+
+    @Test
+    void leavingForfeitsTheMatch() throws IOException {
+        var players = new Participants();
+        for (int i = 0; i < 4; i++) players.join();
+        players.assignTeams(2);
+
+        // someone leaves each team; the match is still decided once the rest of one team is caught
+        players.forfeit(1);
+        players.forfeit(3);
+        assertFalse(players.isDecided());
+        players.eliminate(2);
+        assertTrue(players.isDecided());
+
+        // the winning team's leaver still loses
+        assertTrue(players.hasWon(0));
+        assertFalse(players.hasWon(1));
+        assertTrue(players.hasForfeited(1));
+        assertFalse(players.hasForfeited(2));
+
+        var ids = new UUID[]{UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        try (var store = this.open()) {
+            for (int slot = 0; slot < 4; slot++) store.record(ids[slot], StatsStore.Stats.ofMatch("p" + slot, players, slot, 1000));
+        }
+
+        try (var store = this.open()) {
+            assertEquals(1, store.get(ids[0]).getWins());
+            for (int slot = 1; slot < 4; slot++) {
+                assertEquals(0, store.get(ids[slot]).getWins());
+                assertEquals(1, store.get(ids[slot]).getDeaths());
+            }
+        }
+    }
+
+    @Test
+    void matchPlayedAloneEndsWithItsParticipant() {
+        var players = new Participants();
+        players.join();
+        assertFalse(players.isDecided());
+        players.eliminate(0);
+        assertTrue(players.isDecided());
+    }
+
+    @Test
+    void damagedRecordIsDropped() throws IOException {
+        var ids = new UUID[]{UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        try (var store = this.open()) {
+            for (var id : ids) store.record(id, StatsStore.Stats.ofMatch("player", true, 1, false, 2, 3, 1000));
+        }
+
+        // flip a bit inside the last record's payload
+        var log = this.dir.resolve("stats.log");
+        var bytes = Files.readAllBytes(log);
+        bytes[bytes.length - 10] ^= 1;
+        Files.write(log, bytes);
+
+        try (var store = this.open()) {
+            assertEquals(1, store.get(ids[0]).getWins());
+            assertEquals(1, store.get(ids[1]).getWins());
+            assertNull(store.get(ids[2]));
+        }
+
+        assertTrue(Files.size(log) < bytes.length);
+        assertTrue(this.logged.stream().anyMatch(record -> record.getMessage().contains("unreadable bytes")));
+    }
+
+    @Test
+    void compactionFoldsTheLogIntoTheSnapshot() throws IOException {
+        var ids = new UUID[50];
+        for (int i = 0; i < ids.length; i++) ids[i] = UUID.randomUUID();
+
+        // enough results to grow the log past the compaction threshold
+        var rounds = (int) (StatsStore.COMPACT_BYTES / 88 / ids.length) + 20;
+        try (var store = this.open()) {
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < ids.length; i++) store.record(ids[i], StatsStore.Stats.ofMatch("p" + i, i == 0, 0, i != 0, 1, 0, round));
+            }
+        }
+
+        assertTrue(Files.isRegularFile(this.dir.resolve("stats.snapshot")));
+        assertTrue(Files.size(this.dir.resolve("stats.log")) < StatsStore.COMPACT_BYTES);
+        assertTrue(this.logged.stream().anyMatch(record -> record.getMessage().startsWith("Compacted")));
+
+        try (var store = this.open()) {
+            assertEquals(ids.length, store.size());
+            for (var id : ids) assertEquals(rounds, store.get(id).getMatches());
+
+            var first = store.get(ids[0]);
+            assertEquals(rounds, first.getWins());
+            assertEquals(rounds, first.getBestStreak());
+            assertEquals(rounds, store.get(ids[1]).getDeaths());
+        }
+    }
+
+}